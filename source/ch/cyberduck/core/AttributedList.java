@@ -20,22 +20,29 @@ package ch.cyberduck.core;
 
 import org.apache.log4j.Logger;
 
+import java.util.AbstractList;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
- * A sortable list with a map to lookup values by key.
+ * A sortable list with a map to lookup values by key. Elements are appended to a growing array in
+ * amortized constant time. Writers are serialized and publish an immutable snapshot of the array and
+ * its size such that readers never lock and iterators never fail with a concurrent modification.
+ * Sorting and filtering work on a single copy of the elements published at once.
  *
  * @version $Id: AttributedList.java 10305 2012-10-16 12:17:22Z dkocher $
  */
-public class AttributedList<E extends AbstractPath> extends CopyOnWriteArrayList<E> {
-    private static final Logger log = Logger.getLogger(Cache.class);
+public class AttributedList<E extends AbstractPath> extends AbstractList<E> implements RandomAccess {
+    private static final Logger log = Logger.getLogger(AttributedList.class);
 
-    private static final long serialVersionUID = 8900332123622028341L;
+    private static final Object[] EMPTY = new Object[0];
 
     /**
      * Metadata of file listing
@@ -43,6 +50,17 @@ public class AttributedList<E extends AbstractPath> extends CopyOnWriteArrayList
     private AttributedListAttributes<E> attributes
             = new AttributedListAttributes<E>();
 
+    /**
+     * Current contents. Slots beyond the size of the snapshot may be filled by appends
+     * but are never visible to readers of the snapshot.
+     */
+    private volatile Snapshot snapshot = new Snapshot(EMPTY, 0);
+
+    /**
+     * Serialize writers
+     */
+    private final Object lock = new Object();
+
     /**
      * Initialize an attributed list with default attributes
      */
@@ -78,22 +96,153 @@ public class AttributedList<E extends AbstractPath> extends CopyOnWriteArrayList
 
     @Override
     public boolean add(E path) {
+        this.reference(path);
+        synchronized(lock) {
+            final Snapshot current = snapshot;
+            final Object[] elements = current.capacity(current.size + 1);
+            elements[current.size] = path;
+            snapshot = new Snapshot(elements, current.size + 1);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean addAll(java.util.Collection<? extends E> c) {
+        final Object[] added = c.toArray();
+        if(0 == added.length) {
+            return false;
+        }
+        for(Object path : added) {
+            this.reference((E) path);
+        }
+        synchronized(lock) {
+            final Snapshot current = snapshot;
+            final Object[] elements = current.capacity(current.size + added.length);
+            System.arraycopy(added, 0, elements, current.size, added.length);
+            snapshot = new Snapshot(elements, current.size + added.length);
+        }
+        return true;
+    }
+
+    private void reference(final E path) {
         final AbstractPath previous = references.put(path.getReference(), path);
         if(null != previous) {
             log.warn(String.format("Replacing %s with %s in file listing.", previous, path));
         }
-        return super.add(path);
     }
 
     @Override
-    public boolean addAll(java.util.Collection<? extends E> c) {
-        for(E path : c) {
-            final AbstractPath previous = references.put(path.getReference(), path);
-            if(null != previous) {
-                log.warn(String.format("Replacing %s with %s in file listing.", previous, path));
+    public void add(final int index, final E path) {
+        this.reference(path);
+        synchronized(lock) {
+            final Snapshot current = snapshot;
+            if(index < 0 || index > current.size) {
+                throw new IndexOutOfBoundsException(String.format("Index %d, Size %d", index, current.size));
             }
+            final Object[] elements = new Object[Math.max(current.size + 1, current.elements.length)];
+            System.arraycopy(current.elements, 0, elements, 0, index);
+            elements[index] = path;
+            System.arraycopy(current.elements, index, elements, index + 1, current.size - index);
+            snapshot = new Snapshot(elements, current.size + 1);
+        }
+    }
+
+    @Override
+    public E set(final int index, final E path) {
+        synchronized(lock) {
+            final Snapshot current = snapshot;
+            final E previous = current.get(index);
+            final Object[] elements = current.copy(current.elements.length);
+            elements[index] = path;
+            snapshot = new Snapshot(elements, current.size);
+            return previous;
         }
-        return super.addAll(c);
+    }
+
+    @Override
+    public E remove(final int index) {
+        synchronized(lock) {
+            final Snapshot current = snapshot;
+            final E previous = current.get(index);
+            final Object[] elements = new Object[current.elements.length];
+            System.arraycopy(current.elements, 0, elements, 0, index);
+            System.arraycopy(current.elements, index + 1, elements, index, current.size - index - 1);
+            snapshot = new Snapshot(elements, current.size - 1);
+            return previous;
+        }
+    }
+
+    @Override
+    public boolean remove(final Object o) {
+        synchronized(lock) {
+            final int index = snapshot.indexOf(o);
+            if(-1 == index) {
+                return false;
+            }
+            this.remove(index);
+            return true;
+        }
+    }
+
+    @Override
+    public E get(final int index) {
+        return snapshot.get(index);
+    }
+
+    @Override
+    public int size() {
+        return snapshot.size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return 0 == snapshot.size;
+    }
+
+    @Override
+    public int indexOf(final Object o) {
+        return snapshot.indexOf(o);
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        return snapshot.indexOf(o) != -1;
+    }
+
+    @Override
+    public Object[] toArray() {
+        final Snapshot current = snapshot;
+        return current.copy(current.size);
+    }
+
+    /**
+     * @return Iterator over the elements at the time of the call not affected by later modifications.
+     *         Does not support removal.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        final Snapshot current = snapshot;
+        return new Iterator<E>() {
+            private int cursor = 0;
+
+            @Override
+            public boolean hasNext() {
+                return cursor < current.size;
+            }
+
+            @Override
+            public E next() {
+                if(cursor >= current.size) {
+                    throw new NoSuchElementException();
+                }
+                return (E) current.elements[cursor++];
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
     }
 
     public E get(PathReference reference) {
@@ -105,26 +254,24 @@ public class AttributedList<E extends AbstractPath> extends CopyOnWriteArrayList
     }
 
     public int indexOf(PathReference reference) {
-        return super.indexOf(references.get(reference));
+        return this.indexOf(references.get(reference));
     }
 
     /**
-     * The CopyOnWriteArrayList iterator does not support remove but the sort implementation
-     * makes use of it. Provide our own implementation here to circumvent.
+     * Sort a copy of the elements and replace the contents at once. Concurrent readers
+     * see either the previous or the sorted order.
      *
      * @param comparator The comparator to use
-     * @see java.util.Collections#sort(java.util.List, java.util.Comparator)
-     * @see java.util.concurrent.CopyOnWriteArrayList#iterator()
      */
     public void sort(Comparator<E> comparator) {
         if(null == comparator) {
             return;
         }
-        // Because AttributedList is a CopyOnWriteArrayList we cannot use Collections#sort
-        E[] sorted = (E[]) this.toArray(new AbstractPath[this.size()]);
-        Arrays.sort(sorted, comparator);
-        for(int i = 0; i < sorted.length; i++) {
-            this.set(i, sorted[i]);
+        synchronized(lock) {
+            final Snapshot current = snapshot;
+            final Object[] sorted = current.copy(current.elements.length);
+            Arrays.sort(sorted, 0, current.size, (Comparator) comparator);
+            snapshot = new Snapshot(sorted, current.size);
         }
     }
 
@@ -146,23 +293,40 @@ public class AttributedList<E extends AbstractPath> extends CopyOnWriteArrayList
             attributes.setComparator(comparator);
         }
         if(needsFiltering) {
-            // Add previously hidden files to children
-            final List<E> hidden = attributes.getHidden();
-            this.addAll(hidden);
-            // Clear the previously set of hidden files
-            hidden.clear();
-            for(E child : this) {
-                if(!filter.accept(child)) {
-                    // Child not accepted by filter; add to cached hidden files
-                    attributes.addHidden(child);
-                    // Remove hidden file from current file listing
-                    this.remove(child);
+            synchronized(lock) {
+                final Snapshot current = snapshot;
+                // Previously hidden files are candidates to be shown again
+                final List<E> hidden = attributes.getHidden();
+                final Object[] candidates = new Object[current.size + hidden.size()];
+                System.arraycopy(current.elements, 0, candidates, 0, current.size);
+                int count = current.size;
+                for(E child : hidden) {
+                    candidates[count++] = child;
+                }
+                // Partition in a single pass into accepted and hidden files
+                final Object[] accepted = new Object[count];
+                int size = 0;
+                final List<E> rejected = new ArrayList<E>();
+                for(int i = 0; i < count; i++) {
+                    final E child = (E) candidates[i];
+                    if(filter.accept(child)) {
+                        accepted[size++] = child;
+                    }
+                    else {
+                        // Child not accepted by filter; add to cached hidden files
+                        rejected.add(child);
+                    }
                 }
+                hidden.clear();
+                hidden.addAll(rejected);
+                if(null != comparator) {
+                    // Sort again because the list has changed
+                    Arrays.sort(accepted, 0, size, comparator);
+                }
+                snapshot = new Snapshot(accepted, size);
             }
             // Saving last filter
             attributes.setFilter(filter);
-            // Sort again because the list has changed
-            this.sort(comparator);
         }
         return this;
     }
@@ -172,8 +336,56 @@ public class AttributedList<E extends AbstractPath> extends CopyOnWriteArrayList
      */
     @Override
     public void clear() {
-        references.clear();
-        attributes.clear();
-        super.clear();
+        synchronized(lock) {
+            references.clear();
+            attributes.clear();
+            snapshot = new Snapshot(EMPTY, 0);
+        }
+    }
+
+    /**
+     * Immutable view of the elements up to size
+     */
+    private static final class Snapshot {
+        private final Object[] elements;
+        private final int size;
+
+        private Snapshot(final Object[] elements, final int size) {
+            this.elements = elements;
+            this.size = size;
+        }
+
+        private <T> T get(final int index) {
+            if(index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException(String.format("Index %d, Size %d", index, size));
+            }
+            return (T) elements[index];
+        }
+
+        private int indexOf(final Object o) {
+            for(int i = 0; i < size; i++) {
+                if(null == o ? null == elements[i] : o.equals(elements[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private Object[] copy(final int length) {
+            final Object[] copy = new Object[length];
+            System.arraycopy(elements, 0, copy, 0, size);
+            return copy;
+        }
+
+        /**
+         * @param minimum Number of elements to hold
+         * @return This array if large enough to append or a larger copy
+         */
+        private Object[] capacity(final int minimum) {
+            if(minimum <= elements.length) {
+                return elements;
+            }
+            return this.copy(Math.max(minimum, Math.max(10, elements.length + (elements.length >> 1))));
+        }
     }
-}
\ No newline at end of file
+}
@@ -18,14 +18,23 @@ package ch.cyberduck.core;
  *  dkocher@cyberduck.ch
  */
 
-import org.apache.commons.collections.map.LRUMap;
 import org.apache.log4j.Logger;
 
-import java.util.Collections;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * A cache for remote directory listings
+ * A cache for remote directory listings. Listings are kept in segments locked independently
+ * and evicted least recently used when either the number of listings or the total number of
+ * files exceeds the configured limit. Children are indexed by reference to lookup a file
+ * in its parent listing in constant time.
  *
  * @version $Id: Cache.java 10316 2012-10-16 14:35:43Z dkocher $
  */
@@ -33,40 +42,90 @@ public class Cache {
     private static final Logger log = Logger.getLogger(Cache.class);
 
     /**
-     *
+     * Number of independently locked segments
+     */
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    /**
+     * Index of child reference to reference of parent listing
+     */
+    private final ConcurrentMap<PathReference, PathReference> index
+            = new ConcurrentHashMap<PathReference, PathReference>();
+
+    /**
+     * Milliseconds after which a listing must be refreshed or -1 if not expiring
+     */
+    private final long ttl;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    public Cache() {
+        this(Preferences.instance().getLong("browser.cache.ttl"));
+    }
+
+    /**
+     * @param protocol Protocol to read listing expiry for
      */
-    private final Map<PathReference, AttributedList<Path>> _impl = Collections.<PathReference, AttributedList<Path>>synchronizedMap(new LRUMap(
-            Preferences.instance().getInteger("browser.cache.size")
-    ) {
-        @Override
-        protected boolean removeLRU(LinkEntry entry) {
-            log.debug("Removing from cache:" + entry);
-            return true;
+    public Cache(final Protocol protocol) {
+        this(null == protocol || null == Preferences.instance().getProperty(String.format("%s.cache.ttl", protocol.getIdentifier()))
+                ? Preferences.instance().getLong("browser.cache.ttl")
+                : Preferences.instance().getLong(String.format("%s.cache.ttl", protocol.getIdentifier())));
+    }
+
+    /**
+     * @param ttl Milliseconds after which a listing must be refreshed or -1 if not expiring
+     */
+    public Cache(final long ttl) {
+        this.ttl = ttl;
+        final int size = Math.max(1, Preferences.instance().getInteger("browser.cache.size") / SEGMENTS);
+        final long weight = Math.max(1L, Preferences.instance().getLong("browser.cache.weight") / SEGMENTS);
+        for(int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(size, weight);
         }
-    });
+    }
+
+    private Segment segment(final PathReference reference) {
+        final int h = reference.hashCode();
+        return segments[((h >>> 16) ^ h) & (SEGMENTS - 1)];
+    }
 
     /**
-     * Lookup a path by reference in the cache. Expensive as its parent directory must be
-     * evaluated first.
+     * Lookup a path by reference in the cache.
      *
      * @param reference A child object of a cached directory listing in the cache
      * @return Null if the path is no more cached.
      * @see ch.cyberduck.core.AttributedList#get(PathReference)
      */
     public Path lookup(final PathReference reference) {
-        for(AttributedList<Path> list : _impl.values()) {
-            final Path path = list.get(reference);
-            if(null == path) {
-                continue;
+        final PathReference parent = index.get(reference);
+        if(null != parent) {
+            final Entry entry = this.segment(parent).get(parent);
+            if(null != entry) {
+                final Path path = entry.children.get(reference);
+                if(null != path) {
+                    hits.incrementAndGet();
+                    return path;
+                }
             }
-            return path;
+            // Stale index entry
+            index.remove(reference, parent);
         }
+        misses.incrementAndGet();
         log.warn(String.format("Lookup failed for %s in cache", reference));
         return null;
     }
 
     public boolean isEmpty() {
-        return _impl.isEmpty();
+        for(Segment segment : segments) {
+            if(!segment.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -74,7 +133,7 @@ public class Cache {
      * @return True if the directory listing of this path is cached
      */
     public boolean containsKey(final PathReference reference) {
-        return _impl.containsKey(reference);
+        return null != this.segment(reference).get(reference);
     }
 
     /**
@@ -84,7 +143,12 @@ public class Cache {
      * @return The previuosly cached directory listing
      */
     public AttributedList<Path> remove(final PathReference reference) {
-        return _impl.remove(reference);
+        final Entry entry = this.segment(reference).remove(reference);
+        if(null == entry) {
+            return null;
+        }
+        this.unindex(reference, entry.children);
+        return entry.children;
     }
 
     /**
@@ -95,12 +159,14 @@ public class Cache {
      *          and requests a new filter here.
      */
     public AttributedList<Path> get(final PathReference reference) {
-        AttributedList<Path> children = _impl.get(reference);
-        if(null == children) {
+        final Entry entry = this.segment(reference).get(reference);
+        if(null == entry) {
+            misses.incrementAndGet();
             log.warn(String.format("No cache for %s", reference));
             return AttributedList.emptyList();
         }
-        return children;
+        hits.incrementAndGet();
+        return entry.children;
     }
 
     /**
@@ -109,7 +175,40 @@ public class Cache {
      * @return Previous cached version
      */
     public AttributedList<Path> put(final PathReference reference, final AttributedList<Path> children) {
-        return _impl.put(reference, children);
+        final Entry entry = new Entry(children);
+        final List<Map.Entry<PathReference, Entry>> evicted = new ArrayList<Map.Entry<PathReference, Entry>>();
+        final Entry previous = this.segment(reference).put(reference, entry, evicted);
+        if(null != previous) {
+            this.unindex(reference, previous.children);
+        }
+        for(Map.Entry<PathReference, Entry> e : evicted) {
+            if(log.isDebugEnabled()) {
+                log.debug(String.format("Removing from cache:%s", e.getKey()));
+            }
+            this.unindex(e.getKey(), e.getValue().children);
+        }
+        for(Path child : children) {
+            index.put(child.getReference(), reference);
+        }
+        for(Path child : children.attributes().getHidden()) {
+            index.put(child.getReference(), reference);
+        }
+        if(null == previous) {
+            return null;
+        }
+        return previous.children;
+    }
+
+    /**
+     * Remove children of listing from index unless already indexed for another listing
+     */
+    private void unindex(final PathReference reference, final AttributedList<Path> children) {
+        for(Path child : children) {
+            index.remove(child.getReference(), reference);
+        }
+        for(Path child : children.attributes().getHidden()) {
+            index.remove(child.getReference(), reference);
+        }
     }
 
     /**
@@ -117,7 +216,20 @@ public class Cache {
      * @see ch.cyberduck.core.Cache
      */
     public boolean isCached(final PathReference reference) {
-        return this.containsKey(reference) && !this.get(reference).attributes().isInvalid();
+        final Entry entry = this.segment(reference).get(reference);
+        if(null == entry) {
+            return false;
+        }
+        if(entry.children.attributes().isInvalid()) {
+            return false;
+        }
+        if(ttl >= 0 && System.currentTimeMillis() - entry.timestamp > ttl) {
+            if(log.isDebugEnabled()) {
+                log.debug(String.format("Cached listing for %s expired", reference));
+            }
+            return false;
+        }
+        return true;
     }
 
     /**
@@ -129,6 +241,20 @@ public class Cache {
         }
     }
 
+    /**
+     * @return Number of lookups of a cached listing or file found in cache
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return Number of lookups of a cached listing or file not found in cache
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
     /**
      * Clear all cached directory listings
      */
@@ -136,6 +262,88 @@ public class Cache {
         if(log.isInfoEnabled()) {
             log.info(String.format("Clearing cache %s", this.toString()));
         }
-        _impl.clear();
+        for(Segment segment : segments) {
+            segment.clear();
+        }
+        index.clear();
+    }
+
+    /**
+     * Cached listing with the time it was added
+     */
+    private static final class Entry {
+        private final AttributedList<Path> children;
+        private final long timestamp;
+
+        /**
+         * Number of files in listing when added
+         */
+        private final long weight;
+
+        private Entry(final AttributedList<Path> children) {
+            this.children = children;
+            this.timestamp = System.currentTimeMillis();
+            this.weight = 1 + children.size() + children.attributes().getHidden().size();
+        }
+    }
+
+    /**
+     * Listings ordered by access with a limit on the number of listings and their total weight
+     */
+    private static final class Segment {
+        private final int size;
+        private final long limit;
+
+        private long weight;
+
+        private final LinkedHashMap<PathReference, Entry> entries
+                = new LinkedHashMap<PathReference, Entry>(16, 0.75f, true);
+
+        private Segment(final int size, final long limit) {
+            this.size = size;
+            this.limit = limit;
+        }
+
+        private synchronized Entry get(final PathReference reference) {
+            return entries.get(reference);
+        }
+
+        private synchronized Entry put(final PathReference reference, final Entry entry,
+                                       final List<Map.Entry<PathReference, Entry>> evicted) {
+            final Entry previous = entries.put(reference, entry);
+            if(null != previous) {
+                weight -= previous.weight;
+            }
+            weight += entry.weight;
+            final Iterator<Map.Entry<PathReference, Entry>> iter = entries.entrySet().iterator();
+            while(iter.hasNext() && (entries.size() > size || weight > limit)) {
+                final Map.Entry<PathReference, Entry> eldest = iter.next();
+                if(eldest.getValue() == entry) {
+                    // Keep listing just added
+                    continue;
+                }
+                weight -= eldest.getValue().weight;
+                evicted.add(new AbstractMap.SimpleImmutableEntry<PathReference, Entry>(eldest.getKey(), eldest.getValue()));
+                iter.remove();
+            }
+            return previous;
+        }
+
+        private synchronized Entry remove(final PathReference reference) {
+            final Entry entry = entries.remove(reference);
+            if(null != entry) {
+                weight -= entry.weight;
+            }
+            return entry;
+        }
+
+        private synchronized boolean isEmpty() {
+            return entries.isEmpty();
+        }
+
+        private synchronized void clear() {
+            entries.clear();
+            weight = 0;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,137 @@
+package ch.cyberduck.core;
+
+/*
+ * Copyright (c) 2002-2013 David Kocher. All rights reserved.
+ * http://cyberduck.ch/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * Bug fixes, suggestions and comments should be sent to:
+ * dkocher@cyberduck.ch
+ */
+
+import ch.cyberduck.core.threading.ParallelExecutor;
+
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Delete files and directories with their contents using additional connections from a pool. The directory
+ * tree is listed with the originating session while files are deleted concurrently. Directories are removed
+ * when all files are deleted starting with the deepest level, again concurrently for all directories of a level.
+ *
+ * @version $Id$
+ */
+public class ConcurrentDelete {
+    private static final Logger log = Logger.getLogger(ConcurrentDelete.class);
+
+    private final Session session;
+
+    private final SessionPool pool;
+
+    /**
+     * Directories to remove by depth in tree
+     */
+    private final List<List<Path>> directories
+            = new ArrayList<List<Path>>();
+
+    /**
+     * @param session     Session to list directories with
+     * @param connections Number of additional connections to delete files with
+     */
+    public ConcurrentDelete(final Session session, final int connections) {
+        this.session = session;
+        this.pool = new SessionPool(session, connections);
+    }
+
+    /**
+     * @param files Files and directories to delete
+     */
+    public void delete(final List<Path> files) {
+        try {
+            final ParallelExecutor executor = new ParallelExecutor("delete", pool.getSize());
+            try {
+                for(Path file : files) {
+                    this.walk(file, 0, executor);
+                }
+                executor.await();
+            }
+            finally {
+                executor.shutdown();
+            }
+            for(int depth = directories.size() - 1; depth >= 0; depth--) {
+                final ParallelExecutor level = new ParallelExecutor("delete", pool.getSize());
+                try {
+                    for(Path directory : directories.get(depth)) {
+                        this.submit(directory, level);
+                    }
+                    level.await();
+                }
+                finally {
+                    level.shutdown();
+                }
+            }
+        }
+        catch(IOException e) {
+            log.warn(String.format("Delete failed:%s", e.getMessage()));
+            session.error(e.getMessage(), e);
+        }
+        finally {
+            pool.close();
+        }
+    }
+
+    /**
+     * Submit files for deletion and remember directories to remove later
+     */
+    private void walk(final Path file, final int depth, final ParallelExecutor executor) throws IOException {
+        if(!session.isConnected()) {
+            throw new ConnectionCanceledException();
+        }
+        if(file.attributes().isDirectory() && !file.attributes().isSymbolicLink()) {
+            for(Path child : file.children()) {
+                this.walk(child, depth + 1, executor);
+            }
+            while(directories.size() <= depth) {
+                directories.add(new ArrayList<Path>());
+            }
+            directories.get(depth).add(file);
+        }
+        else {
+            this.submit(file, executor);
+        }
+    }
+
+    private void submit(final Path file, final ParallelExecutor executor) throws IOException {
+        executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+                final Session connection = pool.borrow();
+                try {
+                    final Path copy = PathFactory.createPath(connection, file);
+                    if(copy.attributes().isDirectory()) {
+                        // Contents deleted already
+                        connection.cache().put(copy.getReference(), new AttributedList<Path>());
+                    }
+                    copy.delete();
+                }
+                finally {
+                    pool.release(connection);
+                }
+                return null;
+            }
+        });
+    }
+}
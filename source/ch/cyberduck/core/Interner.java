@@ -0,0 +1,60 @@
+package ch.cyberduck.core;
+
+/*
+ * Copyright (c) 2002-2013 David Kocher. All rights reserved.
+ * http://cyberduck.ch/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * Bug fixes, suggestions and comments should be sent to:
+ * dkocher@cyberduck.ch
+ */
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Canonical instances of strings repeated across many paths such as parent directories, owner and group.
+ * Unlike {@link String#intern()} entries are weakly referenced and discarded when no longer used by any path.
+ *
+ * @version $Id$
+ */
+final class Interner {
+
+    private static final Map<String, WeakReference<String>> strings
+            = new WeakHashMap<String, WeakReference<String>>();
+
+    private Interner() {
+        //
+    }
+
+    /**
+     * @param value String
+     * @return Equal instance shared with other callers or null
+     */
+    public static String intern(final String value) {
+        if(null == value) {
+            return null;
+        }
+        synchronized(strings) {
+            final WeakReference<String> reference = strings.get(value);
+            if(null != reference) {
+                final String canonical = reference.get();
+                if(null != canonical) {
+                    return canonical;
+                }
+            }
+            strings.put(value, new WeakReference<String>(value));
+            return value;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package ch.cyberduck.core;
+
+/*
+ * Copyright (c) 2002-2013 David Kocher. All rights reserved.
+ * http://cyberduck.ch/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * Bug fixes, suggestions and comments should be sent to:
+ * dkocher@cyberduck.ch
+ */
+
+import java.util.List;
+
+/**
+ * Notified with the files of a directory listing as they are read from the server.
+ *
+ * @version $Id$
+ */
+public interface ListProgressListener {
+
+    /**
+     * @param list  Files read so far
+     * @param chunk Files added to the listing since the last notification
+     * @throws ConnectionCanceledException Stop reading the listing. The files read so far
+     *                                     are returned with the listing marked as invalid.
+     */
+    void chunk(AttributedList<Path> list, List<Path> chunk) throws ConnectionCanceledException;
+}
@@ -22,6 +22,7 @@ import ch.cyberduck.core.cdn.Distribution;
 import ch.cyberduck.core.i18n.Locale;
 import ch.cyberduck.core.io.BandwidthThrottle;
 import ch.cyberduck.core.io.IOResumeException;
+import ch.cyberduck.core.io.StreamCopier;
 import ch.cyberduck.core.io.ThrottledInputStream;
 import ch.cyberduck.core.io.ThrottledOutputStream;
 import ch.cyberduck.core.local.Local;
@@ -40,8 +41,6 @@ import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -63,15 +62,27 @@ import com.ibm.icu.text.Normalizer;
 public abstract class Path extends AbstractPath implements Serializable {
     private static final Logger log = Logger.getLogger(Path.class);
 
+    private static final Preference<Boolean> NORMALIZE
+            = Preference.bool("path.normalize");
+
+    private static final Preference<Boolean> NORMALIZE_UNICODE
+            = Preference.bool("path.normalize.unicode");
+
     /**
      * To lookup a copy of the path in the cache.
      */
     private PathReference reference;
 
     /**
-     * The absolute remote path
+     * The absolute path of the parent directory without trailing delimiter. Interned to be shared with
+     * all other files in the same directory. Null if the absolute path contains no delimiter.
      */
-    private String path;
+    private String directory;
+
+    /**
+     * The filename relative to the parent directory or the absolute path if there is no parent directory
+     */
+    private String name;
 
     /**
      * Reference to the parent created lazily if needed
@@ -92,7 +103,7 @@ public abstract class Path extends AbstractPath implements Serializable {
         final Deserializer dict = DeserializerFactory.createDeserializer(serialized);
         String pathObj = dict.stringForKey("Remote");
         if(pathObj != null) {
-            this.path = pathObj;
+            this.split(pathObj);
         }
         String localObj = dict.stringForKey("Local");
         if(localObj != null) {
@@ -190,11 +201,26 @@ public abstract class Path extends AbstractPath implements Serializable {
      */
     @Override
     protected void setPath(final String name) {
-        this.path = Path.normalize(name);
+        this.split(Path.normalize(name));
         this.parent = null;
         this.reference = null;
     }
 
+    /**
+     * @param absolute Absolute path to store as parent directory and filename
+     */
+    private void split(final String absolute) {
+        final int index = absolute.lastIndexOf(DELIMITER);
+        if(index < 0) {
+            this.directory = null;
+            this.name = absolute;
+        }
+        else {
+            this.directory = Interner.intern(absolute.substring(0, index));
+            this.name = absolute.substring(index + 1);
+        }
+    }
+
     /**
      * Set reference to parent path.
      *
@@ -237,7 +263,7 @@ public abstract class Path extends AbstractPath implements Serializable {
             return String.valueOf(DELIMITER);
         }
         String normalized = path;
-        if(Preferences.instance().getBoolean("path.normalize")) {
+        if(NORMALIZE.get()) {
             if(absolute) {
                 while(!normalized.startsWith("\\\\") && !normalized.startsWith(String.valueOf(DELIMITER))) {
                     normalized = DELIMITER + normalized;
@@ -300,7 +326,7 @@ public abstract class Path extends AbstractPath implements Serializable {
                 normalized = normalized.substring(0, normalized.length() - 1);
             }
         }
-        if(Preferences.instance().getBoolean("path.normalize.unicode")) {
+        if(NORMALIZE_UNICODE.get()) {
             if(!Normalizer.isNormalized(normalized, Normalizer.NFC, Normalizer.UNICODE_3_2)) {
                 // Canonical decomposition followed by canonical composition (default)
                 normalized = Normalizer.normalize(normalized, Normalizer.NFC, Normalizer.UNICODE_3_2);
@@ -409,15 +435,39 @@ public abstract class Path extends AbstractPath implements Serializable {
     @Override
     public AttributedList<Path> children(final Comparator<? extends AbstractPath> comparator,
                                          final PathFilter<? extends AbstractPath> filter) {
+        return this.children(comparator, filter, new NullListProgressListener());
+    }
+
+    /**
+     * Request a sorted and filtered file listing. A cached listing is returned if possible.
+     *
+     * @param comparator The comparator to sort the listing with
+     * @param filter     The filter to exlude certain files
+     * @param listener   Notified for every chunk read. May cancel the listing.
+     * @return The children of this path or an empty list if it is not accessible for some reason
+     */
+    public AttributedList<Path> children(final Comparator<? extends AbstractPath> comparator,
+                                         final PathFilter<? extends AbstractPath> filter,
+                                         final ListProgressListener listener) {
         final Cache cache = this.getSession().cache();
         if(!cache.isCached(this.getReference())) {
-            cache.put(this.getReference(), this.list());
+            cache.put(this.getReference(), this.list(listener));
         }
         return cache.get(this.getReference()).filter(comparator, filter);
     }
 
     @Override
     public AttributedList<Path> list() {
+        return this.list(new NullListProgressListener());
+    }
+
+    /**
+     * Fetch the directory listing notifying the listener with chunks of files as they are read
+     *
+     * @param listener Notified for every chunk read. May cancel the listing.
+     * @return Directory listing from server. Marked as invalid if canceled by the listener.
+     */
+    public AttributedList<Path> list(final ListProgressListener listener) {
         return this.list(new AttributedList<Path>() {
             @Override
             public boolean add(Path path) {
@@ -435,7 +485,27 @@ public abstract class Path extends AbstractPath implements Serializable {
                 }
                 return true;
             }
-        });
+        }, listener);
+    }
+
+    /**
+     * Protocols not reading the listing in chunks notify the listener once with all files.
+     *
+     * @param children Listing to add files to
+     * @param listener Notified for every chunk read
+     * @return Directory listing from server
+     */
+    protected AttributedList<Path> list(final AttributedList<Path> children, final ListProgressListener listener) {
+        this.list(children);
+        try {
+            listener.chunk(children, children);
+        }
+        catch(ConnectionCanceledException e) {
+            if(log.isDebugEnabled()) {
+                log.debug(String.format("Listing canceled:%s", e.getMessage()));
+            }
+        }
+        return children;
     }
 
     protected abstract AttributedList<Path> list(AttributedList<Path> children);
@@ -531,9 +601,7 @@ public abstract class Path extends AbstractPath implements Serializable {
         if(this.isRoot()) {
             return String.valueOf(DELIMITER);
         }
-        final String abs = this.getAbsolute();
-        int index = abs.lastIndexOf(DELIMITER);
-        return abs.substring(index + 1);
+        return name;
     }
 
     public String getKey() {
@@ -545,7 +613,10 @@ public abstract class Path extends AbstractPath implements Serializable {
      */
     @Override
     public String getAbsolute() {
-        return this.path;
+        if(null == directory) {
+            return name;
+        }
+        return directory + DELIMITER + name;
     }
 
     /**
@@ -650,6 +721,19 @@ public abstract class Path extends AbstractPath implements Serializable {
      */
     public abstract InputStream read(final TransferStatus status) throws IOException;
 
+    /**
+     * Read a byte range of the file. Used for segmented downloads.
+     *
+     * @param offset Position in file to start reading from
+     * @param length Number of bytes to read
+     * @return Stream to read the range from
+     * @throws IOException Read not completed due to a I/O problem
+     * @see Session#isDownloadSegmentable()
+     */
+    public InputStream read(final long offset, final long length) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
     /**
      * @param throttle The bandwidth limit
      * @param listener The stream listener to notify about bytes received and sent
@@ -765,48 +849,7 @@ public abstract class Path extends AbstractPath implements Serializable {
     protected void transfer(final InputStream in, final OutputStream out,
                             final StreamListener listener, final long limit,
                             final TransferStatus status) throws IOException {
-        final BufferedInputStream bi = new BufferedInputStream(in);
-        final BufferedOutputStream bo = new BufferedOutputStream(out);
-        try {
-            final int chunksize = Preferences.instance().getInteger("connection.chunksize");
-            final byte[] chunk = new byte[chunksize];
-            long bytesTransferred = 0;
-            while(!status.isCanceled()) {
-                final int read = bi.read(chunk, 0, chunksize);
-                if(-1 == read) {
-                    if(log.isDebugEnabled()) {
-                        log.debug("End of file reached");
-                    }
-                    // End of file
-                    status.setComplete();
-                    break;
-                }
-                else {
-                    status.addCurrent(read);
-                    listener.bytesReceived(read);
-                    bo.write(chunk, 0, read);
-                    listener.bytesSent(read);
-                    bytesTransferred += read;
-                    if(limit == bytesTransferred) {
-                        if(log.isDebugEnabled()) {
-                            log.debug(String.format("Limit %d reached reading from stream", limit));
-                        }
-                        // Part reached
-                        if(0 == bi.available()) {
-                            // End of file
-                            status.setComplete();
-                        }
-                        break;
-                    }
-                }
-            }
-        }
-        finally {
-            bo.flush();
-        }
-        if(status.isCanceled()) {
-            throw new ConnectionCanceledException("Interrupted transfer");
-        }
+        new StreamCopier(status, listener).transfer(in, out, limit);
     }
 
     public void copy(AbstractPath copy, final TransferStatus status) {
@@ -56,6 +56,9 @@ public class PathAttributes extends Attributes implements Serializable {
      */
     private long created = -1;
 
+    /**
+     * Interned as shared by most files of a listing
+     */
     private String owner;
     private String group;
 
@@ -65,15 +68,30 @@ public class PathAttributes extends Attributes implements Serializable {
     private int type = Path.FILE_TYPE;
 
     /**
+     * Permission bits instead of an instance with arrays for owner, group and others.
+     * Negative if not read.
+     *
      * @see ch.cyberduck.core.Path#readUnixPermission()
      */
-    private Permission permission = Permission.EMPTY;
+    private int mode = -1;
 
     /**
+     * Shared empty instance unless set
+     *
      * @see ch.cyberduck.core.Path#readAcl() ()
      */
     private Acl acl = Acl.EMPTY;
 
+    /**
+     * Permission read from the file on the server and not set from a local file
+     */
+    private boolean permissionRead;
+
+    /**
+     * ACL read from the file on the server
+     */
+    private boolean aclRead;
+
     /**
      * MD5 checksum
      */
@@ -119,12 +137,11 @@ public class PathAttributes extends Attributes implements Serializable {
     private boolean placeholder;
 
     /**
-     * HTTP headers.
+     * HTTP headers. Shared empty map unless set.
      */
-    private Map<String, String> metadata;
+    private Map<String, String> metadata = Collections.emptyMap();
 
     public PathAttributes(int filetype) {
-        metadata = Collections.emptyMap();
         type = filetype;
     }
 
@@ -144,14 +161,13 @@ public class PathAttributes extends Attributes implements Serializable {
         }
         Object permissionObj = dict.objectForKey("Permission");
         if(permissionObj != null) {
-            permission = new Permission(permissionObj);
+            this.setPermission(new Permission(permissionObj));
         }
         versionId = dict.stringForKey("Version");
         String duplicateObj = dict.stringForKey("Duplicate");
         if(duplicateObj != null) {
             duplicate = Boolean.valueOf(duplicateObj);
         }
-        metadata = Collections.emptyMap();
     }
 
     @Override
@@ -164,8 +180,8 @@ public class PathAttributes extends Attributes implements Serializable {
         if(modified != -1) {
             dict.setStringForKey(String.valueOf(modified), "Modified");
         }
-        if(permission != Permission.EMPTY) {
-            dict.setObjectForKey(permission, "Permission");
+        if(mode != -1) {
+            dict.setObjectForKey(this.getPermission(), "Permission");
         }
         if(StringUtils.isNotBlank(versionId)) {
             dict.setStringForKey(versionId, "Version");
@@ -229,15 +245,23 @@ public class PathAttributes extends Attributes implements Serializable {
      * @param p UNIX permissions
      */
     public void setPermission(Permission p) {
-        this.permission = p;
+        if(null == p || Permission.EMPTY == p) {
+            this.mode = -1;
+        }
+        else {
+            this.mode = p.getMode();
+        }
     }
 
     /**
-     * @return UNIX permissions
+     * @return UNIX permissions. A new instance for every call unless not set.
      */
     @Override
     public Permission getPermission() {
-        return this.permission;
+        if(-1 == mode) {
+            return Permission.EMPTY;
+        }
+        return Permission.forMode(mode);
     }
 
     public Acl getAcl() {
@@ -245,7 +269,12 @@ public class PathAttributes extends Attributes implements Serializable {
     }
 
     public void setAcl(Acl acl) {
-        this.acl = acl;
+        if(null == acl || acl.isEmpty()) {
+            this.acl = Acl.EMPTY;
+        }
+        else {
+            this.acl = acl;
+        }
     }
 
     public void setType(int type) {
@@ -279,7 +308,7 @@ public class PathAttributes extends Attributes implements Serializable {
     }
 
     public void setOwner(String o) {
-        this.owner = o;
+        this.owner = Interner.intern(o);
     }
 
     /**
@@ -294,7 +323,7 @@ public class PathAttributes extends Attributes implements Serializable {
     }
 
     public void setGroup(String g) {
-        this.group = g;
+        this.group = Interner.intern(g);
     }
 
     /**
@@ -336,7 +365,7 @@ public class PathAttributes extends Attributes implements Serializable {
      * @param redundancy Storage redundancy identifier.
      */
     public void setStorageClass(String redundancy) {
-        this.storageClass = redundancy;
+        this.storageClass = Interner.intern(redundancy);
     }
 
     public String getEncryption() {
@@ -344,7 +373,7 @@ public class PathAttributes extends Attributes implements Serializable {
     }
 
     public void setEncryption(String encryption) {
-        this.encryption = encryption;
+        this.encryption = Interner.intern(encryption);
     }
 
     /**
@@ -400,9 +429,36 @@ public class PathAttributes extends Attributes implements Serializable {
     }
 
     public void setMetadata(Map<String, String> metadata) {
-        this.metadata = metadata;
+        if(null == metadata || metadata.isEmpty()) {
+            this.metadata = Collections.emptyMap();
+        }
+        else {
+            this.metadata = metadata;
+        }
+    }
+
+
+    /**
+     * @return True if the permission is known to be read from the server
+     */
+    public boolean isPermissionRead() {
+        return permissionRead;
     }
 
+    public void setPermissionRead(boolean permissionRead) {
+        this.permissionRead = permissionRead;
+    }
+
+    /**
+     * @return True if the ACL is known to be read from the server
+     */
+    public boolean isAclRead() {
+        return aclRead;
+    }
+
+    public void setAclRead(boolean aclRead) {
+        this.aclRead = aclRead;
+    }
 
     public boolean isPlaceholder() {
         return placeholder;
@@ -437,6 +493,8 @@ public class PathAttributes extends Attributes implements Serializable {
         if(permissions) {
             this.setPermission(Permission.EMPTY);
             this.setAcl(Acl.EMPTY);
+            this.setPermissionRead(false);
+            this.setAclRead(false);
         }
         if(metadata) {
             this.setMetadata(Collections.<String, String>emptyMap());
@@ -467,7 +525,8 @@ public class PathAttributes extends Attributes implements Serializable {
         if(etag != null ? !etag.equals(that.etag) : that.etag != null) {
             return false;
         }
-        if(permission != null ? !permission.equals(that.permission) : that.permission != null) {
+        if(Math.max(mode, 0) != Math.max(that.mode, 0)) {
+            // Not set is equal to no permissions
             return false;
         }
         if(versionId != null ? !versionId.equals(that.versionId) : that.versionId != null) {
@@ -481,7 +540,7 @@ public class PathAttributes extends Attributes implements Serializable {
         int result = (int) (size ^ (size >>> 32));
         result = 31 * result + (int) (modified ^ (modified >>> 32));
         result = 31 * result + type;
-        result = 31 * result + (permission != null ? permission.hashCode() : 0);
+        result = 31 * result + Math.max(mode, 0);
         result = 31 * result + (checksum != null ? checksum.hashCode() : 0);
         result = 31 * result + (etag != null ? etag.hashCode() : 0);
         result = 31 * result + (versionId != null ? versionId.hashCode() : 0);
@@ -275,4 +275,17 @@ public abstract class PathFactory<S extends Session> {
     public static <S extends Session, T> Path createPath(S session, T dict) {
         return factories.get(session.getHost().getProtocol()).create(session, dict);
     }
+
+    /**
+     * @param session Session to bind the copy to
+     * @param file    File to copy path, attributes and local reference from
+     * @return Copy of the file to be used with another connection to the same host
+     */
+    public static <S extends Session> Path createPath(S session, Path file) {
+        final Path copy = createPath(session, file.getAbsolute(), file.attributes().getType());
+        copy.setAttributes(file.attributes());
+        copy.setLocal(file.getLocal());
+        copy.setSymlinkTarget(file.symlink);
+        return copy;
+    }
 }
\ No newline at end of file
@@ -379,6 +379,34 @@ public class Permission implements Serializable {
         return u + g + o;
     }
 
+    /**
+     * @return Permission bits as in the mode of stat(2), i.e. 0755 for rwxr-xr-x
+     */
+    public int getMode() {
+        return this.getBits(this.getOwnerPermissions()) << 6
+                | this.getBits(this.getGroupPermissions()) << 3
+                | this.getBits(this.getOtherPermissions());
+    }
+
+    /**
+     * @param mode Permission bits as in the mode of stat(2), i.e. 0755 for rwxr-xr-x
+     * @return Permission with read, write and execute flags of owner, group and others set
+     */
+    public static Permission forMode(final int mode) {
+        final boolean[][] p = new boolean[3][3];
+        for(int i = OWNER; i <= OTHER; i++) {
+            final int bits = mode >> (6 - 3 * i);
+            p[i][READ] = (bits & 4) != 0;
+            p[i][WRITE] = (bits & 2) != 0;
+            p[i][EXECUTE] = (bits & 1) != 0;
+        }
+        return new Permission(p);
+    }
+
+    private int getBits(boolean[] permissions) {
+        return (permissions[READ] ? 4 : 0) | (permissions[WRITE] ? 2 : 0) | (permissions[EXECUTE] ? 1 : 0);
+    }
+
     /**
      * @param permissions Array of permissions
      * @return 0 = no permissions whatsoever; this person cannot read, write, or execute the file
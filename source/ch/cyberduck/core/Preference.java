@@ -0,0 +1,137 @@
+package ch.cyberduck.core;
+
+/*
+ * Copyright (c) 2002-2013 David Kocher. All rights reserved.
+ * http://cyberduck.ch/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * Bug fixes, suggestions and comments should be sent to:
+ * dkocher@cyberduck.ch
+ */
+
+/**
+ * Typed accessor for a single property to be kept in a constant. The value is read from the preferences
+ * once and returned without lookup until any property is changed.
+ *
+ * @version $Id$
+ */
+public abstract class Preference<T> {
+
+    /**
+     * @param property Property name
+     * @return Accessor for boolean value
+     */
+    public static Preference<Boolean> bool(final String property) {
+        return new Preference<Boolean>(property) {
+            @Override
+            protected Boolean read(final Preferences preferences) {
+                return preferences.getBoolean(property);
+            }
+        };
+    }
+
+    /**
+     * @param property Property name
+     * @return Accessor for integer value
+     */
+    public static Preference<Integer> integer(final String property) {
+        return new Preference<Integer>(property) {
+            @Override
+            protected Integer read(final Preferences preferences) {
+                return preferences.getInteger(property);
+            }
+        };
+    }
+
+    /**
+     * @param property Property name
+     * @return Accessor for long value
+     */
+    public static Preference<Long> number(final String property) {
+        return new Preference<Long>(property) {
+            @Override
+            protected Long read(final Preferences preferences) {
+                return preferences.getLong(property);
+            }
+        };
+    }
+
+    /**
+     * @param property Property name
+     * @return Accessor for float value
+     */
+    public static Preference<Float> decimal(final String property) {
+        return new Preference<Float>(property) {
+            @Override
+            protected Float read(final Preferences preferences) {
+                return preferences.getFloat(property);
+            }
+        };
+    }
+
+    /**
+     * @param property Property name
+     * @return Accessor for string value
+     */
+    public static Preference<String> string(final String property) {
+        return new Preference<String>(property) {
+            @Override
+            protected String read(final Preferences preferences) {
+                return preferences.getProperty(property);
+            }
+        };
+    }
+
+    private final String property;
+
+    private volatile Value<T> value;
+
+    protected Preference(final String property) {
+        this.property = property;
+    }
+
+    /**
+     * @return Current value
+     */
+    public T get() {
+        final Preferences preferences = Preferences.instance();
+        final long generation = preferences.generation();
+        final Value<T> cached = value;
+        if(null != cached && cached.generation == generation) {
+            return cached.value;
+        }
+        final T read = this.read(preferences);
+        value = new Value<T>(generation, read);
+        return read;
+    }
+
+    protected abstract T read(Preferences preferences);
+
+    public String getProperty() {
+        return property;
+    }
+
+    @Override
+    public String toString() {
+        return property;
+    }
+
+    private static final class Value<T> {
+        private final long generation;
+        private final T value;
+
+        private Value(final long generation, final T value) {
+            this.generation = generation;
+            this.value = value;
+        }
+    }
+}
@@ -27,11 +27,13 @@ import org.slf4j.bridge.SLF4JBridgeHandler;
 
 import java.security.Security;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Handler;
 import java.util.logging.LogManager;
 
@@ -45,7 +47,7 @@ import java.util.logging.LogManager;
 public abstract class Preferences {
     private static final Logger log = Logger.getLogger(Preferences.class);
 
-    private static Preferences current = null;
+    private static volatile Preferences current = null;
 
     protected Map<String, String> defaults
             = new HashMap<String, String>();
@@ -64,15 +66,46 @@ public abstract class Preferences {
      * @return The singleton instance of me.
      */
     public static Preferences instance() {
-        synchronized(lock) {
-            if(null == current) {
-                current = PreferencesFactory.createPreferences();
-                current.load();
-                current.setDefaults();
-                current.post();
+        // No lock once initialized
+        Preferences preferences = current;
+        if(null == preferences) {
+            synchronized(lock) {
+                preferences = current;
+                if(null == preferences) {
+                    preferences = PreferencesFactory.createPreferences();
+                    preferences.load();
+                    preferences.setDefaults();
+                    preferences.invalidate();
+                    preferences.post();
+                    current = preferences;
+                }
             }
-            return current;
         }
+        return preferences;
+    }
+
+    /**
+     * Parsed values of properties read since the last change
+     */
+    private final AtomicReference<Snapshot> snapshot
+            = new AtomicReference<Snapshot>(new Snapshot(0L));
+
+    /**
+     * Discard parsed values. Must be called by implementations whenever a property is changed.
+     */
+    protected void invalidate() {
+        Snapshot previous;
+        do {
+            previous = snapshot.get();
+        }
+        while(!snapshot.compareAndSet(previous, new Snapshot(previous.generation + 1)));
+    }
+
+    /**
+     * @return Number incremented when any property is changed
+     */
+    long generation() {
+        return snapshot.get().generation;
     }
 
     /**
@@ -216,11 +249,41 @@ public abstract class Preferences {
         defaults.put("local.symboliclink.resolve", String.valueOf(false));
         defaults.put("local.normalize.unicode", String.valueOf(true));
         defaults.put("local.list.native", String.valueOf(true));
+        /**
+         * Maximum number of checksums of local files remembered
+         */
+        defaults.put("local.checksum.cache.size", String.valueOf(100000));
+        /**
+         * Only remember checksums of files not modified within the last milliseconds to account
+         * for the resolution of modification dates of the filesystem
+         */
+        defaults.put("local.checksum.cache.granularity", String.valueOf(2000));
+        /**
+         * Number of threads computing checksums of local files. Defaults to the number of processors if 0
+         */
+        defaults.put("local.checksum.threads", String.valueOf(0));
+        /**
+         * Maximum number of local files read concurrently to compute checksums
+         */
+        defaults.put("local.checksum.io", String.valueOf(2));
+        /**
+         * Buffer size in bytes for each thread reading files to compute checksums
+         */
+        defaults.put("local.checksum.buffer", String.valueOf(1024 * 1024));
 
         /**
          * Maximum number of directory listings to cache using a most recently used implementation
          */
         defaults.put("browser.cache.size", String.valueOf(1000));
+        /**
+         * Maximum number of files in all cached directory listings
+         */
+        defaults.put("browser.cache.weight", String.valueOf(500000));
+        /**
+         * Milliseconds after which a cached directory listing is refreshed or -1 to keep until
+         * invalidated. Can be set per protocol with <code>{protocol}.cache.ttl</code>.
+         */
+        defaults.put("browser.cache.ttl", String.valueOf(-1));
         defaults.put("transfer.cache.size", String.valueOf(50));
         defaults.put("icon.cache.size", String.valueOf(50));
 
@@ -362,6 +425,45 @@ public abstract class Preferences {
          * The maximum number of concurrent transfers
          */
         defaults.put("queue.maxtransfers", String.valueOf(5));
+        /**
+         * The maximum number of connections used for concurrent file transfers within a single transfer.
+         * Further limited by the maximum number of connections allowed for the host.
+         */
+        defaults.put("queue.connections.limit", String.valueOf(1));
+        /**
+         * The maximum number of connections used to delete files concurrently. Further limited by
+         * the maximum number of connections allowed for the host. Not used for cloud storage
+         * deleting files concurrently over the HTTP connection pool and SFTP deleting files
+         * concurrently over the channels of the connection.
+         */
+        defaults.put("delete.connections.limit", String.valueOf(1));
+        /**
+         * Transfer files while directories are still listed instead of calculating the size of
+         * the transfer in advance. Requires an additional connection to the host.
+         */
+        defaults.put("queue.prepare.pipeline", String.valueOf(false));
+        /**
+         * Maximum number of prepared files waiting to be transferred
+         */
+        defaults.put("queue.prepare.pipeline.size", String.valueOf(1000));
+        /**
+         * Read attributes of files to transfer from directory listings and concurrently with additional
+         * connections before preparing the transfer instead of querying each file in turn
+         */
+        defaults.put("queue.prepare.prefetch", String.valueOf(true));
+        /**
+         * Record completed files of transfers in a journal to skip them when resuming an interrupted transfer
+         */
+        defaults.put("queue.journal", String.valueOf(true));
+        /**
+         * Interval in milliseconds to write the transfer journal to disk
+         */
+        defaults.put("queue.journal.interval", String.valueOf(1000));
+        /**
+         * Minimum number of files selected in the same directory to list the directory instead
+         * of querying attributes of each file
+         */
+        defaults.put("queue.prepare.prefetch.list.threshold", String.valueOf(2));
         /**
          * Warning when number of transfers in queue exceeds limit
          */
@@ -429,6 +531,10 @@ public abstract class Preferences {
         defaults.put("queue.download.wherefrom", String.valueOf(true));
 
         defaults.put("queue.sync.compare.hash", String.valueOf(true));
+        /**
+         * Compute the multipart checksum of local files for comparison with the ETag of objects uploaded in parts
+         */
+        defaults.put("queue.sync.compare.hash.multipart", String.valueOf(true));
         defaults.put("queue.sync.compare.size", String.valueOf(false));
 
         defaults.put("queue.dock.badge", String.valueOf(false));
@@ -457,6 +563,14 @@ public abstract class Preferences {
         options.append(100 * TransferStatus.MEGA).append(",");
         defaults.put("queue.bandwidth.options", options.toString());
 
+        /**
+         * Bandwidth throttle shared by all transfers
+         */
+        defaults.put("queue.bandwidth.bytes", String.valueOf(-1));
+        /**
+         * Bandwidth throttle shared by all transfers to the same host
+         */
+        defaults.put("queue.bandwidth.host.bytes", String.valueOf(-1));
         /**
          * Bandwidth throttle upload stream
          */
@@ -472,6 +586,24 @@ public abstract class Preferences {
         defaults.put("queue.download.icon.update", String.valueOf(true));
         defaults.put("queue.download.icon.threshold", String.valueOf(TransferStatus.MEGA * 5));
 
+        /**
+         * Download large files in segments fetched in parallel with multiple connections
+         */
+        defaults.put("queue.download.segments", String.valueOf(false));
+        /**
+         * Minimum file size for segmented downloads
+         */
+        defaults.put("queue.download.segments.threshold", String.valueOf(TransferStatus.MEGA * 100));
+        /**
+         * Number of segments and connections per file. Further limited by the maximum number of
+         * connections allowed for the host.
+         */
+        defaults.put("queue.download.segments.count", String.valueOf(4));
+        /**
+         * Minimum size of a segment
+         */
+        defaults.put("queue.download.segments.size", String.valueOf(TransferStatus.MEGA * 10));
+
         /**
          * Default synchronize action selected in the sync dialog
          */
@@ -484,15 +616,22 @@ public abstract class Preferences {
         defaults.put("http.compression.enable", String.valueOf(true));
 
         /**
-         * HTTP routes to maximum number of connections allowed for those routes
+         * Minimum number of connections for each HTTP route. Raised to the number of connections of a transfer
+         * multiplied with the number of concurrent requests of a session for multipart uploads, copies and deletes.
          */
         defaults.put("http.connections.route", String.valueOf(5));
         /**
-         * Total number of connections in the pool
+         * Minimum total number of connections in the pool shared by all sessions. Raised to the connections
+         * for each route multiplied with the number of concurrent transfers. Also the number of threads
+         * executing uploads
          */
-        defaults.put("http.connections.total", String.valueOf(5));
+        defaults.put("http.connections.total", String.valueOf(20));
         defaults.put("http.manager.timeout", String.valueOf(0)); // Inifinite
         defaults.put("http.socket.buffer", String.valueOf(131072));
+        /**
+         * Size of buffer between reading the local file and writing to the connection for uploads
+         */
+        defaults.put("http.upload.buffer", String.valueOf(1048576));
         defaults.put("http.credentials.charset", "ISO-8859-1");
 
         /**
@@ -511,6 +650,22 @@ public abstract class Preferences {
         defaults.put("ftp.command.stat", String.valueOf(true));
         defaults.put("ftp.command.mlsd", String.valueOf(true));
         defaults.put("ftp.command.utime", String.valueOf(true));
+        /**
+         * Maximum number of files passed to the listener at once when a listing reply is complete
+         */
+        defaults.put("ftp.listing.chunksize", String.valueOf(1000));
+        /**
+         * Number of symbolic link target types remembered per session
+         */
+        defaults.put("ftp.symlink.cache", String.valueOf(1000));
+        /**
+         * Maximum number of connections to determine the type of symbolic link targets with
+         */
+        defaults.put("ftp.symlink.connections", String.valueOf(3));
+        /**
+         * Minimum number of symbolic links to open additional connections for
+         */
+        defaults.put("ftp.symlink.connections.threshold", String.valueOf(50));
 
         /**
          * Fallback to active or passive mode respectively
@@ -524,7 +679,6 @@ public abstract class Preferences {
          */
         defaults.put("ftp.tls.datachannel", "P"); //C
         defaults.put("ftp.tls.session.requirereuse", String.valueOf(true));
-        defaults.put("ftp.ssl.session.cache.size", String.valueOf(100));
 
         /**
          * Try to determine the timezone automatically using timestamp comparison from MLST and LIST
@@ -556,6 +710,39 @@ public abstract class Preferences {
         defaults.put("s3.mfa.serialnumber", StringUtils.EMPTY);
 
         defaults.put("s3.listing.chunksize", String.valueOf(1000));
+        /**
+         * Request details of empty objects without delimiter suffix to detect legacy directory placeholders
+         */
+        defaults.put("s3.listing.placeholder.head", String.valueOf(true));
+        /**
+         * Number of concurrent requests for object details
+         */
+        defaults.put("s3.listing.placeholder.concurrency", String.valueOf(5));
+        /**
+         * Number of objects to remember the placeholder status for
+         */
+        defaults.put("s3.listing.placeholder.cache", String.valueOf(10000));
+        /**
+         * Maximum number of keys in a multi-object delete request
+         */
+        defaults.put("s3.delete.multiple.size", String.valueOf(1000));
+        /**
+         * Number of concurrent delete requests
+         */
+        defaults.put("s3.delete.concurrency", String.valueOf(5));
+        /**
+         * Number of concurrent requests for server side copy of keys and parts
+         */
+        defaults.put("s3.copy.concurrency", String.valueOf(5));
+        /**
+         * Read the ACL of each object copied instead of applying the default ACL
+         */
+        defaults.put("s3.copy.acl.preserve", String.valueOf(true));
+        /**
+         * Copy objects larger than the threshold in parts. Single copy requests are limited to 5 GB.
+         */
+        defaults.put("s3.copy.multipart.threshold", String.valueOf(100L * 1024L * 1024L));
+        defaults.put("s3.copy.multipart.size", String.valueOf(100L * 1024L * 1024L));
 
         /**
          * Show revisions as hidden files in browser
@@ -597,6 +784,10 @@ public abstract class Preferences {
         defaults.put("cf.upload.metadata.md5", String.valueOf(false));
         defaults.put("cf.metadata.default", StringUtils.EMPTY);
         defaults.put("cf.list.limit", String.valueOf(10000));
+        /**
+         * Number of concurrent delete requests
+         */
+        defaults.put("cf.delete.concurrency", String.valueOf(5));
         defaults.put("cf.list.cdn.preload", String.valueOf(true));
 
         //doc	Microsoft Word
@@ -751,11 +942,24 @@ public abstract class Preferences {
         defaults.put("connection.unsecure.switch", String.valueOf(true));
 
         defaults.put("connection.ssl.protocols", "SSLv3, TLSv1");
+        /**
+         * Number of SSL sessions cached for resumption in the context shared by all connections of a session to a host
+         */
+        defaults.put("connection.ssl.session.cache.size", String.valueOf(100));
 
         /**
          * Transfer read buffer size
          */
         defaults.put("connection.chunksize", String.valueOf(32768));
+        /**
+         * Maximum number of idle transfer buffers kept for reuse
+         */
+        defaults.put("connection.chunksize.pool", String.valueOf(64));
+        /**
+         * Minimum number of bytes and milliseconds between progress updates of a transfer
+         */
+        defaults.put("connection.progress.bytes", String.valueOf(TransferStatus.KILO * 256));
+        defaults.put("connection.progress.interval", String.valueOf(100));
 
         defaults.put("disk.unmount.timeout", String.valueOf(2));
 
@@ -775,6 +979,16 @@ public abstract class Preferences {
          * Use the SFTP subsystem or a SCP channel for file transfers over SSH
          */
         defaults.put("ssh.transfer", Protocol.SFTP.getIdentifier()); // Session.SCP
+        /**
+         * Initial and maximum number of read or write requests outstanding for SFTP transfers
+         */
+        defaults.put("sftp.window.requests.min", String.valueOf(4));
+        defaults.put("sftp.window.requests.max", String.valueOf(64));
+        /**
+         * Maximum number of SFTP channels on the connection of a session shared by all threads using the
+         * session. The server may allow less channels (MaxSessions defaults to 10 for OpenSSH)
+         */
+        defaults.put("sftp.channels.max", String.valueOf(10));
 
         defaults.put("ssh.authentication.publickey.default.enable", String.valueOf(false));
         defaults.put("ssh.authentication.publickey.default.rsa", "~/.ssh/id_rsa");
@@ -842,39 +1056,72 @@ public abstract class Preferences {
     public abstract String getProperty(String property);
 
     public int getInteger(String property) {
-        final String v = this.getProperty(property);
-        if(null == v) {
-            return -1;
-        }
-        return Integer.parseInt(v);
+        return (Integer) this.get(property, Snapshot.INTEGER);
     }
 
     public float getFloat(String property) {
-        final String v = this.getProperty(property);
-        if(null == v) {
-            return -1;
-        }
-        return Float.parseFloat(v);
+        return (Float) this.get(property, Snapshot.FLOAT);
     }
 
     public long getLong(String property) {
-        final String v = this.getProperty(property);
-        if(null == v) {
-            return -1;
-        }
-        return Long.parseLong(v);
+        return (Long) this.get(property, Snapshot.LONG);
     }
 
     public double getDouble(String property) {
-        final String v = this.getProperty(property);
-        if(null == v) {
-            return -1;
-        }
-        return Double.parseDouble(v);
+        return (Double) this.get(property, Snapshot.DOUBLE);
     }
 
     public boolean getBoolean(String property) {
-        final String v = this.getProperty(property);
+        return (Boolean) this.get(property, Snapshot.BOOLEAN);
+    }
+
+    /**
+     * Lookup parsed value in snapshot or parse and add to snapshot unless changed in the meantime
+     *
+     * @param property The property to query.
+     * @param type     Index of type
+     * @return Parsed value
+     */
+    private Object get(final String property, final int type) {
+        final Snapshot current = snapshot.get();
+        final Object cached = current.values[type].get(property);
+        if(null != cached) {
+            return cached;
+        }
+        final Object value = this.parse(this.getProperty(property), type);
+        // Discarded if a property was changed while parsing
+        snapshot.compareAndSet(current, current.with(type, property, value));
+        return value;
+    }
+
+    private Object parse(final String v, final int type) {
+        switch(type) {
+            case Snapshot.INTEGER:
+                if(null == v) {
+                    return -1;
+                }
+                return Integer.parseInt(v);
+            case Snapshot.FLOAT:
+                if(null == v) {
+                    return -1f;
+                }
+                return Float.parseFloat(v);
+            case Snapshot.LONG:
+                if(null == v) {
+                    return -1L;
+                }
+                return Long.parseLong(v);
+            case Snapshot.DOUBLE:
+                if(null == v) {
+                    return -1d;
+                }
+                return Double.parseDouble(v);
+            default:
+                return this.parseBoolean(v);
+        }
+    }
+
+    private boolean parseBoolean(final String v) {
         if(null == v) {
             return false;
         }
@@ -890,11 +1137,46 @@ public abstract class Preferences {
         if(v.equalsIgnoreCase(String.valueOf(0))) {
             return false;
         }
-        try {
-            return v.equalsIgnoreCase("yes");
+        return v.equalsIgnoreCase("yes");
+    }
+
+    /**
+     * Immutable parsed values by type. Replaced with a copy including a newly parsed value.
+     */
+    private static final class Snapshot {
+        private static final int INTEGER = 0;
+        private static final int FLOAT = 1;
+        private static final int LONG = 2;
+        private static final int DOUBLE = 3;
+        private static final int BOOLEAN = 4;
+
+        private final long generation;
+
+        private final Map<String, Object>[] values;
+
+        @SuppressWarnings("unchecked")
+        private Snapshot(final long generation) {
+            this.generation = generation;
+            this.values = new Map[BOOLEAN + 1];
+            for(int i = 0; i < values.length; i++) {
+                values[i] = Collections.emptyMap();
+            }
         }
-        catch(NumberFormatException e) {
-            return false;
+
+        private Snapshot(final long generation, final Map<String, Object>[] values) {
+            this.generation = generation;
+            this.values = values;
+        }
+
+        /**
+         * @return Copy of this snapshot with value added
+         */
+        private Snapshot with(final int type, final String property, final Object value) {
+            final Map<String, Object>[] copy = values.clone();
+            final Map<String, Object> map = new HashMap<String, Object>(values[type]);
+            map.put(property, value);
+            copy[type] = map;
+            return new Snapshot(generation, copy);
         }
     }
 
@@ -61,12 +61,7 @@ public abstract class Session implements TranscriptListener {
     /**
      * Caching files listings of previously listed directories
      */
-    private Cache cache = new Cache() {
-        @Override
-        public String toString() {
-            return String.format("Cache for %s", Session.this.toString());
-        }
-    };
+    private Cache cache;
 
     private UseragentProvider ua;
 
@@ -97,6 +92,12 @@ public abstract class Session implements TranscriptListener {
 
     protected Session(Host h) {
         this.host = h;
+        this.cache = new Cache(h.getProtocol()) {
+            @Override
+            public String toString() {
+                return String.format("Cache for %s", Session.this.toString());
+            }
+        };
         this.ua = new PreferencesUseragentProvider();
     }
 
@@ -477,6 +478,15 @@ public abstract class Session implements TranscriptListener {
         //
     }
 
+    /**
+     * @return True if the session can be used by multiple threads at once because every request
+     *         is sent on a channel of its own multiplexed on the connection of the session
+     * @see SessionPool
+     */
+    public boolean isConcurrent() {
+        return false;
+    }
+
     /**
      * Interrupt any running operation asynchroneously by closing the underlying socket.
      * Close the underlying socket regardless of its state; will throw a socket exception
@@ -706,6 +716,41 @@ public abstract class Session implements TranscriptListener {
         return true;
     }
 
+    /**
+     * Content Range support for reading a byte range with a given end
+     *
+     * @return True if segments of a file can be downloaded in parallel
+     * @see Path#read(long, long)
+     */
+    public boolean isDownloadSegmentable() {
+        return false;
+    }
+
+    /**
+     * Delete files and directories including their contents. Files are deleted concurrently
+     * with additional connections if allowed.
+     *
+     * @param files Selected files
+     */
+    public void delete(final List<Path> files) {
+        int connections = Preferences.instance().getInteger("delete.connections.limit");
+        final int max = this.getMaxConnections();
+        if(max > 0) {
+            connections = Math.min(connections, max);
+        }
+        if(connections > 1) {
+            new ConcurrentDelete(this, connections).delete(files);
+        }
+        else {
+            for(Path file : files) {
+                if(!this.isConnected()) {
+                    break;
+                }
+                file.delete();
+            }
+        }
+    }
+
     /**
      * Content Range support
      *
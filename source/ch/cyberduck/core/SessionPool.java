@@ -0,0 +1,256 @@
+package ch.cyberduck.core;
+
+/*
+ * Copyright (c) 2002-2013 David Kocher. All rights reserved.
+ * http://cyberduck.ch/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * Bug fixes, suggestions and comments should be sent to:
+ * dkocher@cyberduck.ch
+ */
+
+import ch.cyberduck.core.threading.BackgroundException;
+
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Pool of additional connections to the host of a session. Sessions are opened lazily
+ * when borrowed and forward progress, transcript and error messages to the originating session.
+ * Sessions that can be used concurrently are not cloned but the originating session is leased
+ * instead to avoid another connection and authentication.
+ *
+ * @version $Id$
+ */
+public class SessionPool {
+    private static final Logger log = Logger.getLogger(SessionPool.class);
+
+    /**
+     * The session to clone connections from
+     */
+    private final Session origin;
+
+    /**
+     * Maximum number of connections in pool
+     */
+    private final int size;
+
+    /**
+     * Connections not currently in use
+     */
+    private final BlockingQueue<Session> idle
+            = new LinkedBlockingQueue<Session>();
+
+    /**
+     * All connections created by this pool
+     */
+    private final List<Session> sessions
+            = new ArrayList<Session>();
+
+    private boolean closed;
+
+    /**
+     * @param origin Session to clone host configuration and credentials from
+     * @param size   Maximum number of connections to open
+     */
+    public SessionPool(final Session origin, final int size) {
+        this.origin = origin;
+        this.size = size;
+    }
+
+    /**
+     * @return Maximum number of connections in pool
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Obtain a connected session from the pool. Blocks until a connection is available
+     * if the maximum number of connections are already in use.
+     *
+     * @return Connected session to be returned using #release
+     * @throws IOException                 Opening the connection failed
+     * @throws ConnectionCanceledException Pool has been closed or interrupted waiting
+     */
+    public Session borrow() throws IOException {
+        Session session = this.next();
+        if(null == session) {
+            try {
+                session = idle.take();
+            }
+            catch(InterruptedException e) {
+                throw new ConnectionCanceledException(e.getMessage(), e);
+            }
+        }
+        return this.check(session);
+    }
+
+    /**
+     * Obtain a connected session from the pool without waiting for a connection in use to be released.
+     *
+     * @return Connected session to be returned using #release or null if all connections are in use
+     * @throws IOException                 Opening the connection failed
+     * @throws ConnectionCanceledException Pool has been closed
+     */
+    public Session poll() throws IOException {
+        final Session session = this.next();
+        if(null == session) {
+            return null;
+        }
+        return this.check(session);
+    }
+
+    /**
+     * @return Idle or new session or null if the maximum number of connections are in use
+     * @throws ConnectionCanceledException Pool has been closed
+     */
+    private Session next() throws ConnectionCanceledException {
+        final Session session = idle.poll();
+        if(null != session) {
+            return session;
+        }
+        synchronized(sessions) {
+            if(closed) {
+                throw new ConnectionCanceledException();
+            }
+            if(sessions.size() < size) {
+                final Session created = this.create();
+                sessions.add(created);
+                return created;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param session Session obtained from pool
+     * @return Connected session
+     * @throws IOException Opening the connection failed. The session is returned to the pool.
+     */
+    private Session check(final Session session) throws IOException {
+        try {
+            // Reconnect if needed
+            session.check();
+        }
+        catch(IOException e) {
+            this.release(session);
+            throw e;
+        }
+        return session;
+    }
+
+    /**
+     * @param session Connection previously obtained with #borrow
+     */
+    public void release(final Session session) {
+        if(log.isDebugEnabled()) {
+            log.debug(String.format("Release %s to pool", session));
+        }
+        idle.offer(session);
+    }
+
+    /**
+     * @return New session with a copy of the host of the originating session
+     */
+    protected Session create() {
+        if(origin.isConcurrent()) {
+            if(log.isDebugEnabled()) {
+                log.debug(String.format("Share connection of %s", origin));
+            }
+            return origin;
+        }
+        if(log.isDebugEnabled()) {
+            log.debug(String.format("Create new connection for %s", origin));
+        }
+        final Host host = new Host(origin.getHost().<Object>getAsDictionary());
+        // Not serialized
+        host.setCredentials(origin.getHost().getCredentials());
+        final Session session = SessionFactory.createSession(host);
+        session.addProgressListener(new ProgressListener() {
+            @Override
+            public void message(final String message) {
+                origin.message(message);
+            }
+        });
+        session.addTranscriptListener(new TranscriptListener() {
+            @Override
+            public void log(final boolean request, final String message) {
+                origin.log(request, message);
+            }
+        });
+        session.addErrorListener(new ErrorListener() {
+            @Override
+            public void error(final BackgroundException exception) {
+                origin.error(exception);
+            }
+        });
+        return session;
+    }
+
+    /**
+     * Interrupt all connections of this pool
+     *
+     * @see Session#interrupt()
+     */
+    public void interrupt() {
+        for(Session session : this.getSessions()) {
+            if(session == origin) {
+                continue;
+            }
+            session.interrupt();
+        }
+    }
+
+    /**
+     * Close all connections of this pool except the originating session. Subsequent calls to #borrow will fail.
+     */
+    public void close() {
+        synchronized(sessions) {
+            closed = true;
+        }
+        for(Session session : this.getSessions()) {
+            if(session == origin) {
+                // Shared with owner of pool
+                continue;
+            }
+            if(session.isConnected()) {
+                session.close();
+            }
+        }
+        idle.clear();
+    }
+
+    /**
+     * @return All sessions opened by this pool
+     */
+    public List<Session> getSessions() {
+        synchronized(sessions) {
+            return new ArrayList<Session>(sessions);
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("SessionPool");
+        sb.append("{origin=").append(origin);
+        sb.append(", size=").append(size);
+        sb.append('}');
+        return sb.toString();
+    }
+}
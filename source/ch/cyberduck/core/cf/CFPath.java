@@ -31,6 +31,7 @@ import ch.cyberduck.core.http.ResponseOutputStream;
 import ch.cyberduck.core.i18n.Locale;
 import ch.cyberduck.core.io.BandwidthThrottle;
 import ch.cyberduck.core.local.Local;
+import ch.cyberduck.core.threading.ParallelExecutor;
 import ch.cyberduck.core.transfer.TransferStatus;
 
 import org.apache.commons.io.IOUtils;
@@ -54,6 +55,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import com.rackspacecloud.client.cloudfiles.FilesContainerInfo;
 import com.rackspacecloud.client.cloudfiles.FilesContainerMetaData;
@@ -300,6 +302,19 @@ public class CFPath extends CloudPath {
         }
     }
 
+    @Override
+    public InputStream read(final long offset, final long length) throws IOException {
+        try {
+            return this.getSession().getClient().getObjectAsRangedStream(this.getContainerName(), this.getKey(),
+                    offset, offset + length - 1);
+        }
+        catch(HttpException e) {
+            IOException failure = new IOException(e.getMessage());
+            failure.initCause(e);
+            throw failure;
+        }
+    }
+
     @Override
     public void download(final BandwidthThrottle throttle, final StreamListener listener,
                          final TransferStatus status) {
@@ -475,12 +490,7 @@ public class CFPath extends CloudPath {
                 this.getSession().getClient().deleteObject(container, this.getKey());
             }
             else if(attributes().isDirectory()) {
-                for(AbstractPath i : this.children()) {
-                    if(!this.getSession().isConnected()) {
-                        break;
-                    }
-                    i.delete();
-                }
+                this.deleteObjects(container);
                 if(this.isContainer()) {
                     this.getSession().getClient().deleteContainer(container);
                 }
@@ -503,6 +513,48 @@ public class CFPath extends CloudPath {
         }
     }
 
+    /**
+     * Delete all objects below this directory found in a single listing not rolled up by delimiter.
+     * Objects are deleted concurrently while the listing is read.
+     *
+     * @param container Container name
+     */
+    private void deleteObjects(final String container) throws IOException, HttpException {
+        final ParallelExecutor executor = new ParallelExecutor("delete",
+                Preferences.instance().getInteger("cf.delete.concurrency"));
+        try {
+            final String prefix = this.isContainer() ? StringUtils.EMPTY : this.getKey() + Path.DELIMITER;
+            final int limit = Preferences.instance().getInteger("cf.list.limit");
+            String marker = null;
+            List<FilesObject> list;
+            do {
+                this.getSession().check();
+                list = this.getSession().getClient().listObjectsStartingWith(container, prefix, null, limit, marker);
+                for(final FilesObject object : list) {
+                    executor.submit(new Callable<Void>() {
+                        @Override
+                        public Void call() throws IOException, HttpException {
+                            try {
+                                getSession().getClient().deleteObject(container, object.getName());
+                            }
+                            catch(FilesNotFoundException e) {
+                                // Deleted in the meantime
+                                log.warn(e.getMessage());
+                            }
+                            return null;
+                        }
+                    });
+                    marker = object.getName();
+                }
+            }
+            while(list.size() == limit);
+            executor.await();
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
     @Override
     public void readMetadata() {
         try {
@@ -162,6 +162,14 @@ public class CFSession extends CloudSession implements DistributionConfiguration
         }
     }
 
+    /**
+     * @return True
+     */
+    @Override
+    public boolean isDownloadSegmentable() {
+        return true;
+    }
+
     /**
      * @return No Content-Range support
      */
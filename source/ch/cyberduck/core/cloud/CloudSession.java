@@ -20,6 +20,7 @@ package ch.cyberduck.core.cloud;
  */
 
 import ch.cyberduck.core.Host;
+import ch.cyberduck.core.Path;
 import ch.cyberduck.core.http.HttpSession;
 
 import org.apache.commons.lang.StringUtils;
@@ -51,6 +52,22 @@ public abstract class CloudSession extends HttpSession {
         return false;
     }
 
+    /**
+     * Directories are deleted with concurrent requests over the connection pool of the HTTP client
+     * and do not need additional sessions.
+     *
+     * @param files Selected files
+     */
+    @Override
+    public void delete(final List<Path> files) {
+        for(Path file : files) {
+            if(!this.isConnected()) {
+                break;
+            }
+            file.delete();
+        }
+    }
+
     public boolean isLoggingSupported() {
         return false;
     }
@@ -296,6 +296,11 @@ public class DAVPath extends HttpPath {
         return this.getSession().getClient().get(this.toURL(), headers);
     }
 
+    @Override
+    public InputStream read(final long offset, final long length) throws IOException {
+        return this.getSession().getClient().get(this.toURL(), offset, length);
+    }
+
     @Override
     public void download(final BandwidthThrottle throttle, final StreamListener listener,
                          final TransferStatus status) {
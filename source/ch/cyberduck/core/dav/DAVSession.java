@@ -26,18 +26,25 @@ import ch.cyberduck.core.LoginController;
 import ch.cyberduck.core.Preferences;
 import ch.cyberduck.core.http.HttpSession;
 import ch.cyberduck.core.i18n.Locale;
+import ch.cyberduck.core.io.IOResumeException;
 
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.impl.client.AbstractHttpClient;
 
 import java.io.IOException;
+import java.io.InputStream;
 
 import com.googlecode.sardine.impl.SardineException;
 import com.googlecode.sardine.impl.SardineImpl;
 import com.googlecode.sardine.impl.handler.VoidResponseHandler;
+import com.googlecode.sardine.impl.io.ConsumingInputStream;
 import com.googlecode.sardine.impl.methods.HttpPropFind;
 
 /**
@@ -60,6 +67,47 @@ public class DAVSession extends HttpSession {
         public <T> T execute(final HttpRequestBase request, final ResponseHandler<T> responseHandler) throws IOException {
             return super.execute(request, responseHandler);
         }
+
+        /**
+         * @param url    Resource
+         * @param offset First byte
+         * @param length Number of bytes
+         * @return Stream of the requested byte range
+         * @throws IOResumeException Server did not respond with the requested range
+         */
+        public InputStream get(final String url, final long offset, final long length) throws IOException {
+            final HttpGet get = new HttpGet(url);
+            get.addHeader(HttpHeaders.RANGE, String.format("bytes=%d-%d", offset, offset + length - 1));
+            final HttpResponse response = this.execute(get);
+            try {
+                new VoidResponseHandler().handleResponse(response);
+                validate(response, offset, length);
+                return new ConsumingInputStream(response);
+            }
+            catch(IOException e) {
+                get.abort();
+                throw e;
+            }
+        }
+
+        /**
+         * @param response Response to range request
+         * @param offset   First byte
+         * @param length   Number of bytes
+         * @throws IOResumeException Range ignored or different range returned
+         */
+        static void validate(final HttpResponse response, final long offset, final long length) throws IOResumeException {
+            if(response.getStatusLine().getStatusCode() != HttpStatus.SC_PARTIAL_CONTENT) {
+                throw new IOResumeException(String.format("Range request not supported. Status %d instead of %d",
+                        response.getStatusLine().getStatusCode(), HttpStatus.SC_PARTIAL_CONTENT));
+            }
+            final Header header = response.getFirstHeader(HttpHeaders.CONTENT_RANGE);
+            final String expected = String.format("bytes %d-%d/", offset, offset + length - 1);
+            if(null == header || !header.getValue().trim().startsWith(expected)) {
+                throw new IOResumeException(String.format("Content range %s instead of %s",
+                        null == header ? null : header.getValue(), expected));
+            }
+        }
     }
 
     @Override
@@ -134,6 +182,11 @@ public class DAVSession extends HttpSession {
         }
     }
 
+    @Override
+    public boolean isDownloadSegmentable() {
+        return true;
+    }
+
     @Override
     public boolean isUnixPermissionsSupported() {
         return false;
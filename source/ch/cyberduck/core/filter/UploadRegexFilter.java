@@ -1,6 +1,7 @@
 package ch.cyberduck.core.filter;
 
 import ch.cyberduck.core.PathFilter;
+import ch.cyberduck.core.Preference;
 import ch.cyberduck.core.Preferences;
 import ch.cyberduck.core.local.Local;
 
@@ -14,6 +15,9 @@ import java.util.regex.Pattern;
 public class UploadRegexFilter implements PathFilter<Local> {
     private static final Logger log = Logger.getLogger(UploadRegexFilter.class);
 
+    private static final Preference<Boolean> SKIP
+            = Preference.bool("queue.upload.skip.enable");
+
     private final Pattern pattern
             = Pattern.compile(Preferences.instance().getProperty("queue.upload.skip.regex"));
 
@@ -22,7 +26,7 @@ public class UploadRegexFilter implements PathFilter<Local> {
         if(file.attributes().isDuplicate()) {
             return false;
         }
-        if(Preferences.instance().getBoolean("queue.upload.skip.enable")) {
+        if(SKIP.get()) {
             if(pattern.matcher(file.getName()).matches()) {
                 if(log.isDebugEnabled()) {
                     log.debug(String.format("Skip %s excluded with regex", file.getAbsolute()));
@@ -19,8 +19,11 @@ package ch.cyberduck.core.ftp;
  * dkocher@cyberduck.ch
  */
 
+import ch.cyberduck.core.ConnectionCanceledException;
 import ch.cyberduck.core.Preferences;
+import ch.cyberduck.core.ssl.SSLContextRegistry;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.net.ftp.FTPCommand;
 import org.apache.commons.net.ftp.FTPReply;
@@ -152,7 +155,6 @@ public class FTPClient extends FTPSClient {
                 // Control socket is SSL
                 final SSLSession session = ((SSLSocket) _socket_).getSession();
                 final SSLSessionContext context = session.getSessionContext();
-                context.setSessionCacheSize(Preferences.instance().getInteger("ftp.ssl.session.cache.size"));
                 try {
                     final Field sessionHostPortCache = context.getClass().getDeclaredField("sessionHostPortCache");
                     sessionHostPortCache.setAccessible(true);
@@ -220,6 +222,9 @@ public class FTPClient extends FTPSClient {
             return;
         }
         super.sslNegotiation();
+        if(_socket_ instanceof SSLSocket) {
+            SSLContextRegistry.instance().handshake(((SSLSocket) _socket_).getSession());
+        }
     }
 
     public List<String> list(final int command) throws IOException {
@@ -227,26 +232,54 @@ public class FTPClient extends FTPSClient {
     }
 
     public List<String> list(final int command, final String pathname) throws IOException {
-        this.pret(this.getCommand(command), pathname);
+        final List<String> results = new ArrayList<String>();
+        if(this.list(command, pathname, new FTPListResponseReader() {
+            @Override
+            public void read(final String line) {
+                results.add(line);
+            }
+        })) {
+            return results;
+        }
+        return Collections.emptyList();
+    }
 
-        Socket socket = _openDataConnection_(command, pathname);
+    /**
+     * Pass each line of the listing to the reader as soon as it is read from the data connection.
+     *
+     * @param command  LIST or MLSD
+     * @param pathname Argument or null
+     * @param reader   Callback for every line
+     * @return False if the command did not complete successfully
+     * @throws ConnectionCanceledException Reader canceled the listing
+     */
+    public boolean list(final int command, final String pathname, final FTPListResponseReader reader) throws IOException {
+        this.pret(this.getCommand(command), pathname);
 
-        BufferedReader reader = new BufferedReader(
+        final Socket socket = _openDataConnection_(command, pathname);
+        if(null == socket) {
+            throw new FTPException(this.getReplyString());
+        }
+        final BufferedReader in = new BufferedReader(
                 new InputStreamReader(socket.getInputStream(), getControlEncoding()));
-        ArrayList<String> results = new ArrayList<String>();
-        String line;
-        while((line = reader.readLine()) != null) {
-            _commandSupport_.fireReplyReceived(-1, line);
-            results.add(line);
+        try {
+            String line;
+            while((line = in.readLine()) != null) {
+                _commandSupport_.fireReplyReceived(-1, line);
+                reader.read(line);
+            }
         }
-
-        reader.close();
-        socket.close();
-
-        if(completePendingCommand()) {
-            return results;
+        catch(ConnectionCanceledException e) {
+            socket.close();
+            // Read reply for aborted data transfer
+            this.completePendingCommand();
+            throw e;
         }
-        return Collections.emptyList();
+        finally {
+            IOUtils.closeQuietly(in);
+            socket.close();
+        }
+        return this.completePendingCommand();
     }
 
     @Override
@@ -0,0 +1,38 @@
+package ch.cyberduck.core.ftp;
+
+/*
+ * Copyright (c) 2002-2013 David Kocher. All rights reserved.
+ * http://cyberduck.ch/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * Bug fixes, suggestions and comments should be sent to:
+ * dkocher@cyberduck.ch
+ */
+
+import ch.cyberduck.core.ConnectionCanceledException;
+
+/**
+ * Receives the lines of a directory listing reply as they are read from the data connection.
+ *
+ * @version $Id$
+ */
+public interface FTPListResponseReader {
+
+    /**
+     * Called while the data connection is open and the final reply not yet read. Must not send
+     * any command on the control connection.
+     *
+     * @param line Line of reply
+     * @throws ConnectionCanceledException Stop reading the reply and abort the data transfer
+     */
+    void read(String line) throws ConnectionCanceledException;
+}
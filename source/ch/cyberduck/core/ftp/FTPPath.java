@@ -20,6 +20,9 @@ package ch.cyberduck.core.ftp;
 
 import ch.cyberduck.core.AbstractPath;
 import ch.cyberduck.core.AttributedList;
+import ch.cyberduck.core.ConnectionCanceledException;
+import ch.cyberduck.core.ListProgressListener;
+import ch.cyberduck.core.NullListProgressListener;
 import ch.cyberduck.core.Path;
 import ch.cyberduck.core.Permission;
 import ch.cyberduck.core.Preferences;
@@ -29,6 +32,7 @@ import ch.cyberduck.core.date.MDTMSecondsDateFormatter;
 import ch.cyberduck.core.date.UserDateFormatterFactory;
 import ch.cyberduck.core.i18n.Locale;
 import ch.cyberduck.core.io.BandwidthThrottle;
+import ch.cyberduck.core.io.IOResumeException;
 import ch.cyberduck.core.local.Local;
 import ch.cyberduck.core.transfer.TransferStatus;
 
@@ -163,6 +167,14 @@ public class FTPPath extends Path {
 
     @Override
     public AttributedList<Path> list(final AttributedList<Path> children) {
+        return this.list(children, new NullListProgressListener());
+    }
+
+    /**
+     * Files are parsed and added to the listing line by line as the reply is read from the data connection.
+     */
+    @Override
+    protected AttributedList<Path> list(final AttributedList<Path> children, final ListProgressListener listener) {
         try {
             this.getSession().check();
             this.getSession().message(MessageFormat.format(Locale.localizedString("Listing directory {0}", "Status"),
@@ -175,29 +187,32 @@ public class FTPPath extends Path {
                 if(this.getSession().isStatListSupportedEnabled()) {
                     int response = this.getSession().getClient().stat(this.getAbsolute());
                     if(FTPReply.isPositiveCompletion(response)) {
-                        String[] reply = this.getSession().getClient().getReplyStrings();
-                        final List<String> result = new ArrayList<String>(reply.length);
-                        for(final String line : reply) {
+                        final ListResponseReader reader = new ListResponseReader(children, listener, parser);
+                        for(final String line : this.getSession().getClient().getReplyStrings()) {
                             //Some servers include the status code for every line.
                             if(line.startsWith(String.valueOf(response))) {
                                 try {
-                                    result.add(line.substring(line.indexOf(response) + line.length() + 1).trim());
+                                    reader.read(line.substring(line.indexOf(response) + line.length() + 1).trim());
                                 }
                                 catch(IndexOutOfBoundsException e) {
                                     log.error(String.format("Failed parsing line %s", line), e);
                                 }
                             }
                             else {
-                                result.add(StringUtils.stripStart(line, null));
+                                reader.read(StringUtils.stripStart(line, null));
                             }
                         }
-                        success = this.parseListResponse(children, parser, result);
+                        reader.flush();
+                        success = reader.isSuccess();
                     }
                     else {
                         this.getSession().setStatListSupportedEnabled(false);
                     }
                 }
             }
+            catch(ConnectionCanceledException e) {
+                throw e;
+            }
             catch(IOException e) {
                 log.warn("Command STAT failed with I/O error:" + e.getMessage());
                 this.getSession().interrupt();
@@ -221,7 +236,7 @@ public class FTPPath extends Path {
                                 // Note that there is no distinct FEAT output for MLSD.
                                 // The presence of the MLST feature indicates that both MLST and MLSD are supported.
                                 && getSession().getClient().isFeatureSupported(FTPCommand.MLST)) {
-                            success = parseMlsdResponse(children, getSession().getClient().list(FTPCommand.MLSD));
+                            success = read(new MlsdResponseReader(children, listener), FTPCommand.MLSD, null);
                             if(!success) {
                                 getSession().setMlsdListSupportedEnabled(false);
                             }
@@ -230,7 +245,7 @@ public class FTPPath extends Path {
                             // MLSD listing failed or not enabled
                             if(getSession().isExtendedListEnabled()) {
                                 try {
-                                    success = parseListResponse(children, parser, getSession().getClient().list(FTPCommand.LIST, "-a"));
+                                    success = read(new ListResponseReader(children, listener, parser), FTPCommand.LIST, "-a");
                                 }
                                 catch(FTPException e) {
                                     getSession().setExtendedListEnabled(false);
@@ -238,35 +253,34 @@ public class FTPPath extends Path {
                             }
                             if(!success) {
                                 // LIST -a listing failed or not enabled
-                                success = parseListResponse(children, parser, getSession().getClient().list(FTPCommand.LIST));
+                                success = read(new ListResponseReader(children, listener, parser), FTPCommand.LIST, null);
                             }
                         }
                         return success;
                     }
                 });
             }
+            final List<Path> symlinks = new ArrayList<Path>();
             for(Path child : children) {
                 if(child.attributes().isSymbolicLink()) {
-                    if(this.getSession().getClient().changeWorkingDirectory(child.getAbsolute())) {
-                        child.attributes().setType(SYMBOLIC_LINK_TYPE | DIRECTORY_TYPE);
-                    }
-                    else {
-                        // Try if CWD to symbolic link target succeeds
-                        if(this.getSession().getClient().changeWorkingDirectory(child.getSymlinkTarget().getAbsolute())) {
-                            // Workdir change succeeded
-                            child.attributes().setType(SYMBOLIC_LINK_TYPE | DIRECTORY_TYPE);
-                        }
-                        else {
-                            child.attributes().setType(SYMBOLIC_LINK_TYPE | FILE_TYPE);
-                        }
-                    }
+                    symlinks.add(child);
                 }
             }
+            this.getSession().getSymlinkResolver().resolve(this, children, symlinks);
+            if(!symlinks.isEmpty()) {
+                // Symbolic links are passed to the listener once their type is known
+                listener.chunk(children, symlinks);
+            }
             if(!success) {
                 // LIST listing failed
                 log.error("No compatible file listing method found");
             }
         }
+        catch(ConnectionCanceledException e) {
+            log.warn(String.format("Listing directory canceled with %d files read:%s", children.size(), e.getMessage()));
+            // Incomplete listing
+            children.attributes().setInvalid(true);
+        }
         catch(IOException e) {
             log.warn("Listing directory failed:" + e.getMessage());
             children.attributes().setReadable(false);
@@ -277,6 +291,109 @@ public class FTPPath extends Path {
         return children;
     }
 
+    /**
+     * Read the reply to a listing command from the data connection
+     *
+     * @param reader   Parser for lines of reply
+     * @param command  MLSD or LIST
+     * @param argument Command argument or null
+     * @return True if parsing is successful
+     */
+    private boolean read(final ResponseReader reader, final int command, final String argument) throws IOException {
+        // Discard files from previous attempt
+        reader.clear();
+        if(!this.getSession().getClient().list(command, argument, reader)) {
+            return false;
+        }
+        // Notify only after the final reply is read from the control connection
+        reader.flush();
+        return reader.isSuccess();
+    }
+
+    /**
+     * Adds a file for every line of a listing reply as it is read. The listener is only notified in chunks
+     * when the reply is read completely and the data connection closed such that the listener can send
+     * commands on the control connection. Symbolic links are not passed to the listener because their type
+     * is only determined when the listing is complete.
+     */
+    private abstract class ResponseReader implements FTPListResponseReader {
+        private final AttributedList<Path> children;
+
+        private final ListProgressListener listener;
+
+        private final int size = Preferences.instance().getInteger("ftp.listing.chunksize");
+
+        private List<Path> chunk = new ArrayList<Path>();
+
+        /**
+         * At least one entry successfully parsed
+         */
+        protected boolean success;
+
+        protected ResponseReader(final AttributedList<Path> children, final ListProgressListener listener) {
+            this.children = children;
+            this.listener = listener;
+        }
+
+        /**
+         * @param line Line of reply
+         * @return Null if the line does not denote a file of the listing
+         */
+        protected abstract Path parse(String line);
+
+        /**
+         * Parse and add to listing without notifying the listener
+         *
+         * @param line Line of reply
+         * @return Null if the line does not denote a file of the listing
+         */
+        public Path add(final String line) {
+            final Path parsed = this.parse(line);
+            if(null == parsed) {
+                return null;
+            }
+            if(!children.add(parsed)) {
+                return null;
+            }
+            return parsed;
+        }
+
+        @Override
+        public void read(final String line) {
+            final Path parsed = this.add(line);
+            if(null == parsed) {
+                return;
+            }
+            if(parsed.attributes().isSymbolicLink()) {
+                return;
+            }
+            chunk.add(parsed);
+        }
+
+        /**
+         * Pass files not yet notified to the listener. Must only be called when the reply is complete.
+         */
+        public void flush() throws ConnectionCanceledException {
+            if(!success) {
+                return;
+            }
+            final List<Path> pending = chunk;
+            chunk = new ArrayList<Path>();
+            for(int i = 0; i < pending.size(); i += size) {
+                listener.chunk(children, new ArrayList<Path>(pending.subList(i, Math.min(pending.size(), i + size))));
+            }
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public void clear() {
+            children.clear();
+            chunk.clear();
+        }
+    }
+
     /**
      * The "facts" for a file in a reply to a MLSx command consist of
      * information about that file.  The facts are a series of keyword=value
@@ -316,9 +433,10 @@ public class FTPPath extends Path {
         return files;
     }
 
+    private static final Pattern FACTS = Pattern.compile("\\s?(\\S+\\=\\S+;)*\\s(.*)");
+
     protected Map<String, Map<String, String>> parseFacts(String line) {
-        final Pattern p = Pattern.compile("\\s?(\\S+\\=\\S+;)*\\s(.*)");
-        final Matcher result = p.matcher(line);
+        final Matcher result = FACTS.matcher(line);
         Map<String, Map<String, String>> file = new HashMap<String, Map<String, String>>();
         if(result.matches()) {
             final String filename = result.group(2);
@@ -349,22 +467,50 @@ public class FTPPath extends Path {
      * @return True if parsing is successful
      */
     protected boolean parseMlsdResponse(final AttributedList<Path> children, List<String> replies) {
+        if(null == replies) {
+            // This is an empty directory
+            return false;
+        }
+        final MlsdResponseReader reader = new MlsdResponseReader(children, new NullListProgressListener());
+        for(String line : replies) {
+            reader.add(line);
+        }
+        return reader.isSuccess();
+    }
 
+    protected boolean parseListResponse(final AttributedList<Path> children,
+                                        final FTPFileEntryParser parser, final List<String> replies) {
         if(null == replies) {
             // This is an empty directory
             return false;
         }
-        boolean success = false; // At least one entry successfully parsed
+        final ListResponseReader reader = new ListResponseReader(children, new NullListProgressListener(), parser);
         for(String line : replies) {
-            final Map<String, Map<String, String>> file = this.parseFacts(line);
+            reader.add(line);
+        }
+        return reader.isSuccess();
+    }
+
+    /**
+     * Parse lines of MLSD reply
+     */
+    private final class MlsdResponseReader extends ResponseReader {
+
+        public MlsdResponseReader(final AttributedList<Path> children, final ListProgressListener listener) {
+            super(children, listener);
+        }
+
+        @Override
+        protected Path parse(final String line) {
+            final Map<String, Map<String, String>> file = parseFacts(line);
             if(null == file) {
                 log.error(String.format("Error parsing line %s", line));
-                continue;
+                return null;
             }
             for(String name : file.keySet()) {
-                final Path parsed = new FTPPath(this.getSession(), this.getAbsolute(),
-                        StringUtils.removeStart(name, this.getAbsolute() + Path.DELIMITER), FILE_TYPE);
-                parsed.setParent(this);
+                final Path parsed = new FTPPath(getSession(), getAbsolute(),
+                        StringUtils.removeStart(name, getAbsolute() + Path.DELIMITER), FILE_TYPE);
+                parsed.setParent(FTPPath.this);
                 // size       -- Size in octets
                 // modify     -- Last modification time
                 // create     -- Creation time
@@ -390,14 +536,14 @@ public class FTPPath extends Path {
                         break;
                     }
                     if(name.contains(String.valueOf(DELIMITER))) {
-                        if(!name.startsWith(this.getAbsolute() + Path.DELIMITER)) {
+                        if(!name.startsWith(getAbsolute() + Path.DELIMITER)) {
                             // Workaround for #2434.
                             log.warn("Skip listing entry with delimiter:" + name);
                             continue;
                         }
                     }
                     if(!success) {
-                        if("dir".equals(facts.get("type").toLowerCase(java.util.Locale.ENGLISH)) && this.getName().equals(name)) {
+                        if("dir".equals(facts.get("type").toLowerCase(java.util.Locale.ENGLISH)) && getName().equals(name)) {
                             log.warn("Possibly bogus response:" + line);
                         }
                         else {
@@ -428,49 +574,59 @@ public class FTPPath extends Path {
                         }
                     }
                     if(facts.containsKey("modify")) {
-                        parsed.attributes().setModificationDate(this.parseTimestamp(facts.get("modify")));
+                        parsed.attributes().setModificationDate(parseTimestamp(facts.get("modify")));
                     }
                     if(facts.containsKey("create")) {
-                        parsed.attributes().setCreationDate(this.parseTimestamp(facts.get("create")));
+                        parsed.attributes().setCreationDate(parseTimestamp(facts.get("create")));
                     }
                     if(facts.containsKey("charset")) {
-                        if(!facts.get("charset").equalsIgnoreCase(this.getSession().getEncoding())) {
+                        if(!facts.get("charset").equalsIgnoreCase(getSession().getEncoding())) {
                             log.error(String.format("Incompatible charset %s but session is configured with %s",
-                                    facts.get("charset"), this.getSession().getEncoding()));
+                                    facts.get("charset"), getSession().getEncoding()));
                         }
                     }
-                    children.add(parsed);
+                    return parsed;
                 }
             }
+            return null;
         }
-        return success;
     }
 
-    protected boolean parseListResponse(final AttributedList<Path> children,
-                                        final FTPFileEntryParser parser, final List<String> replies) {
-        if(null == replies) {
-            // This is an empty directory
-            return false;
+    /**
+     * Parse lines of LIST or STAT reply with the file entry parser of the session
+     */
+    private final class ListResponseReader extends ResponseReader {
+
+        /**
+         * Composite parser remembers the first matching parser for subsequent lines
+         */
+        private final FTPFileEntryParser parser;
+
+        public ListResponseReader(final AttributedList<Path> children, final ListProgressListener listener,
+                                  final FTPFileEntryParser parser) {
+            super(children, listener);
+            this.parser = parser;
         }
-        boolean success = false;
-        for(String line : replies) {
+
+        @Override
+        protected Path parse(final String line) {
             final FTPFile f = parser.parseFTPEntry(line);
             if(null == f) {
-                continue;
+                return null;
             }
             final String name = f.getName();
             if(!success) {
                 // Workaround for #2410. STAT only returns ls of directory itself
                 // Workaround for #2434. STAT of symbolic link directory only lists the directory itself.
-                if(this.getAbsolute().equals(name)) {
+                if(getAbsolute().equals(name)) {
                     log.warn(String.format("Skip %s", f.getName()));
-                    continue;
+                    return null;
                 }
                 if(name.contains(String.valueOf(DELIMITER))) {
-                    if(!name.startsWith(this.getAbsolute() + Path.DELIMITER)) {
+                    if(!name.startsWith(getAbsolute() + Path.DELIMITER)) {
                         // Workaround for #2434.
                         log.warn("Skip listing entry with delimiter:" + name);
-                        continue;
+                        return null;
                     }
                 }
             }
@@ -479,12 +635,12 @@ public class FTPPath extends Path {
                 if(log.isDebugEnabled()) {
                     log.debug(String.format("Skip %s", f.getName()));
                 }
-                continue;
+                return null;
             }
-            final Path parsed = new FTPPath(this.getSession(), this.getAbsolute(),
-                    StringUtils.removeStart(name, this.getAbsolute() + Path.DELIMITER),
+            final Path parsed = new FTPPath(getSession(), getAbsolute(),
+                    StringUtils.removeStart(name, getAbsolute() + Path.DELIMITER),
                     f.getType() == FTPFile.DIRECTORY_TYPE ? DIRECTORY_TYPE : FILE_TYPE);
-            parsed.setParent(this);
+            parsed.setParent(FTPPath.this);
             switch(f.getType()) {
                 case FTPFile.SYMBOLIC_LINK_TYPE:
                     parsed.setSymlinkTarget(f.getLink());
@@ -496,7 +652,7 @@ public class FTPPath extends Path {
             }
             parsed.attributes().setOwner(f.getUser());
             parsed.attributes().setGroup(f.getGroup());
-            if(this.getSession().isPermissionSupported(parser)) {
+            if(getSession().isPermissionSupported(parser)) {
                 parsed.attributes().setPermission(new Permission(
                         new boolean[][]{
                                 {f.hasPermission(FTPFile.USER_ACCESS, FTPFile.READ_PERMISSION),
@@ -518,9 +674,8 @@ public class FTPPath extends Path {
             if(timestamp != null) {
                 parsed.attributes().setModificationDate(timestamp.getTimeInMillis());
             }
-            children.add(parsed);
+            return parsed;
         }
-        return success;
     }
 
     @Override
@@ -873,6 +1028,24 @@ public class FTPPath extends Path {
         };
     }
 
+    /**
+     * The server continues to send the remainder of the file. The data transfer is aborted
+     * when the stream is closed after reading the range.
+     */
+    @Override
+    public InputStream read(final long offset, final long length) throws IOException {
+        final TransferStatus status = new TransferStatus();
+        status.setResume(true);
+        status.setCurrent(offset);
+        status.setLength(offset + length);
+        final InputStream in = this.read(status);
+        if(!status.isResume()) {
+            IOUtils.closeQuietly(in);
+            throw new IOResumeException(String.format("Restart at offset %d not supported", offset));
+        }
+        return in;
+    }
+
     @Override
     public void upload(final BandwidthThrottle throttle, final StreamListener listener,
                        final TransferStatus status) {
@@ -64,8 +64,11 @@ public class FTPSession extends SSLSession {
      */
     private FTPFileEntryParser parser;
 
+    private final FTPSymlinkResolver symlinks;
+
     public FTPSession(Host h) {
         super(h);
+        this.symlinks = new FTPSymlinkResolver(this);
     }
 
     @Override
@@ -76,6 +79,13 @@ public class FTPSession extends SSLSession {
         return client;
     }
 
+    /**
+     * @return Symbolic link resolution remembering the type of targets
+     */
+    protected FTPSymlinkResolver getSymlinkResolver() {
+        return symlinks;
+    }
+
     @Override
     public Path mount() {
         final Path workdir = super.mount();
@@ -344,7 +354,7 @@ public class FTPSession extends SSLSession {
         this.fireConnectionWillOpenEvent();
 
         final CustomTrustSSLProtocolSocketFactory f
-                = new CustomTrustSSLProtocolSocketFactory(this.getTrustManager());
+                = new CustomTrustSSLProtocolSocketFactory(host.getHostname(true), host.getPort(), this.getTrustManager());
 
         this.client = new FTPClient(f, f.getSSLContext());
 
@@ -478,6 +488,18 @@ public class FTPSession extends SSLSession {
         return true;
     }
 
+    @Override
+    public boolean isDownloadSegmentable() {
+        try {
+            // Where a server process supports RESTart in STREAM mode
+            return this.getClient().isFeatureSupported("REST STREAM");
+        }
+        catch(IOException e) {
+            log.warn(String.format("Failure determining REST STREAM support:%s", e.getMessage()));
+            return false;
+        }
+    }
+
     @Override
     public boolean isUploadResumable() {
         return true;
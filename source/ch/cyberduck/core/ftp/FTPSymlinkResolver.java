@@ -0,0 +1,191 @@
+package ch.cyberduck.core.ftp;
+
+/*
+ * Copyright (c) 2002-2013 David Kocher. All rights reserved.
+ * http://cyberduck.ch/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * Bug fixes, suggestions and comments should be sent to:
+ * dkocher@cyberduck.ch
+ */
+
+import ch.cyberduck.core.AbstractPath;
+import ch.cyberduck.core.AttributedList;
+import ch.cyberduck.core.Path;
+import ch.cyberduck.core.Preferences;
+import ch.cyberduck.core.Session;
+import ch.cyberduck.core.SessionPool;
+import ch.cyberduck.core.threading.ParallelExecutor;
+
+import org.apache.commons.collections.map.LRUMap;
+import org.apache.commons.net.ftp.FTPCommand;
+import org.apache.commons.net.ftp.FTPReply;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Determine if symbolic links in a listing point to a file or a directory. The type of the target is
+ * taken from the listing itself if the target is in the same directory or from previous lookups
+ * remembered for the lifetime of the session. Remaining targets are queried with MLST if supported
+ * or by changing the working directory otherwise. Large numbers of lookups are distributed to
+ * additional connections.
+ *
+ * @version $Id$
+ */
+final class FTPSymlinkResolver {
+    private static final Logger log = Logger.getLogger(FTPSymlinkResolver.class);
+
+    private final FTPSession session;
+
+    /**
+     * Type of symbolic link target by absolute path
+     */
+    private final Map<String, Integer> resolved;
+
+    FTPSymlinkResolver(final FTPSession session) {
+        this.session = session;
+        this.resolved = Collections.synchronizedMap(new LRUMap(
+                Preferences.instance().getInteger("ftp.symlink.cache")));
+    }
+
+    /**
+     * @param directory Directory listed
+     * @param children  Files of the directory
+     * @param symlinks  Symbolic links in the listing to set the type for
+     * @throws IOException Failure querying the server
+     */
+    void resolve(final FTPPath directory, final AttributedList<Path> children, final List<Path> symlinks)
+            throws IOException {
+        final List<Path> pending = new ArrayList<Path>();
+        for(Path link : symlinks) {
+            final AbstractPath target = link.getSymlinkTarget();
+            final Integer type = resolved.get(target.getAbsolute());
+            if(null != type) {
+                this.set(link, type);
+                continue;
+            }
+            if(directory.getAbsolute().equals(target.getParent().getAbsolute())) {
+                final Path sibling = children.get(target.getReference());
+                if(null != sibling && !sibling.attributes().isSymbolicLink()) {
+                    this.set(link, sibling.attributes().isDirectory() ? AbstractPath.DIRECTORY_TYPE : AbstractPath.FILE_TYPE);
+                    continue;
+                }
+            }
+            pending.add(link);
+        }
+        if(pending.isEmpty()) {
+            return;
+        }
+        if(log.isDebugEnabled()) {
+            log.debug(String.format("Query type of %d symbolic link targets", pending.size()));
+        }
+        int connections = Preferences.instance().getInteger("ftp.symlink.connections");
+        final int max = session.getMaxConnections();
+        if(max > 0) {
+            connections = Math.min(connections, max);
+        }
+        if(connections > 1 && pending.size() >= Preferences.instance().getInteger("ftp.symlink.connections.threshold")) {
+            pending.removeAll(this.resolve(pending, connections));
+        }
+        for(Path link : pending) {
+            this.set(link, this.query(session, link));
+        }
+    }
+
+    /**
+     * Query symbolic link targets concurrently using additional connections
+     *
+     * @return Symbolic links resolved
+     */
+    private List<Path> resolve(final List<Path> symlinks, final int connections) {
+        final List<Path> done = Collections.synchronizedList(new ArrayList<Path>());
+        final SessionPool pool = new SessionPool(session, connections);
+        final ParallelExecutor executor = new ParallelExecutor("symlink", connections);
+        try {
+            for(final Path link : symlinks) {
+                executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        final Session connection = pool.borrow();
+                        try {
+                            set(link, query((FTPSession) connection, link));
+                            done.add(link);
+                        }
+                        finally {
+                            pool.release(connection);
+                        }
+                        return null;
+                    }
+                });
+            }
+            executor.await();
+        }
+        catch(IOException e) {
+            log.warn(String.format("Failure resolving symbolic links with additional connections:%s", e.getMessage()));
+        }
+        finally {
+            executor.shutdown();
+            pool.close();
+        }
+        return new ArrayList<Path>(done);
+    }
+
+    /**
+     * @param connection Session to send commands with
+     * @param link       Symbolic link
+     * @return Type of the target
+     */
+    private int query(final FTPSession connection, final Path link) throws IOException {
+        final FTPClient client = connection.getClient();
+        final AbstractPath target = link.getSymlinkTarget();
+        if(client.isFeatureSupported(FTPCommand.MLST)) {
+            if(FTPReply.isPositiveCompletion(client.sendCommand(FTPCommand.MLST, target.getAbsolute()))) {
+                final String[] reply = client.getReplyStrings();
+                // Facts are sent in the line between the first and last line of the reply
+                for(int i = 1; i < reply.length - 1; i++) {
+                    final Map<String, Map<String, String>> file = ((FTPPath) link).parseFacts(reply[i]);
+                    if(null == file) {
+                        continue;
+                    }
+                    for(Map<String, String> facts : file.values()) {
+                        final String type = facts.get("type");
+                        if("dir".equalsIgnoreCase(type)) {
+                            return AbstractPath.DIRECTORY_TYPE;
+                        }
+                        if("file".equalsIgnoreCase(type)) {
+                            return AbstractPath.FILE_TYPE;
+                        }
+                    }
+                }
+            }
+        }
+        if(client.changeWorkingDirectory(link.getAbsolute())) {
+            return AbstractPath.DIRECTORY_TYPE;
+        }
+        // Try if CWD to symbolic link target succeeds
+        if(client.changeWorkingDirectory(target.getAbsolute())) {
+            return AbstractPath.DIRECTORY_TYPE;
+        }
+        return AbstractPath.FILE_TYPE;
+    }
+
+    private void set(final Path link, final int type) {
+        link.attributes().setType(AbstractPath.SYMBOLIC_LINK_TYPE | type);
+        resolved.put(link.getSymlinkTarget().getAbsolute(), type);
+    }
+}
@@ -0,0 +1,375 @@
+package ch.cyberduck.core.http;
+
+/*
+ * Copyright (c) 2002-2013 David Kocher. All rights reserved.
+ * http://cyberduck.ch/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * Bug fixes, suggestions and comments should be sent to:
+ * dkocher@cyberduck.ch
+ */
+
+import ch.cyberduck.core.Preferences;
+import ch.cyberduck.core.threading.NamedThreadFactory;
+
+import org.apache.http.HttpHost;
+import org.apache.http.client.protocol.ClientContext;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.ClientConnectionOperator;
+import org.apache.http.conn.ClientConnectionRequest;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ManagedClientConnection;
+import org.apache.http.conn.OperatedClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.impl.conn.DefaultClientConnectionOperator;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.params.HttpParams;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connection pool and worker threads shared by all HTTP sessions. Persistent connections are kept alive and
+ * reused by the session that opened them only because they were verified with the trust manager of that
+ * session. Each session leases connections through its own view of the pool resolving routes with its own
+ * scheme registry for default port and socket factory. Closing the view aborts connections still leased by
+ * the session only.
+ *
+ * @version $Id$
+ */
+public final class HttpConnectionPool {
+    private static final Logger log = Logger.getLogger(HttpConnectionPool.class);
+
+    private static HttpConnectionPool current = null;
+
+    private static final Object lock = new Object();
+
+    /**
+     * @return Process wide pool
+     */
+    public static HttpConnectionPool instance() {
+        synchronized(lock) {
+            if(null == current) {
+                final Preferences preferences = Preferences.instance();
+                // Requests of a single session run concurrently for multipart uploads, copies and deletes
+                final int concurrency = Math.max(1, Math.max(
+                        Math.max(preferences.getInteger("s3.upload.multipart.concurency"),
+                                preferences.getInteger("s3.copy.concurrency")),
+                        Math.max(preferences.getInteger("s3.delete.concurrency"),
+                                preferences.getInteger("cf.delete.concurrency"))));
+                // Sessions of a transfer to the same host share the connections of the route
+                final int route = Math.max(preferences.getInteger("http.connections.route"),
+                        preferences.getInteger("queue.connections.limit") * concurrency);
+                // Concurrent transfers to different hosts
+                final int total = Math.max(preferences.getInteger("http.connections.total"),
+                        route * preferences.getInteger("queue.maxtransfers"));
+                if(log.isInfoEnabled()) {
+                    log.info(String.format("Create connection pool with %d connections for each route and %d total",
+                            route, total));
+                }
+                current = new HttpConnectionPool(total, route);
+            }
+            return current;
+        }
+    }
+
+    private final PoolingClientConnectionManager manager;
+
+    /**
+     * Workers executing requests with streaming entities
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Number of connections leased
+     */
+    private final AtomicLong leases = new AtomicLong();
+
+    /**
+     * Time waited for connections to become available in nanoseconds
+     */
+    private final AtomicLong waited = new AtomicLong();
+
+    /**
+     * @param total Maximum number of connections
+     * @param route Maximum number of connections for each route
+     */
+    public HttpConnectionPool(final int total, final int route) {
+        final SchemeRegistry registry = new SchemeRegistry();
+        registry.register(new Scheme(ch.cyberduck.core.Scheme.http.toString(), 80,
+                PlainSocketFactory.getSocketFactory()));
+        this.manager = new PoolingClientConnectionManager(registry) {
+            @Override
+            protected ClientConnectionOperator createConnectionOperator(final SchemeRegistry schemes) {
+                return new SessionClientConnectionOperator(schemes);
+            }
+        };
+        this.manager.setMaxTotal(total);
+        this.manager.setDefaultMaxPerRoute(route);
+        // Each worker streams to a connection leased from the pool
+        this.executor = new ThreadPoolExecutor(total, total, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new NamedThreadFactory("http"));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @param registry Schemes with default port and socket factory of session
+     * @return View of the shared pool for a session
+     */
+    public ClientConnectionManager create(final SchemeRegistry registry) {
+        return new SessionConnectionManager(registry);
+    }
+
+    /**
+     * Run task in shared worker thread
+     *
+     * @param task Task
+     */
+    public void execute(final Runnable task) {
+        executor.execute(task);
+    }
+
+    /**
+     * @return Connections in use
+     */
+    public int getLeased() {
+        return manager.getTotalStats().getLeased();
+    }
+
+    /**
+     * @return Idle persistent connections
+     */
+    public int getAvailable() {
+        return manager.getTotalStats().getAvailable();
+    }
+
+    /**
+     * @return Requests waiting for a connection
+     */
+    public int getPending() {
+        return manager.getTotalStats().getPending();
+    }
+
+    /**
+     * @return Average time in milliseconds waited for a connection
+     */
+    public long getLeaseWaitTime() {
+        final long count = leases.get();
+        if(0 == count) {
+            return 0L;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(waited.get() / count);
+    }
+
+    /**
+     * Resolve port and socket factory using the schemes of the session leasing the connection
+     */
+    private static final class SessionClientConnectionOperator extends DefaultClientConnectionOperator {
+        public SessionClientConnectionOperator(final SchemeRegistry schemes) {
+            super(schemes);
+        }
+
+        private ClientConnectionOperator delegate(final HttpContext context) {
+            final SchemeRegistry registry = (SchemeRegistry) context.getAttribute(ClientContext.SCHEME_REGISTRY);
+            if(null == registry || registry == schemeRegistry) {
+                return null;
+            }
+            return new DefaultClientConnectionOperator(registry);
+        }
+
+        @Override
+        public void openConnection(final OperatedClientConnection conn, final HttpHost target,
+                                   final InetAddress local, final HttpContext context,
+                                   final HttpParams params) throws IOException {
+            final ClientConnectionOperator delegate = this.delegate(context);
+            if(null == delegate) {
+                super.openConnection(conn, target, local, context, params);
+            }
+            else {
+                delegate.openConnection(conn, target, local, context, params);
+            }
+        }
+
+        @Override
+        public void updateSecureConnection(final OperatedClientConnection conn, final HttpHost target,
+                                           final HttpContext context, final HttpParams params) throws IOException {
+            final ClientConnectionOperator delegate = this.delegate(context);
+            if(null == delegate) {
+                super.updateSecureConnection(conn, target, context, params);
+            }
+            else {
+                delegate.updateSecureConnection(conn, target, context, params);
+            }
+        }
+    }
+
+    /**
+     * Leases connections of a single session from the shared pool
+     */
+    private final class SessionConnectionManager implements ClientConnectionManager {
+        private final SchemeRegistry registry;
+
+        /**
+         * Connections currently leased by this session
+         */
+        private final Set<ManagedClientConnection> leased
+                = Collections.synchronizedSet(new HashSet<ManagedClientConnection>());
+
+        private SessionConnectionManager(final SchemeRegistry registry) {
+            this.registry = registry;
+        }
+
+        @Override
+        public SchemeRegistry getSchemeRegistry() {
+            return registry;
+        }
+
+        /**
+         * Routes without port must not share connections with sessions using a different default port
+         */
+        private HttpRoute resolve(final HttpRoute route) {
+            final HttpHost target = route.getTargetHost();
+            if(target.getPort() >= 0) {
+                return route;
+            }
+            final HttpHost resolved = new HttpHost(target.getHostName(),
+                    registry.getScheme(target).resolvePort(target.getPort()), target.getSchemeName());
+            final List<HttpHost> proxies = new ArrayList<HttpHost>();
+            for(int i = 0; i < route.getHopCount() - 1; i++) {
+                proxies.add(route.getHopTarget(i));
+            }
+            return new HttpRoute(resolved, route.getLocalAddress(), proxies.toArray(new HttpHost[proxies.size()]),
+                    route.isSecure(), route.getTunnelType(), route.getLayerType());
+        }
+
+        @Override
+        public ClientConnectionRequest requestConnection(final HttpRoute route, final Object state) {
+            final SessionState partition = new SessionState(this, state);
+            // Only idle connections with the same state are reused
+            final ClientConnectionRequest request = manager.requestConnection(this.resolve(route), partition);
+            return new ClientConnectionRequest() {
+                @Override
+                public ManagedClientConnection getConnection(final long timeout, final TimeUnit unit)
+                        throws InterruptedException, ConnectionPoolTimeoutException {
+                    final long start = System.nanoTime();
+                    final ManagedClientConnection connection = request.getConnection(timeout, unit);
+                    connection.setState(partition);
+                    waited.addAndGet(System.nanoTime() - start);
+                    leases.incrementAndGet();
+                    leased.add(connection);
+                    if(log.isDebugEnabled()) {
+                        final PoolStats stats = manager.getTotalStats();
+                        log.debug(String.format("Leased connection for %s with %d leased, %d available and %d pending",
+                                route, stats.getLeased(), stats.getAvailable(), stats.getPending()));
+                    }
+                    return connection;
+                }
+
+                @Override
+                public void abortRequest() {
+                    request.abortRequest();
+                }
+            };
+        }
+
+        @Override
+        public void releaseConnection(final ManagedClientConnection connection, final long validDuration,
+                                      final TimeUnit unit) {
+            leased.remove(connection);
+            final Object state = connection.getState();
+            if(!(state instanceof SessionState) || ((SessionState) state).session != this) {
+                // User token set while executing request
+                connection.setState(new SessionState(this, state));
+            }
+            manager.releaseConnection(connection, validDuration, unit);
+        }
+
+        @Override
+        public void closeIdleConnections(final long idletime, final TimeUnit unit) {
+            manager.closeIdleConnections(idletime, unit);
+        }
+
+        @Override
+        public void closeExpiredConnections() {
+            manager.closeExpiredConnections();
+        }
+
+        /**
+         * Abort connections in use by this session. The shared pool is not shut down.
+         */
+        @Override
+        public void shutdown() {
+            final List<ManagedClientConnection> connections;
+            synchronized(leased) {
+                connections = new ArrayList<ManagedClientConnection>(leased);
+            }
+            for(ManagedClientConnection connection : connections) {
+                try {
+                    connection.shutdown();
+                }
+                catch(IOException e) {
+                    log.warn(String.format("Failure closing connection %s", e.getMessage()));
+                }
+            }
+            manager.closeExpiredConnections();
+        }
+    }
+
+    /**
+     * State of pooled connections partitioned by the session that opened them
+     */
+    private static final class SessionState {
+        private final SessionConnectionManager session;
+
+        /**
+         * User token or null
+         */
+        private final Object state;
+
+        private SessionState(final SessionConnectionManager session, final Object state) {
+            this.session = session;
+            this.state = state;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if(this == o) {
+                return true;
+            }
+            if(!(o instanceof SessionState)) {
+                return false;
+            }
+            final SessionState other = (SessionState) o;
+            return session == other.session && (null == state ? null == other.state : state.equals(other.state));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(session) + (null == state ? 0 : state.hashCode());
+        }
+    }
+}
@@ -21,19 +21,19 @@ package ch.cyberduck.core.http;
 
 import ch.cyberduck.core.MappingMimeTypeService;
 import ch.cyberduck.core.Path;
+import ch.cyberduck.core.Preferences;
 import ch.cyberduck.core.local.Local;
 import ch.cyberduck.core.threading.ActionOperationBatcher;
 import ch.cyberduck.core.threading.ActionOperationBatcherFactory;
-import ch.cyberduck.core.threading.NamedThreadFactory;
 
 import org.apache.http.message.BasicHeader;
 import org.apache.http.protocol.HTTP;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
-import java.io.OutputStream;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 /**
  * @version $Id: HttpPath.java 10811 2013-04-07 13:10:06Z dkocher $
@@ -57,22 +57,6 @@ public abstract class HttpPath extends Path {
         super(parent, local);
     }
 
-    private abstract class FutureHttpResponse<T> implements Runnable {
-
-        IOException exception;
-        T response;
-
-        public IOException getException() {
-            return exception;
-        }
-
-        public T getResponse() {
-            return response;
-        }
-    }
-
-    private final ThreadFactory factory = new NamedThreadFactory("http");
-
     /**
      * @param command Callable writing entity to stream and returning checksum
      * @param <T>     Type of returned checksum
@@ -80,80 +64,64 @@ public abstract class HttpPath extends Path {
      * @throws IOException Transport error
      */
     protected <T> ResponseOutputStream<T> write(final DelayedHttpEntityCallable<T> command) throws IOException {
-        /**
-         * Signal on enter streaming
-         */
-        final CountDownLatch entry = new CountDownLatch(1);
-        final CountDownLatch exit = new CountDownLatch(1);
-
-        try {
-            final DelayedHttpEntity entity = new DelayedHttpEntity(entry) {
-                @Override
-                public long getContentLength() {
-                    return command.getContentLength();
+        final PipedHttpEntity entity = new PipedHttpEntity(command.getContentLength(),
+                Preferences.instance().getInteger("http.upload.buffer"));
+        final String type = new MappingMimeTypeService().getMime(this.getName());
+        entity.setContentType(new BasicHeader(HTTP.CONTENT_TYPE, type));
+        final FutureTask<T> response = new FutureTask<T>(new Callable<T>() {
+            @Override
+            public T call() throws IOException {
+                // Need batcher for logging messages up to the interface
+                final ActionOperationBatcher autorelease = ActionOperationBatcherFactory.get();
+                try {
+                    return command.call(entity);
                 }
-            };
-            final String type = new MappingMimeTypeService().getMime(this.getName());
-            entity.setContentType(new BasicHeader(HTTP.CONTENT_TYPE, type));
-            final FutureHttpResponse<T> target = new FutureHttpResponse<T>() {
-                @Override
-                public void run() {
-                    // Need batcher for logging messages up to the interface
-                    final ActionOperationBatcher autorelease = ActionOperationBatcherFactory.get();
-                    try {
-                        response = command.call(entity);
-                    }
-                    catch(IOException e) {
-                        exception = e;
-                    }
-                    finally {
-                        // For zero byte files #writeTo is never called and the entry latch not triggered
-                        entry.countDown();
-                        // Continue reading the response
-                        exit.countDown();
-                        autorelease.operate();
-                    }
+                catch(IOException e) {
+                    entity.fail(e);
+                    throw e;
+                }
+                finally {
+                    // Fail writing content the server will not read anymore
+                    entity.fail(new IOException("Request already completed"));
+                    autorelease.operate();
                 }
-            };
-            final Thread t = factory.newThread(target);
-            t.start();
-            // Wait for output stream to become available
-            entry.await();
-            if(null != target.getException()) {
-                throw target.getException();
             }
-            final OutputStream stream = entity.getStream();
-            return new ResponseOutputStream<T>(stream) {
-                /**
-                 * Only available after this stream is closed.
-                 * @return Response from server for upload
-                 * @throws IOException Transport error
-                 */
-                @Override
-                public T getResponse() throws IOException {
-                    try {
-                        // Block the calling thread until after the full response from the server
-                        // has been consumed.
-                        exit.await();
-                    }
-                    catch(InterruptedException e) {
-                        IOException failure = new IOException(e.getMessage());
-                        failure.initCause(e);
-                        throw failure;
-                    }
-                    if(null != target.getException()) {
-                        throw target.getException();
+        });
+        // Execute request in shared worker thread
+        HttpConnectionPool.instance().execute(response);
+        return new ResponseOutputStream<T>(entity.getStream()) {
+            @Override
+            public void write(final byte[] b, final int off, final int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            /**
+             * Only available after this stream is closed.
+             * @return Response from server for upload
+             * @throws IOException Transport error
+             */
+            @Override
+            public T getResponse() throws IOException {
+                try {
+                    // Block the calling thread until after the full response from the server
+                    // has been consumed.
+                    return response.get();
+                }
+                catch(InterruptedException e) {
+                    IOException failure = new IOException(e.getMessage());
+                    failure.initCause(e);
+                    throw failure;
+                }
+                catch(ExecutionException e) {
+                    if(e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
                     }
-                    return target.getResponse();
+                    IOException failure = new IOException(e.getCause().getMessage());
+                    failure.initCause(e.getCause());
+                    throw failure;
                 }
-            };
-        }
-        catch(InterruptedException e) {
-            log.error("Error waiting for output stream:" + e.getMessage());
-            IOException failure = new IOException(e.getMessage());
-            failure.initCause(e);
-            throw failure;
-        }
+            }
+        };
     }
 
     @Override
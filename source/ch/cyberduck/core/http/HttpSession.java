@@ -46,7 +46,6 @@ import org.apache.http.conn.ssl.SSLSocketFactory;
 import org.apache.http.conn.ssl.X509HostnameVerifier;
 import org.apache.http.impl.client.AbstractHttpClient;
 import org.apache.http.impl.client.DefaultHttpClient;
-import org.apache.http.impl.conn.PoolingClientConnectionManager;
 import org.apache.http.params.BasicHttpParams;
 import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.params.HttpParams;
@@ -114,7 +113,7 @@ public abstract class HttpSession extends SSLSession {
                     PlainSocketFactory.getSocketFactory()));
             registry.register(new Scheme(ch.cyberduck.core.Scheme.https.toString(), host.getPort(),
                     new SSLSocketFactory(
-                            new CustomTrustSSLProtocolSocketFactory(this.getTrustManager()).getSSLContext(),
+                            new CustomTrustSSLProtocolSocketFactory(hostname, host.getPort(), this.getTrustManager()),
                             new X509HostnameVerifier() {
                                 @Override
                                 public void verify(String host, SSLSocket ssl) throws IOException {
@@ -151,10 +150,8 @@ public abstract class HttpSession extends SSLSession {
                     }
                 }
             }
-            PoolingClientConnectionManager manager = new PoolingClientConnectionManager(registry);
-            manager.setMaxTotal(Preferences.instance().getInteger("http.connections.total"));
-            manager.setDefaultMaxPerRoute(Preferences.instance().getInteger("http.connections.route"));
-            AbstractHttpClient http = new DefaultHttpClient(manager, params);
+            // Lease connections from pool shared with other sessions
+            AbstractHttpClient http = new DefaultHttpClient(HttpConnectionPool.instance().create(registry), params);
             this.configure(http);
             clients.put(hostname, http);
         }
@@ -198,8 +195,8 @@ public abstract class HttpSession extends SSLSession {
     public void close() {
         try {
             for(AbstractHttpClient http : clients.values()) {
-                // When HttpClient instance is no longer needed, shut down the connection manager to ensure
-                // immediate deallocation of all system resources
+                // When HttpClient instance is no longer needed, abort connections still in use. Idle
+                // connections are kept in the shared pool.
                 http.getConnectionManager().shutdown();
             }
         }
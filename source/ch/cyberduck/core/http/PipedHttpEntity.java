@@ -0,0 +1,195 @@
+package ch.cyberduck.core.http;
+
+/*
+ * Copyright (c) 2002-2013 David Kocher. All rights reserved.
+ * http://cyberduck.ch/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * Bug fixes, suggestions and comments should be sent to:
+ * dkocher@cyberduck.ch
+ */
+
+import org.apache.http.entity.AbstractHttpEntity;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Request entity written by the caller through a bounded ring buffer. The thread executing the request
+ * writes buffered content to the socket while the caller continues to fill the buffer and is blocked
+ * only when the buffer is full. A failure of either side is passed to the other.
+ *
+ * @version $Id$
+ */
+public class PipedHttpEntity extends AbstractHttpEntity {
+
+    private final long length;
+
+    private final byte[] buffer;
+
+    /**
+     * Read position
+     */
+    private int head;
+
+    /**
+     * Number of bytes buffered
+     */
+    private int count;
+
+    /**
+     * No more content written
+     */
+    private boolean closed;
+
+    /**
+     * Request failed or completed
+     */
+    private IOException failure;
+
+    private boolean consumed;
+
+    private final OutputStream stream = new OutputStream() {
+        @Override
+        public void write(final int b) throws IOException {
+            this.write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            PipedHttpEntity.this.write(b, off, len);
+        }
+
+        @Override
+        public void close() {
+            PipedHttpEntity.this.close();
+        }
+    };
+
+    /**
+     * @param length Content length
+     * @param size   Buffer size
+     */
+    public PipedHttpEntity(final long length, final int size) {
+        this.length = length;
+        this.buffer = new byte[size];
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return false;
+    }
+
+    @Override
+    public long getContentLength() {
+        return length;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException, IllegalStateException {
+        throw new UnsupportedOperationException("No content here");
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return !consumed;
+    }
+
+    /**
+     * @return The stream to write content to
+     */
+    public OutputStream getStream() {
+        return stream;
+    }
+
+    private synchronized void write(final byte[] b, int off, int len) throws IOException {
+        while(len > 0) {
+            while(count == buffer.length && null == failure) {
+                this.await();
+            }
+            if(null != failure) {
+                throw failure;
+            }
+            final int tail = (head + count) % buffer.length;
+            final int n = Math.min(len, Math.min(buffer.length - count, buffer.length - tail));
+            System.arraycopy(b, off, buffer, tail, n);
+            count += n;
+            off += n;
+            len -= n;
+            this.notifyAll();
+        }
+    }
+
+    private synchronized void close() {
+        closed = true;
+        this.notifyAll();
+    }
+
+    /**
+     * Fail writing content not read by the request
+     *
+     * @param e Failure to throw when writing
+     */
+    public synchronized void fail(final IOException e) {
+        if(null == failure) {
+            failure = e;
+        }
+        this.notifyAll();
+    }
+
+    private void await() throws IOException {
+        try {
+            this.wait();
+        }
+        catch(InterruptedException e) {
+            IOException failure = new IOException(e.getMessage());
+            failure.initCause(e);
+            throw failure;
+        }
+    }
+
+    @Override
+    public void writeTo(final OutputStream out) throws IOException {
+        final byte[] chunk = new byte[Math.min(buffer.length, 32768)];
+        try {
+            while(true) {
+                final int n;
+                synchronized(this) {
+                    while(0 == count && !closed && null == failure) {
+                        this.await();
+                    }
+                    if(null != failure) {
+                        throw failure;
+                    }
+                    if(0 == count) {
+                        // Closed
+                        break;
+                    }
+                    n = Math.min(chunk.length, Math.min(count, buffer.length - head));
+                    System.arraycopy(buffer, head, chunk, 0, n);
+                    head = (head + n) % buffer.length;
+                    count -= n;
+                    this.notifyAll();
+                }
+                // Write to socket while more content is buffered
+                out.write(chunk, 0, n);
+            }
+        }
+        catch(IOException e) {
+            this.fail(e);
+            throw e;
+        }
+        // Entity written to server
+        consumed = true;
+    }
+}
@@ -0,0 +1,79 @@
+package ch.cyberduck.core.io;
+
+/*
+ * Copyright (c) 2002-2013 David Kocher. All rights reserved.
+ * http://cyberduck.ch/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * Bug fixes, suggestions and comments should be sent to:
+ * dkocher@cyberduck.ch
+ */
+
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Compute a checksum from a stream or from buffers read by {@link ChecksumService}.
+ *
+ * @version $Id$
+ */
+public abstract class AbstractChecksumCompute implements ChecksumCompute {
+    private static final Logger log = Logger.getLogger(AbstractChecksumCompute.class);
+
+    /**
+     * @return New digest for a single computation
+     * @throws NoSuchAlgorithmException Algorithm not available
+     */
+    public abstract ChecksumDigest create() throws NoSuchAlgorithmException;
+
+    /**
+     * @return Name of the algorithm
+     */
+    public abstract String getName();
+
+    /**
+     * @param in Stream closed when done
+     * @return Null if failure
+     */
+    @Override
+    public String compute(final InputStream in) {
+        try {
+            final ChecksumDigest digest = this.create();
+            final byte[] buffer = new byte[BufferPool.instance().getSize()];
+            int read;
+            while((read = in.read(buffer)) != -1) {
+                digest.update(ByteBuffer.wrap(buffer, 0, read));
+            }
+            return digest.digest();
+        }
+        catch(NoSuchAlgorithmException e) {
+            log.error(String.format("Checksum failure %s", e.getMessage()));
+        }
+        catch(IOException e) {
+            log.error(String.format("Checksum failure %s", e.getMessage()));
+        }
+        finally {
+            IOUtils.closeQuietly(in);
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return this.getName();
+    }
+}
@@ -2,14 +2,16 @@ package ch.cyberduck.core.io;
 
 import org.apache.log4j.Logger;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
- * Limits throughput of a stream to at most N bytes per T seconds.  Mutable and
+ * Limits throughput of a stream to at most N bytes per second.  Mutable and
  * thread-safe.<p>
  * <p/>
  * In the following example, <tt>throttle</tt> is used to send the contents of
- * <tt>buf</tt> to <tt>out</tt> at no more than <tt>N/T</tt> bytes per second:
+ * <tt>buf</tt> to <tt>out</tt> at no more than <tt>N</tt> bytes per second:
  * <pre>
- *      BandwidthThrottle throttle=new BandwidthThrottle(N, T);
+ *      BandwidthThrottle throttle=new BandwidthThrottle(N);
  *      OutputStream out=...;
  *      byte[] buf=...;
  *      for (int i=0; i<buf.length; ) {
@@ -19,22 +21,24 @@ import org.apache.log4j.Logger;
  *      }
  * </pre>
  * <p/>
- * This class works by allowing exactly N bytes to be sent every T seconds.  If
- * the number of bytes for a given window have been exceeded, subsequent calls
+ * This class is a token bucket refilled every T milliseconds with the number of
+ * bytes allowed for the elapsed time.  If the bucket is empty, subsequent calls
  * to request(..) will block.  The default value of T is 100 milliseconds.
- * Smaller window values T allow fairer bandwidth sharing and less noticeable
- * pauses but may decrease efficiency slightly.<p>
+ * The bucket is maintained with atomic counters such that many streams can share
+ * a throttle without contending on a lock and no thread waits while holding a lock.
+ * Each request is granted at most a quarter of the bucket to share the bandwidth
+ * fairly between streams.<p>
  * <p/>
- * Note that throttles are <i>not</i> cumulative.  In the future, this may allow
- * enable fancier control.  Also, BandwidthThrottle may be able delegate to
- * other throttles.  This would allow, for example, a 15 KB/s Gnutella messaging
- * throttle, with no more than 10 KB/s devoted to uploads.<p>
+ * Throttles are hierarchical.  A request is granted only if both this throttle
+ * and its parent allow the bytes.  This allows for example to limit the bandwidth
+ * of a transfer while sharing a limit for all transfers to the same host.<p>
  * <p/>
  * This implementation is based on the <a href="http://cvs.sourceforge.net/cgi-bin/viewcvs.cgi/freenet/freenet/src/freenet/support/io/Bandwidth.java">Bandwidth</a>
  * class from
  * the Freenet project.  It has been simplified and better documented.<p>
  *
  * @version $Id: BandwidthThrottle.java 10998 2013-05-03 09:12:41Z dkocher $
+ * @see BandwidthThrottleRegistry
  */
 public final class BandwidthThrottle {
     private static Logger log = Logger.getLogger(BandwidthThrottle.class);
@@ -48,25 +52,27 @@ public final class BandwidthThrottle {
      */
     private static final int MILLIS_PER_TICK = 1000 / TICKS_PER_SECOND;
 
+    private static final long NANOS_PER_TICK = MILLIS_PER_TICK * 1000000L;
+
     /**
-     * The bytes to send per tick.  Modified by setThrottle.
+     * Throttle to request bytes from in addition. Null if top level.
      */
-    private volatile int bytesPerTick;
+    private volatile BandwidthThrottle parent;
 
     /**
-     * Whether or not we're only allowing bandwidth to be used every other
-     * second.
+     * The maximum number of bytes in the bucket.  Modified by setRate.
      */
-    private volatile boolean switching = false;
+    private volatile long bytesPerTick;
 
     /**
-     * The number of bytes remaining in this window.
+     * The number of bytes remaining in the bucket.
      */
-    private int availableBytes;
+    private final AtomicLong availableBytes = new AtomicLong();
+
     /**
-     * The system time when the window is reset so more bytes can be sent.
+     * The system time in nanoseconds when the bucket was last refilled.
      */
-    private long nextTickTime;
+    private final AtomicLong lastTickTime = new AtomicLong(System.nanoTime());
 
     /**
      * Creates a new bandwidth throttle at the given throttle rate.
@@ -77,25 +83,17 @@ public final class BandwidthThrottle {
      *                       (not milliseconds!)
      */
     public BandwidthThrottle(float bytesPerSecond) {
-        this.setRate(bytesPerSecond);
+        this(null, bytesPerSecond);
     }
 
     /**
-     * Creates a new bandwidth throttle at the given throttle rate,
-     * only allowing bandwidth to be used every other second if
-     * switching is true.
-     * The default windows size T is used.  The bytes per windows N
-     * is calculated from bytesPerSecond.
-     *
+     * @param parent         Throttle shared with other streams
      * @param bytesPerSecond the limits in bytes (not bits!) per second
      *                       (not milliseconds!)
-     * @param switching      true if we should only allow bandwidth to be used
-     *                       every other second.
      */
-    public BandwidthThrottle(float bytesPerSecond, boolean switching) {
+    public BandwidthThrottle(final BandwidthThrottle parent, final float bytesPerSecond) {
+        this.parent = parent;
         this.setRate(bytesPerSecond);
-        this.setSwitching(switching);
-
     }
 
     /**
@@ -106,7 +104,7 @@ public final class BandwidthThrottle {
     /**
      * Bytes per second allowed
      */
-    private float rate = UNLIMITED;
+    private volatile float rate = UNLIMITED;
 
     /**
      * Sets the throttle to the given throttle rate.  The default windows size
@@ -123,11 +121,9 @@ public final class BandwidthThrottle {
             rate = UNLIMITED;
         }
         else {
+            bytesPerTick = Math.max(1L, (long) (bytesPerSecond / TICKS_PER_SECOND));
+            availableBytes.set(bytesPerTick);
             rate = bytesPerSecond;
-            bytesPerTick = (int) (bytesPerSecond / TICKS_PER_SECOND);
-        }
-        if(switching) {
-            this.fixBytesPerTick(true);
         }
     }
 
@@ -139,95 +135,113 @@ public final class BandwidthThrottle {
     }
 
     /**
-     * Sets whether or not this throttle is switching bandwidth on/off.
+     * @param parent Throttle shared with other streams or null
      */
-    public void setSwitching(boolean switching) {
-        log.debug("setSwitching:" + switching);
-        if(this.switching != switching) {
-            fixBytesPerTick(switching);
+    public void setParent(final BandwidthThrottle parent) {
+        for(BandwidthThrottle p = parent; p != null; p = p.parent) {
+            if(p == this) {
+                throw new IllegalArgumentException("Cycle in throttle hierarchy");
+            }
         }
-        this.switching = switching;
+        this.parent = parent;
     }
 
     /**
-     * Modifies bytesPerTick to either be double or half of what it was.
-     * This is necessary because of the 'switching', which can effectively
-     * reduce or raise the amount of data transferred.
+     * @return Throttle shared with other streams or null
      */
-    private void fixBytesPerTick(boolean raise) {
-        int newBytesPerTick = bytesPerTick;
-        if(raise) {
-            newBytesPerTick *= 2;
-        }
-        else {
-            newBytesPerTick /= 2;
-        }
-        if(newBytesPerTick < 0) // overflowed?
-        {
-            newBytesPerTick = Integer.MAX_VALUE;
-        }
-        bytesPerTick = newBytesPerTick;
+    public BandwidthThrottle getParent() {
+        return parent;
     }
 
     /**
      * Blocks until the caller can send at least one byte without violating
-     * bandwidth constraints.  Records the number of byte sent.
+     * bandwidth constraints of this throttle and its parents.  Records the number of byte sent.
      *
      * @param desired the number of bytes the caller would like to send
      * @return the number of bytes the sender is expected to send, which
      *         is always greater than one and less than or equal to desired
      */
-    public synchronized int request(int desired) {
-        if(UNLIMITED == rate) {
-            return desired;
+    public int request(int desired) {
+        final int granted = this.acquire(desired);
+        final BandwidthThrottle p = parent;
+        if(null == p) {
+            return granted;
         }
-        waitForBandwidth();
-        int result = Math.min(desired, availableBytes);
-        availableBytes -= result;
-        return result;
+        final int allowed = p.request(granted);
+        if(allowed < granted) {
+            // Return bytes not allowed by parent
+            this.release(granted - allowed);
+        }
+        return allowed;
     }
 
     /**
-     * Waits until data is _availableBytes.
+     * Take bytes from this bucket only
      */
-    private void waitForBandwidth() {
+    private int acquire(final int desired) {
         while(true) {
-            long now = System.currentTimeMillis();
-            updateWindow(now);
-            if(availableBytes != 0) {
-                break;
+            if(UNLIMITED == rate) {
+                return desired;
+            }
+            final long now = System.nanoTime();
+            this.refill(now);
+            final long available = availableBytes.get();
+            if(available > 0) {
+                final long quantum = Math.max(1L, bytesPerTick / 4);
+                final int granted = (int) Math.min(desired, Math.min(available, quantum));
+                if(availableBytes.compareAndSet(available, available - granted)) {
+                    return granted;
+                }
+                // Lost race with other stream
+                continue;
             }
+            final long wait = Math.max(1L, (lastTickTime.get() + NANOS_PER_TICK - now) / 1000000L);
             try {
-                if(log.isInfoEnabled()) {
-                    log.info(String.format("Throttling bandwidth for %d milliseconds", nextTickTime - now));
+                if(log.isDebugEnabled()) {
+                    log.debug(String.format("Throttling bandwidth for %d milliseconds", wait));
                 }
-                Thread.sleep(nextTickTime - now);
+                Thread.sleep(wait);
             }
             catch(InterruptedException e) {
-                log.error(e.getMessage(), e);
+                log.warn(String.format("Interrupted waiting for bandwidth:%s", e.getMessage()));
+                // Allow the caller to notice the interrupt
+                Thread.currentThread().interrupt();
+                return 1;
             }
         }
     }
 
     /**
-     * Updates _availableBytes and _nextTickTime if possible.
+     * Add the bytes allowed for the time elapsed since the last refill
      */
-    private void updateWindow(long now) {
-        if(now >= nextTickTime) {
-            if(!switching || ((now / 1000) % 2) == 0) {
-                availableBytes = bytesPerTick;
-                nextTickTime = now + MILLIS_PER_TICK;
-            }
-            else {
-                availableBytes = 0;
-                // the next tick time is the time we'll hit
-                // the next second.
-                long diff = 1000 - (now % 1000);
-                nextTickTime = now + diff;
+    private void refill(final long now) {
+        final long last = lastTickTime.get();
+        final long elapsed = now - last;
+        if(elapsed < NANOS_PER_TICK) {
+            return;
+        }
+        if(!lastTickTime.compareAndSet(last, now)) {
+            // Refilled by other stream
+            return;
+        }
+        final long bytes = Math.max(1L, (long) (rate * elapsed / 1000000000d));
+        final long max = bytesPerTick;
+        while(true) {
+            final long available = availableBytes.get();
+            final long update = Math.min(max, available + bytes);
+            if(availableBytes.compareAndSet(available, update)) {
+                break;
             }
         }
     }
 
+    /**
+     * Return bytes to the bucket
+     */
+    private void release(final long bytes) {
+        availableBytes.addAndGet(bytes);
+    }
+
     @Override
     public boolean equals(Object o) {
         if(this == o) {
@@ -247,4 +261,4 @@ public final class BandwidthThrottle {
     public int hashCode() {
         return (rate != +0.0f ? Float.floatToIntBits(rate) : 0);
     }
-}
\ No newline at end of file
+}
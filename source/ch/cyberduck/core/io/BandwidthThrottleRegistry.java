@@ -0,0 +1,75 @@
+package ch.cyberduck.core.io;
+
+/*
+ * Copyright (c) 2002-2013 David Kocher. All rights reserved.
+ * http://cyberduck.ch/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * Bug fixes, suggestions and comments should be sent to:
+ * dkocher@cyberduck.ch
+ */
+
+import ch.cyberduck.core.Host;
+import ch.cyberduck.core.Preferences;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Shared throttles limiting the bandwidth of all transfers and of all transfers to the same host. Per
+ * transfer throttles have the throttle of the host as parent which in turn has the global throttle as parent.
+ *
+ * @version $Id$
+ */
+public final class BandwidthThrottleRegistry {
+
+    private BandwidthThrottleRegistry() {
+        //
+    }
+
+    private static BandwidthThrottle global = null;
+
+    private static final Object lock = new Object();
+
+    private static final ConcurrentMap<String, BandwidthThrottle> hosts
+            = new ConcurrentHashMap<String, BandwidthThrottle>();
+
+    /**
+     * @return Throttle shared by all transfers
+     */
+    public static BandwidthThrottle global() {
+        synchronized(lock) {
+            if(null == global) {
+                global = new BandwidthThrottle(Preferences.instance().getFloat("queue.bandwidth.bytes"));
+            }
+            return global;
+        }
+    }
+
+    /**
+     * @param host Hostname
+     * @return Throttle shared by all transfers to the host
+     */
+    public static BandwidthThrottle host(final Host host) {
+        final String key = host.getHostname();
+        BandwidthThrottle throttle = hosts.get(key);
+        if(null == throttle) {
+            final BandwidthThrottle created = new BandwidthThrottle(global(),
+                    Preferences.instance().getFloat("queue.bandwidth.host.bytes"));
+            throttle = hosts.putIfAbsent(key, created);
+            if(null == throttle) {
+                throttle = created;
+            }
+        }
+        return throttle;
+    }
+}
@@ -0,0 +1,96 @@
+package ch.cyberduck.core.io;
+
+/*
+ * Copyright (c) 2002-2013 David Kocher. All rights reserved.
+ * http://cyberduck.ch/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * Bug fixes, suggestions and comments should be sent to:
+ * dkocher@cyberduck.ch
+ */
+
+import ch.cyberduck.core.Preferences;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Reusable buffers for copying streams. Buffers are backed by an array as required
+ * to read from and write to streams.
+ *
+ * @version $Id$
+ */
+public final class BufferPool {
+
+    private static BufferPool current = null;
+
+    private static final Object lock = new Object();
+
+    /**
+     * @return Shared pool with buffers of the configured chunk size
+     */
+    public static BufferPool instance() {
+        synchronized(lock) {
+            if(null == current) {
+                current = new BufferPool(Preferences.instance().getInteger("connection.chunksize"),
+                        Preferences.instance().getInteger("connection.chunksize.pool"));
+            }
+            return current;
+        }
+    }
+
+    /**
+     * Size of buffers
+     */
+    private final int size;
+
+    /**
+     * Buffers not currently in use
+     */
+    private final BlockingQueue<ByteBuffer> idle;
+
+    /**
+     * @param size     Size of buffers
+     * @param capacity Maximum number of idle buffers to retain
+     */
+    public BufferPool(final int size, final int capacity) {
+        this.size = size;
+        this.idle = new LinkedBlockingQueue<ByteBuffer>(capacity);
+    }
+
+    /**
+     * @return Size of buffers in pool
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return Cleared buffer to be returned using #release
+     */
+    public ByteBuffer acquire() {
+        final ByteBuffer buffer = idle.poll();
+        if(null == buffer) {
+            return ByteBuffer.allocate(size);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * @param buffer Buffer previously obtained with #acquire. Discarded if the pool is full.
+     */
+    public void release(final ByteBuffer buffer) {
+        idle.offer(buffer);
+    }
+}
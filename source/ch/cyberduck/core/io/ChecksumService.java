@@ -0,0 +1,216 @@
+package ch.cyberduck.core.io;
+
+/*
+ * Copyright (c) 2002-2013 David Kocher. All rights reserved.
+ * http://cyberduck.ch/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * Bug fixes, suggestions and comments should be sent to:
+ * dkocher@cyberduck.ch
+ */
+
+import ch.cyberduck.core.Preferences;
+import ch.cyberduck.core.threading.NamedThreadFactory;
+
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compute checksums of local files in the background. The number of threads hashing is sized by the
+ * number of processors while the number of buffers read concurrently is limited separately to not
+ * thrash the disk. A permit to read is only held while filling a buffer such that other threads can
+ * read while the buffer is hashed. Files are read sequentially in large buffers through a file channel.
+ * Computations for the same file and algorithm already in progress are shared.
+ *
+ * @version $Id$
+ */
+public final class ChecksumService {
+    private static final Logger log = Logger.getLogger(ChecksumService.class);
+
+    private static ChecksumService current = null;
+
+    private static final Object lock = new Object();
+
+    /**
+     * @return Shared service
+     */
+    public static ChecksumService instance() {
+        synchronized(lock) {
+            if(null == current) {
+                int threads = Preferences.instance().getInteger("local.checksum.threads");
+                if(threads <= 0) {
+                    threads = Runtime.getRuntime().availableProcessors();
+                }
+                current = new ChecksumService(threads,
+                        Preferences.instance().getInteger("local.checksum.io"),
+                        Preferences.instance().getInteger("local.checksum.buffer"));
+            }
+            return current;
+        }
+    }
+
+    private final ThreadPoolExecutor pool;
+
+    /**
+     * Buffers read concurrently
+     */
+    private final Semaphore io;
+
+    private final int size;
+
+    private final ThreadLocal<ByteBuffer> buffers = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocateDirect(size);
+        }
+    };
+
+    /**
+     * Computations in progress by file and algorithm
+     */
+    private final ConcurrentMap<String, Future<String>> pending
+            = new ConcurrentHashMap<String, Future<String>>();
+
+    /**
+     * @param threads Number of threads computing checksums
+     * @param io      Maximum number of buffers read concurrently
+     * @param size    Size of read buffer for each thread
+     */
+    public ChecksumService(final int threads, final int io, final int size) {
+        this.pool = new ThreadPoolExecutor(threads, threads, 10L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new NamedThreadFactory("checksum"));
+        // Do not keep idle threads
+        this.pool.allowCoreThreadTimeOut(true);
+        this.io = new Semaphore(Math.max(1, io));
+        this.size = size;
+    }
+
+    /**
+     * @param file      Local file
+     * @param algorithm Checksum algorithm
+     * @return Future returning the checksum or failing with an I/O error
+     */
+    public Future<String> compute(final File file, final AbstractChecksumCompute algorithm) {
+        return this.submit(file, algorithm, new Callable<String>() {
+            @Override
+            public String call() throws IOException, NoSuchAlgorithmException {
+                return read(file, algorithm);
+            }
+        });
+    }
+
+    /**
+     * Run a task computing a checksum of a file unless the same computation is already in progress.
+     *
+     * @param file      Local file
+     * @param algorithm Checksum algorithm
+     * @param task      Computation to run in the background. Should read the file using #read
+     * @return Future for the task or the computation already in progress
+     */
+    public Future<String> submit(final File file, final AbstractChecksumCompute algorithm,
+                                 final Callable<String> task) {
+        final String key = String.format("%s-%s", algorithm.getName(), file.getAbsolutePath());
+        final FutureTask<String> future = new FutureTask<String>(task) {
+            @Override
+            protected void done() {
+                pending.remove(key, this);
+            }
+        };
+        final Future<String> existing = pending.putIfAbsent(key, future);
+        if(null != existing) {
+            return existing;
+        }
+        if(log.isDebugEnabled()) {
+            log.debug(String.format("Compute %s checksum for %s", algorithm, file));
+        }
+        pool.execute(future);
+        return future;
+    }
+
+    /**
+     * Read the file on the calling thread. Each buffer is read when allowed by the limit of concurrent
+     * reads and hashed after releasing the permit.
+     *
+     * @param file      Local file
+     * @param algorithm Checksum algorithm
+     * @return Checksum
+     */
+    public String read(final File file, final AbstractChecksumCompute algorithm)
+            throws IOException, NoSuchAlgorithmException {
+        final ChecksumDigest digest = algorithm.create();
+        final ByteBuffer buffer = buffers.get();
+        final FileInputStream in = new FileInputStream(file);
+        try {
+            final FileChannel channel = in.getChannel();
+            boolean eof = false;
+            while(!eof) {
+                buffer.clear();
+                eof = this.fill(channel, buffer);
+                buffer.flip();
+                if(buffer.hasRemaining()) {
+                    digest.update(buffer);
+                }
+            }
+            return digest.digest();
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    /**
+     * @param channel File
+     * @param buffer  Buffer to read into until full
+     * @return True if end of file is reached
+     */
+    private boolean fill(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+        try {
+            io.acquire();
+        }
+        catch(InterruptedException e) {
+            throw new IOException(e.getMessage());
+        }
+        try {
+            while(buffer.hasRemaining()) {
+                if(channel.read(buffer) == -1) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        finally {
+            io.release();
+        }
+    }
+
+    /**
+     * Stop threads after pending computations
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
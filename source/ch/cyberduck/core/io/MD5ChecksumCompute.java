@@ -18,30 +18,20 @@ package ch.cyberduck.core.io;
  * dkocher@cyberduck.ch
  */
 
-import org.apache.log4j.Logger;
-import org.jets3t.service.utils.ServiceUtils;
-
-import java.io.IOException;
-import java.io.InputStream;
 import java.security.NoSuchAlgorithmException;
 
 /**
  * @version $Id: MD5ChecksumCompute.java 10336 2012-10-16 20:38:40Z dkocher $
  */
-public class MD5ChecksumCompute implements ChecksumCompute {
-    private static final Logger log = Logger.getLogger(MD5ChecksumCompute.class);
+public class MD5ChecksumCompute extends AbstractChecksumCompute {
+
+    @Override
+    public ChecksumDigest create() throws NoSuchAlgorithmException {
+        return new MessageDigestChecksumDigest("MD5");
+    }
 
     @Override
-    public String compute(InputStream in) {
-        try {
-            return ServiceUtils.toHex(ServiceUtils.computeMD5Hash(in));
-        }
-        catch(NoSuchAlgorithmException e) {
-            log.error(String.format("Checksum failure %s", e.getMessage()));
-        }
-        catch(IOException e) {
-            log.error(String.format("Checksum failure %s", e.getMessage()));
-        }
-        return null;
+    public String getName() {
+        return "MD5";
     }
 }
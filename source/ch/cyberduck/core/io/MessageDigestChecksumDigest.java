@@ -0,0 +1,53 @@
+package ch.cyberduck.core.io;
+
+/*
+ * Copyright (c) 2002-2013 David Kocher. All rights reserved.
+ * http://cyberduck.ch/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * Bug fixes, suggestions and comments should be sent to:
+ * dkocher@cyberduck.ch
+ */
+
+import org.jets3t.service.utils.ServiceUtils;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Hex encoded message digest
+ *
+ * @version $Id$
+ */
+public class MessageDigestChecksumDigest implements ChecksumDigest {
+
+    private final MessageDigest digest;
+
+    /**
+     * @param algorithm Name of message digest algorithm
+     * @throws NoSuchAlgorithmException Algorithm not available
+     */
+    public MessageDigestChecksumDigest(final String algorithm) throws NoSuchAlgorithmException {
+        this.digest = MessageDigest.getInstance(algorithm);
+    }
+
+    @Override
+    public void update(final ByteBuffer buffer) {
+        digest.update(buffer);
+    }
+
+    @Override
+    public String digest() {
+        return ServiceUtils.toHex(digest.digest());
+    }
+}
@@ -0,0 +1,95 @@
+package ch.cyberduck.core.io;
+
+/*
+ * Copyright (c) 2002-2013 David Kocher. All rights reserved.
+ * http://cyberduck.ch/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * Bug fixes, suggestions and comments should be sent to:
+ * dkocher@cyberduck.ch
+ */
+
+import org.jets3t.service.utils.ServiceUtils;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * ETag of an object uploaded to S3 in multiple parts. The MD5 hash of the concatenated binary MD5 hashes
+ * of all parts followed by a dash and the number of parts.
+ *
+ * @version $Id$
+ */
+public class MultipartChecksumCompute extends AbstractChecksumCompute {
+
+    /**
+     * Size of all but the last part
+     */
+    private final long partsize;
+
+    /**
+     * @param partsize Size of all but the last part
+     */
+    public MultipartChecksumCompute(final long partsize) {
+        this.partsize = partsize;
+    }
+
+    @Override
+    public ChecksumDigest create() throws NoSuchAlgorithmException {
+        final MessageDigest part = MessageDigest.getInstance("MD5");
+        final MessageDigest parts = MessageDigest.getInstance("MD5");
+        return new ChecksumDigest() {
+            /**
+             * Bytes of current part consumed
+             */
+            private long length;
+
+            private int count;
+
+            @Override
+            public void update(final ByteBuffer buffer) {
+                while(buffer.hasRemaining()) {
+                    final int n = (int) Math.min(buffer.remaining(), partsize - length);
+                    final ByteBuffer slice = buffer.duplicate();
+                    slice.limit(slice.position() + n);
+                    part.update(slice);
+                    buffer.position(buffer.position() + n);
+                    length += n;
+                    if(length == partsize) {
+                        this.next();
+                    }
+                }
+            }
+
+            private void next() {
+                parts.update(part.digest());
+                count++;
+                length = 0;
+            }
+
+            @Override
+            public String digest() {
+                if(length > 0 || count == 0) {
+                    // Last part
+                    this.next();
+                }
+                return String.format("%s-%d", ServiceUtils.toHex(parts.digest()), count);
+            }
+        };
+    }
+
+    @Override
+    public String getName() {
+        return String.format("MD5 of parts with %d bytes", partsize);
+    }
+}
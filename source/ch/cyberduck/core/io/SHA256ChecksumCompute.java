@@ -0,0 +1,37 @@
+package ch.cyberduck.core.io;
+
+/*
+ * Copyright (c) 2002-2013 David Kocher. All rights reserved.
+ * http://cyberduck.ch/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * Bug fixes, suggestions and comments should be sent to:
+ * dkocher@cyberduck.ch
+ */
+
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * @version $Id$
+ */
+public class SHA256ChecksumCompute extends AbstractChecksumCompute {
+
+    @Override
+    public ChecksumDigest create() throws NoSuchAlgorithmException {
+        return new MessageDigestChecksumDigest("SHA-256");
+    }
+
+    @Override
+    public String getName() {
+        return "SHA-256";
+    }
+}
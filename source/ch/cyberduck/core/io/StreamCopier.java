@@ -0,0 +1,230 @@
+package ch.cyberduck.core.io;
+
+/*
+ * Copyright (c) 2002-2013 David Kocher. All rights reserved.
+ * http://cyberduck.ch/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * Bug fixes, suggestions and comments should be sent to:
+ * dkocher@cyberduck.ch
+ */
+
+import ch.cyberduck.core.ConnectionCanceledException;
+import ch.cyberduck.core.Preference;
+import ch.cyberduck.core.StreamListener;
+import ch.cyberduck.core.transfer.TransferStatus;
+
+import org.apache.log4j.Logger;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Copy from a stream to another with buffers from a shared pool. Progress is reported to
+ * the transfer status and listener in batches. Copies between local files are done by the
+ * operating system using file channels.
+ *
+ * @version $Id$
+ */
+public final class StreamCopier {
+    private static final Logger log = Logger.getLogger(StreamCopier.class);
+
+    private static final Preference<Long> PROGRESS_BYTES
+            = Preference.number("connection.progress.bytes");
+
+    private static final Preference<Long> PROGRESS_INTERVAL
+            = Preference.number("connection.progress.interval");
+
+    private final TransferStatus status;
+
+    private final StreamListener listener;
+
+    private final BufferPool pool;
+
+    /**
+     * Minimum number of bytes between progress updates
+     */
+    private final long granularity;
+
+    /**
+     * Minimum number of milliseconds between progress updates
+     */
+    private final long interval;
+
+    /**
+     * Bytes copied but not yet reported
+     */
+    private long pending;
+
+    private long reported;
+
+    /**
+     * @param status   Transfer status to update with the number of bytes transferred
+     * @param listener The stream listener to notify about bytes received and sent
+     */
+    public StreamCopier(final TransferStatus status, final StreamListener listener) {
+        this(status, listener, BufferPool.instance(),
+                PROGRESS_BYTES.get(), PROGRESS_INTERVAL.get());
+    }
+
+    public StreamCopier(final TransferStatus status, final StreamListener listener, final BufferPool pool,
+                        final long granularity, final long interval) {
+        this.status = status;
+        this.listener = listener;
+        this.pool = pool;
+        this.granularity = granularity;
+        this.interval = interval;
+    }
+
+    /**
+     * Will copy from in to out. Does not attempt to skip any bytes from the streams.
+     *
+     * @param in    The stream to read from
+     * @param out   The stream to write to
+     * @param limit Transfer only up to this length or -1 to copy until end of file
+     * @return Number of bytes copied
+     * @throws IOException                 Write not completed due to a I/O problem
+     * @throws ConnectionCanceledException When transfer is interrupted by user setting the
+     *                                     status flag to cancel.
+     */
+    public long transfer(final InputStream in, final OutputStream out, final long limit) throws IOException {
+        reported = System.currentTimeMillis();
+        final long transferred;
+        try {
+            if(in instanceof FileInputStream && out instanceof FileOutputStream) {
+                transferred = this.transfer(((FileInputStream) in).getChannel(),
+                        ((FileOutputStream) out).getChannel(), limit);
+            }
+            else {
+                transferred = this.copy(in, out, limit);
+            }
+        }
+        finally {
+            this.flush();
+            out.flush();
+        }
+        if(status.isCanceled()) {
+            throw new ConnectionCanceledException("Interrupted transfer");
+        }
+        return transferred;
+    }
+
+    private long copy(final InputStream in, final OutputStream out, final long limit) throws IOException {
+        final ByteBuffer buffer = pool.acquire();
+        try {
+            final byte[] chunk = buffer.array();
+            long transferred = 0;
+            while(!status.isCanceled()) {
+                int len = chunk.length;
+                if(limit != -1) {
+                    len = (int) Math.min(len, limit - transferred);
+                    if(0 == len) {
+                        break;
+                    }
+                }
+                final int read = in.read(chunk, 0, len);
+                if(-1 == read) {
+                    if(log.isDebugEnabled()) {
+                        log.debug("End of file reached");
+                    }
+                    // End of file
+                    this.flush();
+                    status.setComplete();
+                    break;
+                }
+                out.write(chunk, 0, read);
+                transferred += read;
+                this.progress(read);
+                if(limit == transferred) {
+                    if(log.isDebugEnabled()) {
+                        log.debug(String.format("Limit %d reached reading from stream", limit));
+                    }
+                    // Part reached
+                    if(0 == in.available()) {
+                        // End of file
+                        this.flush();
+                        status.setComplete();
+                    }
+                    break;
+                }
+            }
+            return transferred;
+        }
+        finally {
+            pool.release(buffer);
+        }
+    }
+
+    /**
+     * Copy between local files without reading into a buffer
+     */
+    private long transfer(final FileChannel source, final FileChannel target, final long limit) throws IOException {
+        long position = source.position();
+        long transferred = 0;
+        while(!status.isCanceled()) {
+            long count = granularity;
+            if(limit != -1) {
+                count = Math.min(count, limit - transferred);
+                if(0 == count) {
+                    break;
+                }
+            }
+            final long n = source.transferTo(position, count, target);
+            if(n <= 0) {
+                if(log.isDebugEnabled()) {
+                    log.debug("End of file reached");
+                }
+                this.flush();
+                status.setComplete();
+                break;
+            }
+            position += n;
+            source.position(position);
+            transferred += n;
+            this.progress(n);
+            if(limit == transferred) {
+                if(position == source.size()) {
+                    // End of file
+                    this.flush();
+                    status.setComplete();
+                }
+                break;
+            }
+        }
+        return transferred;
+    }
+
+    private void progress(final long bytes) {
+        pending += bytes;
+        if(pending >= granularity || System.currentTimeMillis() - reported >= interval) {
+            this.flush();
+        }
+    }
+
+    /**
+     * Report bytes copied since last update
+     */
+    private void flush() {
+        if(pending > 0) {
+            status.addCurrent(pending);
+            listener.bytesReceived(pending);
+            listener.bytesSent(pending);
+            pending = 0;
+        }
+        reported = System.currentTimeMillis();
+    }
+}
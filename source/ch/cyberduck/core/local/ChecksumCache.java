@@ -0,0 +1,311 @@
+package ch.cyberduck.core.local;
+
+/*
+ * Copyright (c) 2002-2013 David Kocher. All rights reserved.
+ * http://cyberduck.ch/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * Bug fixes, suggestions and comments should be sent to:
+ * dkocher@cyberduck.ch
+ */
+
+import ch.cyberduck.core.Preferences;
+
+import org.apache.commons.collections.map.LRUMap;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.jets3t.service.utils.ServiceUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Checksums of local files remembered across launches. An entry is only valid as long as the inode, size
+ * and modification date of the file are unchanged and is replaced when the file is hashed again. Entries
+ * are appended to a binary journal which is compacted when loaded if it contains mostly replaced entries.
+ * Besides plain MD5 hashes, multipart checksums in the form of an MD5 hash followed by the number of parts
+ * are remembered for each algorithm.
+ *
+ * @version $Id$
+ */
+public final class ChecksumCache {
+    private static final Logger log = Logger.getLogger(ChecksumCache.class);
+
+    private static final int MAGIC = 0x43484b32;
+
+    private static final String MD5 = "MD5";
+
+    /**
+     * MD5 hash optionally followed by the number of parts
+     */
+    private static final Pattern CHECKSUM = Pattern.compile("([0-9a-f]{32})(?:-([0-9]+))?");
+
+    private static ChecksumCache current = null;
+
+    private static final Object lock = new Object();
+
+    /**
+     * @return Shared cache persisted in the application support directory
+     */
+    public static ChecksumCache instance() {
+        synchronized(lock) {
+            if(null == current) {
+                final String directory = Preferences.instance().getProperty("application.support.path");
+                current = new ChecksumCache(null == directory ? null :
+                        new File(LocalFactory.createLocal(directory).getAbsolute(), "Checksums.bin"),
+                        Preferences.instance().getInteger("local.checksum.cache.size"));
+            }
+            return current;
+        }
+    }
+
+    private static final class Entry {
+        private final long inode;
+        private final long size;
+        private final long modified;
+        private final String checksum;
+
+        private Entry(final long inode, final long size, final long modified, final String checksum) {
+            this.inode = inode;
+            this.size = size;
+            this.modified = modified;
+            this.checksum = checksum;
+        }
+    }
+
+    /**
+     * Journal or null if not persisted
+     */
+    private final File file;
+
+    private final Map<String, Entry> entries;
+
+    private DataOutputStream journal;
+
+    private boolean loaded;
+
+    /**
+     * @param file     Journal or null to not persist checksums
+     * @param capacity Maximum number of entries
+     */
+    public ChecksumCache(final File file, final int capacity) {
+        this.file = file;
+        this.entries = new LRUMap(capacity);
+    }
+
+    /**
+     * @param path     Absolute path
+     * @param inode    File number or -1 if unknown
+     * @param size     Length of file
+     * @param modified Modification date in milliseconds
+     * @return Null if no checksum is known for this version of the file
+     */
+    public String get(final String path, final long inode, final long size, final long modified) {
+        return this.get(path, MD5, inode, size, modified);
+    }
+
+    /**
+     * @param path      Absolute path
+     * @param algorithm Name of checksum algorithm
+     * @param inode     File number or -1 if unknown
+     * @param size      Length of file
+     * @param modified  Modification date in milliseconds
+     * @return Null if no checksum is known for this version of the file
+     */
+    public synchronized String get(final String path, final String algorithm,
+                                   final long inode, final long size, final long modified) {
+        this.load();
+        final String key = this.key(path, algorithm);
+        final Entry entry = entries.get(key);
+        if(null == entry) {
+            return null;
+        }
+        if(entry.inode != inode || entry.size != size || entry.modified != modified) {
+            // File changed
+            entries.remove(key);
+            return null;
+        }
+        return entry.checksum;
+    }
+
+    /**
+     * @param path     Absolute path
+     * @param inode    File number or -1 if unknown
+     * @param size     Length of file
+     * @param modified Modification date in milliseconds
+     * @param checksum MD5 checksum as hex string
+     */
+    public void put(final String path, final long inode, final long size, final long modified,
+                    final String checksum) {
+        this.put(path, MD5, inode, size, modified, checksum);
+    }
+
+    /**
+     * @param path      Absolute path
+     * @param algorithm Name of checksum algorithm
+     * @param inode     File number or -1 if unknown
+     * @param size      Length of file
+     * @param modified  Modification date in milliseconds
+     * @param checksum  MD5 checksum as hex string optionally followed by a dash and the number of parts
+     */
+    public synchronized void put(final String path, final String algorithm,
+                                 final long inode, final long size, final long modified,
+                                 final String checksum) {
+        this.load();
+        final String key = this.key(path, algorithm);
+        entries.put(key, new Entry(inode, size, modified, checksum));
+        if(null == journal) {
+            return;
+        }
+        try {
+            this.write(journal, key, entries.get(key));
+            journal.flush();
+        }
+        catch(IOException e) {
+            log.warn(String.format("Failure writing checksum journal %s:%s", file, e.getMessage()));
+            IOUtils.closeQuietly(journal);
+            journal = null;
+        }
+    }
+
+    /**
+     * Read journal on first access
+     */
+    private void load() {
+        if(loaded) {
+            return;
+        }
+        loaded = true;
+        if(null == file) {
+            return;
+        }
+        int records = 0;
+        // Journal must be rewritten
+        boolean invalid = false;
+        if(file.exists()) {
+            DataInputStream in = null;
+            try {
+                in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+                if(in.readInt() != MAGIC) {
+                    log.warn(String.format("Discard checksum journal %s with unknown format", file));
+                    invalid = true;
+                }
+                else {
+                    while(true) {
+                        final String key;
+                        try {
+                            key = in.readUTF();
+                        }
+                        catch(EOFException e) {
+                            break;
+                        }
+                        final long inode = in.readLong();
+                        final long size = in.readLong();
+                        final long modified = in.readLong();
+                        final byte[] digest = new byte[16];
+                        in.readFully(digest);
+                        final int parts = in.readInt();
+                        entries.put(key, new Entry(inode, size, modified, parts > 0 ?
+                                String.format("%s-%d", ServiceUtils.toHex(digest), parts) : ServiceUtils.toHex(digest)));
+                        records++;
+                    }
+                }
+            }
+            catch(IOException e) {
+                // Truncated record
+                log.warn(String.format("Failure reading checksum journal %s:%s", file, e.getMessage()));
+                invalid = true;
+            }
+            finally {
+                IOUtils.closeQuietly(in);
+            }
+        }
+        try {
+            if(invalid || records > entries.size() * 2) {
+                this.compact();
+            }
+            else {
+                final boolean exists = file.exists();
+                journal = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+                if(!exists) {
+                    journal.writeInt(MAGIC);
+                }
+            }
+        }
+        catch(IOException e) {
+            log.warn(String.format("Failure opening checksum journal %s:%s", file, e.getMessage()));
+            IOUtils.closeQuietly(journal);
+            journal = null;
+        }
+    }
+
+    /**
+     * Rewrite journal with current entries only
+     */
+    private void compact() throws IOException {
+        if(log.isInfoEnabled()) {
+            log.info(String.format("Compact checksum journal %s with %d entries", file, entries.size()));
+        }
+        final File temporary = new File(file.getParentFile(), file.getName() + ".tmp");
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+        try {
+            out.writeInt(MAGIC);
+            for(Map.Entry<String, Entry> entry : entries.entrySet()) {
+                this.write(out, entry.getKey(), entry.getValue());
+            }
+        }
+        finally {
+            out.close();
+        }
+        if(!file.delete() && file.exists() || !temporary.renameTo(file)) {
+            throw new IOException(String.format("Failure replacing %s", file));
+        }
+        journal = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+    }
+
+    /**
+     * @param path      Absolute path
+     * @param algorithm Name of checksum algorithm
+     * @return Key of entry
+     */
+    private String key(final String path, final String algorithm) {
+        if(MD5.equals(algorithm)) {
+            return path;
+        }
+        return String.format("%s:%s", algorithm, path);
+    }
+
+    private void write(final DataOutputStream out, final String key, final Entry entry) throws IOException {
+        final Matcher matcher = CHECKSUM.matcher(StringUtils.defaultString(StringUtils.lowerCase(entry.checksum)));
+        if(!matcher.matches()) {
+            // No MD5 hex string
+            return;
+        }
+        out.writeUTF(key);
+        out.writeLong(entry.inode);
+        out.writeLong(entry.size);
+        out.writeLong(entry.modified);
+        out.write(ServiceUtils.fromHex(matcher.group(1)));
+        out.writeInt(null == matcher.group(2) ? 0 : Integer.parseInt(matcher.group(2)));
+    }
+}
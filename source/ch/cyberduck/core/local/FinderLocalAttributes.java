@@ -115,6 +115,7 @@ public class FinderLocalAttributes extends LocalAttributes {
     /**
      * @return The value for the key NSFileSystemFileNumber, or 0 if the receiver doesn’t have an entry for the key
      */
+    @Override
     public long getInode() {
         NSObject object = this.getNativeAttribute(NSFileManager.NSFileSystemFileNumber);
         if(null == object) {
@@ -3,15 +3,21 @@ package ch.cyberduck.core.local;
 import ch.cyberduck.core.AbstractPath;
 import ch.cyberduck.core.Attributes;
 import ch.cyberduck.core.Permission;
+import ch.cyberduck.core.Preferences;
 import ch.cyberduck.core.i18n.Locale;
+import ch.cyberduck.core.io.AbstractChecksumCompute;
+import ch.cyberduck.core.io.ChecksumService;
 import ch.cyberduck.core.io.MD5ChecksumCompute;
 
 import org.apache.log4j.Logger;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 /**
  *
@@ -134,24 +140,90 @@ public class LocalAttributes extends Attributes {
     }
 
     /**
-     * Calculate the MD5 sum as Hex-encoded string
+     * @return File number or -1 if unknown
+     */
+    public long getInode() {
+        return -1;
+    }
+
+    /**
+     * Calculate the MD5 sum as Hex-encoded string. Checksums are remembered until the file is modified.
      *
      * @return Null if failure
+     * @see ChecksumCache
      */
     @Override
     public String getChecksum() {
-        if(this.isFile()) {
-            try {
-                return new MD5ChecksumCompute().compute(new FileInputStream(path));
-            }
-            catch(FileNotFoundException e) {
-                log.error(String.format("Error computing checksum for path %s", path), e);
-                return null;
-            }
+        final Future<String> checksum = this.checksum();
+        if(null == checksum) {
+            return null;
+        }
+        try {
+            return checksum.get();
+        }
+        catch(InterruptedException e) {
+            log.error(String.format("Error computing checksum for path %s", path), e);
+        }
+        catch(ExecutionException e) {
+            log.error(String.format("Error computing checksum for path %s", path), e.getCause());
         }
         return null;
     }
 
+    /**
+     * Calculate the MD5 sum in the background unless it is already remembered for this version of the file.
+     *
+     * @return Null if not a file
+     * @see ChecksumService
+     */
+    public Future<String> checksum() {
+        return this.checksum(new MD5ChecksumCompute());
+    }
+
+    /**
+     * Calculate the checksum in the background unless it is already remembered for this version of the file.
+     *
+     * @param algorithm Checksum algorithm
+     * @return Null if not a file
+     * @see ChecksumService
+     */
+    public Future<String> checksum(final AbstractChecksumCompute algorithm) {
+        if(!this.isFile()) {
+            return null;
+        }
+        final File file = new File(path);
+        final long size = file.length();
+        final long modified = file.lastModified();
+        final long inode = this.getInode();
+        final ChecksumCache cache = ChecksumCache.instance();
+        final String cached = cache.get(path, algorithm.getName(), inode, size, modified);
+        if(null != cached) {
+            final FutureTask<String> future = new FutureTask<String>(new Callable<String>() {
+                @Override
+                public String call() {
+                    return cached;
+                }
+            });
+            future.run();
+            return future;
+        }
+        final ChecksumService service = ChecksumService.instance();
+        return service.submit(file, algorithm, new Callable<String>() {
+            @Override
+            public String call() throws IOException, NoSuchAlgorithmException {
+                final long start = System.currentTimeMillis();
+                final String checksum = service.read(file, algorithm);
+                // Do not remember if the file was modified while hashing or may still be modified within the
+                // resolution of the modification date without the date changing
+                if(file.length() == size && file.lastModified() == modified
+                        && start - modified > Preferences.instance().getLong("local.checksum.cache.granularity")) {
+                    cache.put(path, algorithm.getName(), inode, size, modified, checksum);
+                }
+                return checksum;
+            }
+        });
+    }
+
     private final class LocalPermission extends Permission {
         @Override
         public boolean isReadable() {
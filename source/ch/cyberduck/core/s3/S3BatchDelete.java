@@ -0,0 +1,196 @@
+package ch.cyberduck.core.s3;
+
+/*
+ * Copyright (c) 2002-2013 David Kocher. All rights reserved.
+ * http://cyberduck.ch/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * Bug fixes, suggestions and comments should be sent to:
+ * dkocher@cyberduck.ch
+ */
+
+import ch.cyberduck.core.Credentials;
+import ch.cyberduck.core.LoginControllerFactory;
+import ch.cyberduck.core.Preferences;
+import ch.cyberduck.core.Protocol;
+import ch.cyberduck.core.threading.ParallelExecutor;
+
+import org.apache.log4j.Logger;
+import org.jets3t.service.model.container.ObjectKeyAndVersion;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Delete keys of a bucket in batches of up to 1000 keys using multi-object delete requests.
+ * Batches are sent concurrently while further keys are added. Endpoints not supporting multi-object
+ * delete have the keys of each batch deleted one by one, with batches still running concurrently.
+ * No threads are started if all keys fit into a single batch.
+ *
+ * @version $Id$
+ */
+final class S3BatchDelete {
+    private static final Logger log = Logger.getLogger(S3BatchDelete.class);
+
+    private final S3Session session;
+
+    private final String container;
+
+    /**
+     * Multi factor authentication credentials or null
+     */
+    private final Credentials mfa;
+
+    /**
+     * Multi-object delete supported
+     */
+    private final boolean multiple;
+
+    private final int size;
+
+    /**
+     * Created once more than one batch is queued
+     */
+    private ParallelExecutor executor;
+
+    private List<ObjectKeyAndVersion> batch;
+
+    /**
+     * First full batch held back until another batch follows
+     */
+    private List<ObjectKeyAndVersion> queued;
+
+    private long count;
+
+    /**
+     * @param session   Connection
+     * @param container Bucket
+     * @throws ch.cyberduck.core.ConnectionCanceledException
+     *          Authentication canceled for MFA delete
+     */
+    S3BatchDelete(final S3Session session, final String container) throws IOException {
+        this.session = session;
+        this.container = container;
+        if(session.isMultiFactorAuthentication(container)) {
+            this.mfa = session.mfa(LoginControllerFactory.get(session));
+        }
+        else {
+            this.mfa = null;
+        }
+        this.multiple = session.getHost().getHostname().equals(Protocol.S3_SSL.getDefaultHostname());
+        this.size = Preferences.instance().getInteger("s3.delete.multiple.size");
+        this.batch = new ArrayList<ObjectKeyAndVersion>(size);
+    }
+
+    /**
+     * @param key Key and version ID for versioned object or null
+     * @throws IOException Previous batch failed
+     */
+    void add(final ObjectKeyAndVersion key) throws IOException {
+        batch.add(key);
+        if(batch.size() == size) {
+            this.flush();
+        }
+    }
+
+    /**
+     * Delete remaining keys and wait for all batches to complete
+     *
+     * @throws IOException A batch failed
+     */
+    void close() throws IOException {
+        if(null == executor && (null == queued || batch.isEmpty())) {
+            // Single batch deleted without starting threads
+            final List<ObjectKeyAndVersion> keys = null == queued ? batch : queued;
+            queued = null;
+            batch = new ArrayList<ObjectKeyAndVersion>(size);
+            if(!keys.isEmpty()) {
+                count += keys.size();
+                try {
+                    this.delete(keys);
+                }
+                catch(IOException e) {
+                    throw e;
+                }
+                catch(Exception e) {
+                    throw new IOException(e.getMessage(), e);
+                }
+            }
+        }
+        else {
+            this.flush();
+            executor.await();
+        }
+        if(log.isInfoEnabled()) {
+            log.info(String.format("Deleted %d keys in %s", count, container));
+        }
+    }
+
+    /**
+     * Cancel pending batches
+     */
+    void shutdown() {
+        if(null != executor) {
+            executor.shutdown();
+        }
+    }
+
+    private void flush() throws IOException {
+        if(batch.isEmpty()) {
+            return;
+        }
+        final List<ObjectKeyAndVersion> keys = batch;
+        batch = new ArrayList<ObjectKeyAndVersion>(size);
+        if(null == executor) {
+            if(null == queued) {
+                queued = keys;
+                return;
+            }
+            executor = new ParallelExecutor("delete", Preferences.instance().getInteger("s3.delete.concurrency"));
+            this.submit(queued);
+            queued = null;
+        }
+        this.submit(keys);
+    }
+
+    private void submit(final List<ObjectKeyAndVersion> keys) throws IOException {
+        count += keys.size();
+        executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                delete(keys);
+                return null;
+            }
+        });
+    }
+
+    private void delete(final List<ObjectKeyAndVersion> keys) throws Exception {
+        if(log.isDebugEnabled()) {
+            log.debug(String.format("Delete %d keys in %s", keys.size(), container));
+        }
+        final ObjectKeyAndVersion[] array = keys.toArray(new ObjectKeyAndVersion[keys.size()]);
+        if(null != mfa) {
+            session.getClient().deleteMultipleObjectsWithMFA(container, array,
+                    mfa.getUsername(), mfa.getPassword(), true);
+        }
+        else if(multiple) {
+            session.getClient().deleteMultipleObjects(container, array, true);
+        }
+        else {
+            for(ObjectKeyAndVersion k : keys) {
+                session.getClient().deleteObject(container, k.getKey());
+            }
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package ch.cyberduck.core.s3;
+
+/*
+ * Copyright (c) 2002-2013 David Kocher. All rights reserved.
+ * http://cyberduck.ch/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * Bug fixes, suggestions and comments should be sent to:
+ * dkocher@cyberduck.ch
+ */
+
+import ch.cyberduck.core.Preferences;
+import ch.cyberduck.core.threading.ParallelExecutor;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.jets3t.service.ServiceException;
+import org.jets3t.service.StorageObjectsChunk;
+import org.jets3t.service.acl.AccessControlList;
+import org.jets3t.service.model.MultipartPart;
+import org.jets3t.service.model.MultipartUpload;
+import org.jets3t.service.model.StorageObject;
+import org.jets3t.service.model.container.ObjectKeyAndVersion;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Server side copy of objects. Objects larger than the multipart threshold are copied in parts with
+ * concurrent upload part copy requests, which is also required for objects larger than 5 GB. All keys
+ * with a common prefix are copied from a single flat listing with a bounded number of concurrent requests.
+ * The ACL of the source is read only once for each object or not at all if the default ACL is applied.
+ *
+ * @version $Id$
+ */
+final class S3Copy {
+    private static final Logger log = Logger.getLogger(S3Copy.class);
+
+    /**
+     * Maximum size of an object for a single copy request
+     */
+    private static final long MAXIMUM_SINGLE_COPY_SIZE = 5L * 1024L * 1024L * 1024L;
+
+    /**
+     * Maximum number of parts of a multipart upload
+     */
+    private static final int MAXIMUM_PARTS = 10000;
+
+    private final S3Session session;
+
+    private final long threshold;
+
+    private final long size;
+
+    private final int concurrency;
+
+    /**
+     * Read the ACL of the source instead of applying the default ACL
+     */
+    private final boolean preserve;
+
+    S3Copy(final S3Session session) {
+        this.session = session;
+        this.threshold = Math.min(MAXIMUM_SINGLE_COPY_SIZE,
+                Preferences.instance().getLong("s3.copy.multipart.threshold"));
+        this.size = Preferences.instance().getLong("s3.copy.multipart.size");
+        this.concurrency = Preferences.instance().getInteger("s3.copy.concurrency");
+        this.preserve = Preferences.instance().getBoolean("s3.copy.acl.preserve");
+    }
+
+    /**
+     * @param bucket Source bucket
+     * @param key    Source key
+     * @return ACL to apply to the copy or null if unknown
+     */
+    AccessControlList acl(final String bucket, final String key) throws IOException, ServiceException {
+        if(session.getHost().getCredentials().isAnonymousLogin()) {
+            return null;
+        }
+        if(preserve) {
+            return session.getClient().getObjectAcl(bucket, key);
+        }
+        if(Preferences.instance().getProperty("s3.key.acl.default").equals("public-read")) {
+            return session.getPublicCannedReadAcl();
+        }
+        // Owner gets FULL_CONTROL. No one else has access rights (default).
+        return session.getPrivateCannedAcl();
+    }
+
+    /**
+     * Copy a single object retaining its metadata.
+     *
+     * @param bucket       Source bucket
+     * @param source       Source object with key, size, storage class and encryption
+     * @param targetBucket Target bucket
+     * @param targetKey    Target key
+     * @param acl          ACL to apply to the copy or null to read from source
+     */
+    void copy(final String bucket, final StorageObject source,
+              final String targetBucket, final String targetKey, final AccessControlList acl)
+            throws IOException, ServiceException {
+        session.check();
+        final AccessControlList permissions = null == acl ? this.acl(bucket, source.getKey()) : acl;
+        if(session.isMultipartUploadSupported() && source.getContentLength() > threshold) {
+            this.multipart(bucket, source, targetBucket, targetKey, permissions);
+        }
+        else {
+            final StorageObject destination = new StorageObject(targetKey);
+            // Keep same storage class
+            destination.setStorageClass(source.getStorageClass());
+            // Keep encryption setting
+            destination.setServerSideEncryptionAlgorithm(source.getServerSideEncryptionAlgorithm());
+            destination.setAcl(permissions);
+            // Copying object applying the metadata of the original
+            session.getClient().copyObject(bucket, source.getKey(), targetBucket, destination, false);
+        }
+    }
+
+    /**
+     * Copy all objects with the prefix from a single flat listing.
+     *
+     * @param bucket       Source bucket
+     * @param prefix       Source prefix including trailing delimiter
+     * @param targetBucket Target bucket
+     * @param targetPrefix Prefix to replace the source prefix with
+     * @return Keys copied
+     */
+    List<ObjectKeyAndVersion> copy(final String bucket, final String prefix,
+                                   final String targetBucket, final String targetPrefix)
+            throws IOException, ServiceException {
+        final List<ObjectKeyAndVersion> copied
+                = Collections.synchronizedList(new ArrayList<ObjectKeyAndVersion>());
+        final ParallelExecutor executor = new ParallelExecutor("copy", concurrency);
+        try {
+            String priorLastKey = null;
+            do {
+                session.check();
+                // No delimiter to list all keys below prefix
+                final StorageObjectsChunk chunk = session.getClient().listObjectsChunked(
+                        bucket, prefix, null, Preferences.instance().getInteger("s3.listing.chunksize"),
+                        priorLastKey);
+                for(final StorageObject object : chunk.getObjects()) {
+                    final String key = rename(object.getKey(), prefix, targetPrefix);
+                    executor.submit(new Callable<Void>() {
+                        @Override
+                        public Void call() throws IOException, ServiceException {
+                            copy(bucket, object, targetBucket, key, null);
+                            copied.add(new ObjectKeyAndVersion(object.getKey()));
+                            return null;
+                        }
+                    });
+                }
+                priorLastKey = chunk.getPriorLastKey();
+            }
+            while(priorLastKey != null);
+            executor.await();
+        }
+        finally {
+            executor.shutdown();
+        }
+        if(log.isInfoEnabled()) {
+            log.info(String.format("Copied %d keys from %s to %s", copied.size(), prefix, targetPrefix));
+        }
+        return new ArrayList<ObjectKeyAndVersion>(copied);
+    }
+
+    /**
+     * Copy with concurrent upload part copy requests
+     */
+    private void multipart(final String bucket, final StorageObject source,
+                           final String targetBucket, final String targetKey, final AccessControlList acl)
+            throws IOException, ServiceException {
+        // Metadata is not retained with multipart copy
+        final StorageObject details = session.getClient().getObjectDetails(bucket, source.getKey());
+        final Map<String, Object> metadata = details.getModifiableMetadata();
+        if(StringUtils.isNotBlank(details.getServerSideEncryptionAlgorithm())) {
+            metadata.put(session.getClient().getRestHeaderPrefix() + "server-side-encryption",
+                    details.getServerSideEncryptionAlgorithm());
+        }
+        final MultipartUpload multipart = session.getClient().multipartStartUpload(
+                targetBucket, targetKey, metadata, null, details.getStorageClass());
+        if(log.isInfoEnabled()) {
+            log.info(String.format("Copy %s in parts with upload %s", source.getKey(), multipart.getUploadId()));
+        }
+        // Fail if the source is modified while copying
+        final String[] etag = null == details.getETag() ? null : new String[]{details.getETag()};
+        final List<MultipartPart> completed
+                = Collections.synchronizedList(new ArrayList<MultipartPart>());
+        final ParallelExecutor executor = new ParallelExecutor("multipart", concurrency);
+        boolean success = false;
+        try {
+            for(final Part part : parts(details.getContentLength(), size)) {
+                executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException, ServiceException {
+                        session.check();
+                        completed.add(session.getClient().multipartUploadPartCopy(multipart, part.getNumber(),
+                                bucket, source.getKey(), null, null, etag, null, part.getStart(), part.getEnd(), null));
+                        return null;
+                    }
+                });
+            }
+            executor.await();
+            final List<MultipartPart> parts = new ArrayList<MultipartPart>(completed);
+            Collections.sort(parts, new Comparator<MultipartPart>() {
+                @Override
+                public int compare(final MultipartPart o1, final MultipartPart o2) {
+                    return o1.getPartNumber().compareTo(o2.getPartNumber());
+                }
+            });
+            session.getClient().multipartCompleteUpload(multipart, parts);
+            success = true;
+        }
+        finally {
+            executor.shutdown();
+            if(!success) {
+                log.warn(String.format("Cancel multipart copy %s", multipart.getUploadId()));
+                session.getClient().multipartAbortUpload(multipart);
+            }
+        }
+        if(null != acl) {
+            session.getClient().putObjectAcl(targetBucket, targetKey, acl);
+        }
+    }
+
+    /**
+     * @param key          Source key
+     * @param prefix       Source prefix
+     * @param targetPrefix Prefix to replace the source prefix with
+     * @return Target key
+     */
+    static String rename(final String key, final String prefix, final String targetPrefix) {
+        return targetPrefix + StringUtils.removeStart(key, prefix);
+    }
+
+    /**
+     * @param length Size of the object
+     * @param size   Minimum part size
+     * @return Byte ranges to copy with the part size increased to stay within the maximum number of parts
+     */
+    static List<Part> parts(final long length, final long size) {
+        final List<Part> parts = new ArrayList<Part>();
+        final long partsize = Math.max(size, length / MAXIMUM_PARTS + 1);
+        long offset = 0;
+        for(int number = 1; offset < length; number++) {
+            final long end = Math.min(length, offset + partsize) - 1;
+            parts.add(new Part(number, offset, end));
+            offset = end + 1;
+        }
+        return parts;
+    }
+
+    /**
+     * Byte range of the source object copied with a single request
+     */
+    static final class Part {
+        private final int number;
+        private final long start;
+
+        /**
+         * Inclusive
+         */
+        private final long end;
+
+        Part(final int number, final long start, final long end) {
+            this.number = number;
+            this.start = start;
+            this.end = end;
+        }
+
+        int getNumber() {
+            return number;
+        }
+
+        long getStart() {
+            return start;
+        }
+
+        long getEnd() {
+            return end;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder();
+            sb.append("Part");
+            sb.append("{number=").append(number);
+            sb.append(", start=").append(start);
+            sb.append(", end=").append(end);
+            sb.append('}');
+            return sb.toString();
+        }
+    }
+}
@@ -445,6 +445,32 @@ public class S3Path extends CloudPath {
         }
     }
 
+    @Override
+    public InputStream read(final long offset, final long length) throws IOException {
+        try {
+            if(this.attributes().isDuplicate()) {
+                return this.getSession().getClient().getVersionedObject(attributes().getVersionId(),
+                        this.getContainerName(), this.getKey(),
+                        null, // ifModifiedSince
+                        null, // ifUnmodifiedSince
+                        null, // ifMatch
+                        null, // ifNoneMatch
+                        offset, offset + length - 1).getDataInputStream();
+            }
+            return this.getSession().getClient().getObject(this.getContainerName(), this.getKey(),
+                    null, // ifModifiedSince
+                    null, // ifUnmodifiedSince
+                    null, // ifMatch
+                    null, // ifNoneMatch
+                    offset, offset + length - 1).getDataInputStream();
+        }
+        catch(ServiceException e) {
+            IOException failure = new IOException(e.getMessage());
+            failure.initCause(e);
+            throw failure;
+        }
+    }
+
     @Override
     public void download(BandwidthThrottle throttle, final StreamListener listener,
                          final TransferStatus status) {
@@ -627,7 +653,14 @@ public class S3Path extends CloudPath {
         final ThreadFactory threadFactory = new NamedThreadFactory("multipart");
 
         MultipartUpload multipart = null;
-        if(status.isResume()) {
+        if(status.isResume() && null != status.getMultipart()) {
+            // Identifier of interrupted upload recorded in transfer journal
+            if(log.isInfoEnabled()) {
+                log.info(String.format("Resume multipart upload %s from journal", status.getMultipart()));
+            }
+            multipart = new MultipartUpload(status.getMultipart(), this.getContainerName(), this.getKey());
+        }
+        else if(status.isResume()) {
             // This operation lists in-progress multipart uploads. An in-progress multipart upload is a
             // multipart upload that has been initiated, using the Initiate Multipart Upload request, but has
             // not yet been completed or aborted.
@@ -646,6 +679,21 @@ public class S3Path extends CloudPath {
                 break;
             }
         }
+        List<MultipartPart> completed = null;
+        if(null != multipart) {
+            log.info(String.format("List completed parts of %s", multipart.getUploadId()));
+            try {
+                // This operation lists the parts that have been uploaded for a specific multipart upload.
+                completed = this.getSession().getClient().multipartListParts(multipart);
+            }
+            catch(ServiceException e) {
+                if(null == status.getMultipart() || e.getResponseCode() != 404) {
+                    throw e;
+                }
+                log.warn(String.format("Multipart upload %s no longer found", multipart.getUploadId()));
+                multipart = null;
+            }
+        }
         if(null == multipart) {
             log.info("No pending multipart upload found");
 
@@ -662,17 +710,10 @@ public class S3Path extends CloudPath {
 
             multipart = this.getSession().getClient().multipartStartUpload(
                     this.getContainerName(), this.getKey(), metadata);
-        }
-
-        final List<MultipartPart> completed;
-        if(status.isResume()) {
-            log.info(String.format("List completed parts of %s", multipart.getUploadId()));
-            // This operation lists the parts that have been uploaded for a specific multipart upload.
-            completed = this.getSession().getClient().multipartListParts(multipart);
-        }
-        else {
             completed = new ArrayList<MultipartPart>();
         }
+        // Recorded in transfer journal to resume after interruption
+        status.setMultipart(multipart.getUploadId());
 
         /**
          * At any point, at most
@@ -743,6 +784,7 @@ public class S3Path extends CloudPath {
                 // Cancel all previous parts
                 log.info(String.format("Cancel multipart upload %s", multipart.getUploadId()));
                 this.getSession().getClient().multipartAbortUpload(multipart);
+                status.setMultipart(null);
             }
             // Cancel future tasks
             pool.shutdown();
@@ -837,6 +879,14 @@ public class S3Path extends CloudPath {
 
     @Override
     public AttributedList<Path> list(final AttributedList<Path> children) {
+        return this.list(children, new NullListProgressListener());
+    }
+
+    /**
+     * Each chunk of keys is added to the listing and passed to the listener as soon as it is read.
+     */
+    @Override
+    protected AttributedList<Path> list(final AttributedList<Path> children, final ListProgressListener listener) {
         try {
             this.getSession().check();
             this.getSession().message(MessageFormat.format(Locale.localizedString("Listing directory {0}", "Status"),
@@ -855,6 +905,7 @@ public class S3Path extends CloudPath {
                     }
                     children.add(p);
                 }
+                listener.chunk(children, children);
             }
             else {
                 final String container = this.getContainerName();
@@ -879,7 +930,7 @@ public class S3Path extends CloudPath {
                 // element in the CommonPrefixes collection. These rolled-up keys are
                 // not returned elsewhere in the response.
                 final String delimiter = String.valueOf(Path.DELIMITER);
-                children.addAll(this.listObjects(container, prefix, delimiter));
+                this.listObjects(children, container, prefix, delimiter, listener);
                 if(Preferences.instance().getBoolean("s3.revisions.enable")) {
                     if(this.getSession().isVersioning(container)) {
                         String priorLastKey = null;
@@ -889,7 +940,9 @@ public class S3Path extends CloudPath {
                                     container, prefix, delimiter,
                                     Preferences.instance().getInteger("s3.listing.chunksize"),
                                     priorLastKey, priorLastVersionId, true);
-                            children.addAll(this.listVersions(container, Arrays.asList(chunk.getItems())));
+                            final List<Path> versions = this.listVersions(container, Arrays.asList(chunk.getItems()));
+                            children.addAll(versions);
+                            listener.chunk(children, versions);
                             priorLastKey = chunk.getNextKeyMarker();
                             priorLastVersionId = chunk.getNextVersionIdMarker();
                         }
@@ -898,6 +951,11 @@ public class S3Path extends CloudPath {
                 }
             }
         }
+        catch(ConnectionCanceledException e) {
+            log.warn(String.format("Listing directory canceled with %d files read:%s", children.size(), e.getMessage()));
+            // Incomplete listing
+            children.attributes().setInvalid(true);
+        }
         catch(ServiceException e) {
             log.warn("Listing directory failed:" + e.getMessage());
             children.attributes().setReadable(false);
@@ -915,12 +973,22 @@ public class S3Path extends CloudPath {
         return children;
     }
 
-    protected AttributedList<Path> listObjects(String bucket, String prefix, String delimiter)
+    /**
+     * @param children  Listing to add the objects to
+     * @param bucket    Container name
+     * @param prefix    Key prefix
+     * @param delimiter Roll up keys with this delimiter after the prefix into common prefixes
+     * @param listener  Notified with the files of every chunk read
+     * @throws ConnectionCanceledException Listing canceled by listener
+     */
+    protected void listObjects(final AttributedList<Path> children,
+                               final String bucket, final String prefix, final String delimiter,
+                               final ListProgressListener listener)
             throws IOException, ServiceException {
-        final AttributedList<Path> children = new AttributedList<Path>();
         // Null if listing is complete
         String priorLastKey = null;
         do {
+            final List<Path> added = new ArrayList<Path>();
             // Read directory listing in chunks. List results are always returned
             // in lexicographic (alphabetical) order.
             final StorageObjectsChunk chunk = this.getSession().getClient().listObjectsChunked(
@@ -928,39 +996,31 @@ public class S3Path extends CloudPath {
                     Preferences.instance().getInteger("s3.listing.chunksize"), priorLastKey);
 
             final StorageObject[] objects = chunk.getObjects();
+            // Directory placeholders
+            final Map<String, Boolean> placeholders
+                    = this.getSession().getPlaceholderResolver().resolve(bucket, Arrays.asList(objects));
             for(StorageObject object : objects) {
                 final S3Path p = (S3Path) PathFactory.createPath(this.getSession(), bucket,
                         object.getKey(), FILE_TYPE);
                 p.setParent(this);
                 p.attributes().setSize(object.getContentLength());
                 p.attributes().setModificationDate(object.getLastModifiedDate().getTime());
-                // Directory placeholders
-                if(object.isDirectoryPlaceholder()) {
+                if(placeholders.get(object.getKey())) {
                     p.attributes().setType(DIRECTORY_TYPE);
                     p.attributes().setPlaceholder(true);
                 }
-                else if(0 == object.getContentLength()) {
-                    if("application/x-directory".equals(p.getDetails().getContentType())) {
-                        p.attributes().setType(DIRECTORY_TYPE);
-                        p.attributes().setPlaceholder(true);
-                    }
-                }
                 final Object etag = object.getMetadataMap().get(StorageObject.METADATA_HEADER_ETAG);
                 if(null != etag) {
-                    String s = etag.toString().replaceAll("\"", StringUtils.EMPTY);
-                    p.attributes().setChecksum(s);
-                    if(s.equals("d66759af42f282e1ba19144df2d405d0")) {
-                        // Fix #5374 s3sync.rb interoperability
-                        p.attributes().setType(DIRECTORY_TYPE);
-                        p.attributes().setPlaceholder(true);
-                    }
+                    p.attributes().setChecksum(etag.toString().replaceAll("\"", StringUtils.EMPTY));
                 }
                 p.attributes().setStorageClass(object.getStorageClass());
                 p.attributes().setEncryption(object.getServerSideEncryptionAlgorithm());
                 if(object instanceof S3Object) {
                     p.attributes().setVersionId(((S3Object) object).getVersionId());
                 }
-                children.add(p);
+                if(children.add(p)) {
+                    added.add(p);
+                }
             }
             final String[] prefixes = chunk.getCommonPrefixes();
             for(String common : prefixes) {
@@ -975,12 +1035,14 @@ public class S3Path extends CloudPath {
                     continue;
                 }
                 p.attributes().setPlaceholder(false);
-                children.add(p);
+                if(children.add(p)) {
+                    added.add(p);
+                }
             }
+            listener.chunk(children, added);
             priorLastKey = chunk.getPriorLastKey();
         }
         while(priorLastKey != null);
-        return children;
     }
 
     private List<Path> listVersions(String bucket, List<BaseVersionOrDeleteMarker> versionOrDeleteMarkers)
@@ -1168,31 +1230,22 @@ public class S3Path extends CloudPath {
                         new ObjectKeyAndVersion(this.getKey(), this.attributes().getVersionId())));
             }
             else if(attributes().isDirectory()) {
-                final List<ObjectKeyAndVersion> files = new ArrayList<ObjectKeyAndVersion>();
-                for(Path child : this.children()) {
-                    if(!this.getSession().isConnected()) {
-                        break;
-                    }
-                    if(child.attributes().isDirectory()) {
-                        child.delete();
-                    }
-                    else {
-                        files.add(new ObjectKeyAndVersion(child.getKey(), child.attributes().getVersionId()));
+                final S3BatchDelete batch = new S3BatchDelete(this.getSession(), container);
+                try {
+                    // Single listing of all keys with the prefix not rolled up into common prefixes. Includes
+                    // the directory placeholder with the format `/placeholder/' as a key.
+                    this.listKeys(container, batch);
+                    if(!this.isContainer()) {
+                        // Always returning 204 even if the key does not exist.
+                        // Fallback to legacy directory placeholders with metadata instead of key with trailing delimiter
+                        batch.add(new ObjectKeyAndVersion(this.getKey(),
+                                this.attributes().getVersionId()));
+                        // AWS does not return 404 for non-existing keys
                     }
+                    batch.close();
                 }
-                if(!this.isContainer()) {
-                    // Because we normalize paths and remove a trailing delimiter we add it here again as the
-                    // default directory placeholder formats has the format `/placeholder/' as a key.
-                    files.add(new ObjectKeyAndVersion(this.getKey() + Path.DELIMITER,
-                            this.attributes().getVersionId()));
-                    // Always returning 204 even if the key does not exist.
-                    // Fallback to legacy directory placeholders with metadata instead of key with trailing delimiter
-                    files.add(new ObjectKeyAndVersion(this.getKey(),
-                            this.attributes().getVersionId()));
-                    // AWS does not return 404 for non-existing keys
-                }
-                if(!files.isEmpty()) {
-                    this.delete(container, files);
+                finally {
+                    batch.shutdown();
                 }
                 if(this.isContainer()) {
                     // Finally delete bucket itself
@@ -1209,32 +1262,60 @@ public class S3Path extends CloudPath {
     }
 
     /**
+     * Add all keys below this directory to the batch including all versions if versioning is enabled.
+     *
      * @param container Bucket
-     * @param keys      Key and version ID for versioned object or null
-     * @throws ConnectionCanceledException Authentication canceled for MFA delete
-     * @throws ServiceException            Service error
+     * @param batch     Keys to delete
      */
-    protected void delete(String container, List<ObjectKeyAndVersion> keys) throws ConnectionCanceledException, ServiceException {
-        if(this.getSession().isMultiFactorAuthentication(container)) {
-            final LoginController c = LoginControllerFactory.get(this.getSession());
-            final Credentials credentials = this.getSession().mfa(c);
-            this.getSession().getClient().deleteMultipleObjectsWithMFA(container,
-                    keys.toArray(new ObjectKeyAndVersion[keys.size()]),
-                    credentials.getUsername(),
-                    credentials.getPassword(),
-                    true);
+    private void listKeys(final String container, final S3BatchDelete batch) throws IOException, ServiceException {
+        final String prefix = this.isContainer() ? null : this.getKey() + Path.DELIMITER;
+        final int chunksize = Preferences.instance().getInteger("s3.listing.chunksize");
+        if(Preferences.instance().getBoolean("s3.revisions.enable") && this.getSession().isVersioning(container)) {
+            String priorLastKey = null;
+            String priorLastVersionId = null;
+            do {
+                this.getSession().check();
+                final VersionOrDeleteMarkersChunk chunk = this.getSession().getClient().listVersionedObjectsChunked(
+                        container, prefix, null, chunksize, priorLastKey, priorLastVersionId, true);
+                for(BaseVersionOrDeleteMarker marker : chunk.getItems()) {
+                    batch.add(new ObjectKeyAndVersion(marker.getKey(), marker.getVersionId()));
+                }
+                priorLastKey = chunk.getNextKeyMarker();
+                priorLastVersionId = chunk.getNextVersionIdMarker();
+            }
+            while(priorLastKey != null);
         }
         else {
-            if(this.getHost().getHostname().equals(Protocol.S3_SSL.getDefaultHostname())) {
-                this.getSession().getClient().deleteMultipleObjects(container,
-                        keys.toArray(new ObjectKeyAndVersion[keys.size()]),
-                        true);
-            }
-            else {
-                for(ObjectKeyAndVersion k : keys) {
-                    this.getSession().getClient().deleteObject(container, k.getKey());
+            String priorLastKey = null;
+            do {
+                this.getSession().check();
+                final StorageObjectsChunk chunk = this.getSession().getClient().listObjectsChunked(
+                        container, prefix, null, chunksize, priorLastKey);
+                for(StorageObject object : chunk.getObjects()) {
+                    batch.add(new ObjectKeyAndVersion(object.getKey()));
                 }
+                priorLastKey = chunk.getPriorLastKey();
             }
+            while(priorLastKey != null);
+        }
+    }
+
+    /**
+     * @param container Bucket
+     * @param keys      Key and version ID for versioned object or null
+     * @throws ConnectionCanceledException Authentication canceled for MFA delete
+     * @throws IOException                 Service error
+     */
+    protected void delete(String container, List<ObjectKeyAndVersion> keys) throws IOException {
+        final S3BatchDelete batch = new S3BatchDelete(this.getSession(), container);
+        try {
+            for(ObjectKeyAndVersion key : keys) {
+                batch.add(key);
+            }
+            batch.close();
+        }
+        finally {
+            batch.shutdown();
         }
     }
 
@@ -1245,29 +1326,25 @@ public class S3Path extends CloudPath {
             this.getSession().message(MessageFormat.format(Locale.localizedString("Renaming {0} to {1}", "Status"),
                     this.getName(), renamed));
 
-            if(attributes().isFile() || attributes().isPlaceholder()) {
-                final StorageObject destination = new StorageObject(((S3Path) renamed).getKey());
-                // Keep same storage class
-                destination.setStorageClass(this.attributes().getStorageClass());
-                // Keep encryption setting
-                destination.setServerSideEncryptionAlgorithm(this.attributes().getEncryption());
-                // Apply non standard ACL
-                if(Acl.EMPTY.equals(this.attributes().getAcl())) {
-                    this.readAcl();
-                }
-                destination.setAcl(this.convert(this.attributes().getAcl()));
-                // Moving the object retaining the metadata of the original.
-                this.getSession().getClient().moveObject(this.getContainerName(), this.getKey(), ((S3Path) renamed).getContainerName(),
-                        destination, false);
-            }
-            else if(attributes().isDirectory()) {
-                for(AbstractPath i : this.children()) {
-                    if(!this.getSession().isConnected()) {
-                        break;
-                    }
-                    i.rename(PathFactory.createPath(this.getSession(), renamed.getAbsolute(),
-                            i.getName(), i.attributes().getType()));
+            final S3Copy copy = new S3Copy(this.getSession());
+            final S3Path target = (S3Path) renamed;
+            final String container = this.getContainerName();
+            if(attributes().isFile()) {
+                // Copying the object retaining the metadata of the original.
+                copy.copy(container, this.toStorageObject(), target.getContainerName(), target.getKey(), this.getCopyAcl());
+                this.delete(container, Collections.singletonList(new ObjectKeyAndVersion(this.getKey())));
+            }
+            else if(attributes().isDirectory() && !this.isContainer()) {
+                // Copy all keys including the placeholder from a single listing and only delete when all are copied
+                final List<ObjectKeyAndVersion> keys = new ArrayList<ObjectKeyAndVersion>(copy.copy(container,
+                        this.getKey() + Path.DELIMITER, target.getContainerName(), target.getKey() + Path.DELIMITER));
+                // Legacy directory placeholders with metadata instead of key with trailing delimiter
+                final StorageObject placeholder = this.getPlaceholder(container);
+                if(null != placeholder) {
+                    copy.copy(container, placeholder, target.getContainerName(), target.getKey(), null);
+                    keys.add(new ObjectKeyAndVersion(this.getKey()));
                 }
+                this.delete(container, keys);
             }
         }
         catch(ServiceException e) {
@@ -1288,19 +1365,9 @@ public class S3Path extends CloudPath {
                         this.getName(), copy));
 
                 if(this.attributes().isFile()) {
-                    StorageObject destination = new StorageObject(((S3Path) copy).getKey());
-                    // Keep same storage class
-                    destination.setStorageClass(this.attributes().getStorageClass());
-                    // Keep encryption setting
-                    destination.setServerSideEncryptionAlgorithm(this.attributes().getEncryption());
-                    // Apply non standard ACL
-                    if(Acl.EMPTY.equals(this.attributes().getAcl())) {
-                        this.readAcl();
-                    }
-                    destination.setAcl(this.convert(this.attributes().getAcl()));
                     // Copying object applying the metadata of the original
-                    this.getSession().getClient().copyObject(this.getContainerName(), this.getKey(),
-                            ((S3Path) copy).getContainerName(), destination, false);
+                    new S3Copy(this.getSession()).copy(this.getContainerName(), this.toStorageObject(),
+                            ((S3Path) copy).getContainerName(), ((S3Path) copy).getKey(), this.getCopyAcl());
                     listener.bytesSent(this.attributes().getSize());
                     status.setComplete();
                 }
@@ -1318,6 +1385,43 @@ public class S3Path extends CloudPath {
         }
     }
 
+    /**
+     * @param container Bucket
+     * @return Legacy directory placeholder without trailing delimiter or null if not found
+     */
+    private StorageObject getPlaceholder(final String container) throws IOException, ServiceException {
+        try {
+            return this.getSession().getClient().getObjectDetails(container, this.getKey());
+        }
+        catch(ServiceException e) {
+            if(e.getResponseCode() == 404) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return Object with key, size, storage class and encryption from the listing
+     */
+    private StorageObject toStorageObject() {
+        final StorageObject object = new StorageObject(this.getKey());
+        object.setContentLength(this.attributes().getSize());
+        object.setStorageClass(this.attributes().getStorageClass());
+        object.setServerSideEncryptionAlgorithm(this.attributes().getEncryption());
+        return object;
+    }
+
+    /**
+     * @return Non standard ACL already read or null to have it read for the copy
+     */
+    private AccessControlList getCopyAcl() {
+        if(Acl.EMPTY.equals(this.attributes().getAcl())) {
+            return null;
+        }
+        return this.convert(this.attributes().getAcl());
+    }
+
     /**
      * Overwritten to provide publicly accessible URL of given object
      *
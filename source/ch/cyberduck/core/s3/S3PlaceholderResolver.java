@@ -0,0 +1,181 @@
+package ch.cyberduck.core.s3;
+
+/*
+ * Copyright (c) 2002-2013 David Kocher. All rights reserved.
+ * http://cyberduck.ch/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * Bug fixes, suggestions and comments should be sent to:
+ * dkocher@cyberduck.ch
+ */
+
+import ch.cyberduck.core.ConnectionCanceledException;
+import ch.cyberduck.core.Preferences;
+import ch.cyberduck.core.threading.NamedThreadFactory;
+
+import org.apache.commons.collections.map.LRUMap;
+import org.apache.log4j.Logger;
+import org.jets3t.service.ServiceException;
+import org.jets3t.service.model.StorageObject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Determine if objects in a listing are directory placeholders. Answers from the key, size and ETag
+ * in the listing where possible. Only empty objects without a delimiter suffix may be legacy placeholders
+ * marked by their content type and require a HEAD request. These are sent concurrently and the results
+ * remembered for the lifetime of the session.
+ *
+ * @version $Id$
+ */
+final class S3PlaceholderResolver {
+    private static final Logger log = Logger.getLogger(S3PlaceholderResolver.class);
+
+    private static final String MIMETYPE_DIRECTORY = "application/x-directory";
+
+    /**
+     * Fix #5374 s3sync.rb interoperability
+     */
+    private static final String ETAG_S3SYNC = "d66759af42f282e1ba19144df2d405d0";
+
+    private final S3Session session;
+
+    /**
+     * Placeholder status by bucket, key and ETag
+     */
+    private final Map<String, Boolean> resolved;
+
+    S3PlaceholderResolver(final S3Session session) {
+        this.session = session;
+        this.resolved = Collections.synchronizedMap(new LRUMap(
+                Preferences.instance().getInteger("s3.listing.placeholder.cache")));
+    }
+
+    /**
+     * @param object Object from listing
+     * @return Null if the listing does not tell
+     */
+    static Boolean detect(final StorageObject object) {
+        if(object.isDirectoryPlaceholder()) {
+            // Key with delimiter suffix or metadata with directory content type
+            return true;
+        }
+        final Object etag = object.getMetadataMap().get(StorageObject.METADATA_HEADER_ETAG);
+        if(null != etag && etag.toString().replaceAll("\"", "").equals(ETAG_S3SYNC)) {
+            return true;
+        }
+        if(object.getContentLength() > 0) {
+            return false;
+        }
+        if(object.isMetadataComplete()) {
+            // Content type known
+            return false;
+        }
+        return null;
+    }
+
+    /**
+     * @param bucket  Bucket name
+     * @param objects Objects from listing
+     * @return Placeholder status for each object by key
+     * @throws ConnectionCanceledException Interrupted
+     */
+    Map<String, Boolean> resolve(final String bucket, final List<StorageObject> objects)
+            throws ConnectionCanceledException {
+        final Map<String, Boolean> result = new HashMap<String, Boolean>();
+        final List<StorageObject> ambiguous = new ArrayList<StorageObject>();
+        for(StorageObject object : objects) {
+            final Boolean placeholder = detect(object);
+            if(null != placeholder) {
+                result.put(object.getKey(), placeholder);
+                continue;
+            }
+            final Boolean previous = resolved.get(this.key(bucket, object));
+            if(null != previous) {
+                result.put(object.getKey(), previous);
+                continue;
+            }
+            if(!Preferences.instance().getBoolean("s3.listing.placeholder.head")) {
+                result.put(object.getKey(), false);
+                continue;
+            }
+            ambiguous.add(object);
+        }
+        if(ambiguous.isEmpty()) {
+            return result;
+        }
+        if(log.isDebugEnabled()) {
+            log.debug(String.format("Request details for %d empty objects in %s", ambiguous.size(), bucket));
+        }
+        final ExecutorService pool = Executors.newFixedThreadPool(
+                Math.min(ambiguous.size(), Preferences.instance().getInteger("s3.listing.placeholder.concurrency")),
+                new NamedThreadFactory("placeholder"));
+        try {
+            final Map<StorageObject, Future<Boolean>> futures = new HashMap<StorageObject, Future<Boolean>>();
+            for(final StorageObject object : ambiguous) {
+                futures.put(object, pool.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws IOException {
+                        return head(bucket, object);
+                    }
+                }));
+            }
+            for(Map.Entry<StorageObject, Future<Boolean>> entry : futures.entrySet()) {
+                final StorageObject object = entry.getKey();
+                boolean placeholder;
+                try {
+                    placeholder = entry.getValue().get();
+                }
+                catch(InterruptedException e) {
+                    throw new ConnectionCanceledException(e.getMessage(), e);
+                }
+                catch(ExecutionException e) {
+                    log.warn(String.format("Cannot read details of %s:%s", object.getKey(), e.getMessage()));
+                    placeholder = false;
+                }
+                resolved.put(this.key(bucket, object), placeholder);
+                result.put(object.getKey(), placeholder);
+            }
+        }
+        finally {
+            pool.shutdownNow();
+        }
+        return result;
+    }
+
+    private boolean head(final String bucket, final StorageObject object) throws IOException {
+        try {
+            final StorageObject details = session.getClient().getObjectDetails(bucket, object.getKey());
+            return MIMETYPE_DIRECTORY.equals(details.getContentType());
+        }
+        catch(ServiceException e) {
+            // Anonymous services can only get a publicly-readable object's details
+            log.warn(String.format("Cannot read object details:%s", e.getMessage()));
+            return false;
+        }
+    }
+
+    private String key(final String bucket, final StorageObject object) {
+        return String.format("%s/%s/%s", bucket, object.getKey(),
+                object.getMetadataMap().get(StorageObject.METADATA_HEADER_ETAG));
+    }
+}
@@ -49,6 +49,7 @@ import org.jets3t.service.impl.rest.XmlResponsesSaxParser;
 import org.jets3t.service.impl.rest.httpclient.RestS3Service;
 import org.jets3t.service.model.*;
 import org.jets3t.service.model.cloudfront.CustomOrigin;
+import org.jets3t.service.model.container.ObjectKeyAndVersion;
 import org.jets3t.service.security.AWSCredentials;
 import org.jets3t.service.security.OAuth2Credentials;
 import org.jets3t.service.security.OAuth2Tokens;
@@ -73,8 +74,68 @@ public class S3Session extends CloudSession {
 
     private RequestEntityRestStorageService client;
 
+    private final S3PlaceholderResolver placeholders;
+
     public S3Session(Host h) {
         super(h);
+        this.placeholders = new S3PlaceholderResolver(this);
+    }
+
+    /**
+     * Selected files are deleted with multi-object delete requests per bucket.
+     *
+     * @param files Selected files
+     */
+    @Override
+    public void delete(final List<Path> files) {
+        final Map<String, List<ObjectKeyAndVersion>> keys = new HashMap<String, List<ObjectKeyAndVersion>>();
+        final List<Path> directories = new ArrayList<Path>();
+        for(Path file : files) {
+            if(file.attributes().isFile()) {
+                final S3Path object = (S3Path) file;
+                final String container = object.getContainerName();
+                if(!keys.containsKey(container)) {
+                    keys.put(container, new ArrayList<ObjectKeyAndVersion>());
+                }
+                keys.get(container).add(new ObjectKeyAndVersion(object.getKey(), object.attributes().getVersionId()));
+            }
+            else {
+                directories.add(file);
+            }
+        }
+        for(Map.Entry<String, List<ObjectKeyAndVersion>> entry : keys.entrySet()) {
+            final S3BatchDelete batch;
+            try {
+                this.check();
+                this.message(MessageFormat.format(Locale.localizedString("Deleting {0}", "Status"),
+                        entry.getKey()));
+                batch = new S3BatchDelete(this, entry.getKey());
+            }
+            catch(IOException e) {
+                this.error(MessageFormat.format(Locale.localizedString("Cannot delete {0}", "Error"), entry.getKey()), e);
+                return;
+            }
+            try {
+                for(ObjectKeyAndVersion key : entry.getValue()) {
+                    batch.add(key);
+                }
+                batch.close();
+            }
+            catch(IOException e) {
+                this.error(MessageFormat.format(Locale.localizedString("Cannot delete {0}", "Error"), entry.getKey()), e);
+            }
+            finally {
+                batch.shutdown();
+            }
+        }
+        super.delete(directories);
+    }
+
+    /**
+     * @return Directory placeholder detection remembering the results of requests for object details
+     */
+    protected S3PlaceholderResolver getPlaceholderResolver() {
+        return placeholders;
     }
 
     @Override
@@ -587,6 +648,14 @@ public class S3Session extends CloudSession {
         return true;
     }
 
+    /**
+     * @return True
+     */
+    @Override
+    public boolean isDownloadSegmentable() {
+        return true;
+    }
+
     /**
      * @return No Content-Range support
      */
@@ -0,0 +1,207 @@
+package ch.cyberduck.core.sftp;
+
+/*
+ * Copyright (c) 2002-2013 David Kocher. All rights reserved.
+ * http://cyberduck.ch/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * Bug fixes, suggestions and comments should be sent to:
+ * dkocher@cyberduck.ch
+ */
+
+import ch.cyberduck.core.ConnectionCanceledException;
+
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Set;
+
+import ch.ethz.ssh2.SFTPv3Client;
+
+/**
+ * SFTP subsystems opened as channels on the authenticated connection of a session. Each channel can be
+ * used concurrently to the others without another key exchange and authentication. All requests of the
+ * session lease a channel such that the session can be shared by multiple threads. The number of channels is limited by the configured maximum and lowered to the
+ * number of channels open when the server refuses to open another channel, which happens when
+ * the server limit (MaxSessions) is reached.
+ *
+ * @version $Id$
+ */
+public final class SFTPChannelPool {
+    private static final Logger log = Logger.getLogger(SFTPChannelPool.class);
+
+    private final SFTPSession session;
+
+    /**
+     * Channels not in use
+     */
+    private final LinkedList<SFTPv3Client> idle = new LinkedList<SFTPv3Client>();
+
+    /**
+     * All channels open
+     */
+    private final Set<SFTPv3Client> open = new HashSet<SFTPv3Client>();
+
+    /**
+     * Maximum number of channels
+     */
+    private int limit;
+
+    /**
+     * Number of channels reserved to be opened
+     */
+    private int opening;
+
+    private boolean closed;
+
+    /**
+     * @param session Session with authenticated connection
+     * @param limit   Maximum number of channels
+     */
+    public SFTPChannelPool(final SFTPSession session, final int limit) {
+        this.session = session;
+        this.limit = Math.max(1, limit);
+    }
+
+    /**
+     * Lease a channel waiting for one to be released if the maximum number of channels is open. A new channel
+     * is opened without holding the lock of the pool to not block other threads releasing or leasing channels.
+     *
+     * @return Channel for exclusive use until released
+     * @throws IOException Failure opening the first channel
+     */
+    public SFTPv3Client borrow() throws IOException {
+        while(true) {
+            synchronized(this) {
+                while(true) {
+                    if(closed) {
+                        throw new ConnectionCanceledException();
+                    }
+                    for(Iterator<SFTPv3Client> iter = idle.iterator(); iter.hasNext(); ) {
+                        final SFTPv3Client client = iter.next();
+                        if(!client.isConnected()) {
+                            iter.remove();
+                            open.remove(client);
+                        }
+                    }
+                    if(!idle.isEmpty()) {
+                        return idle.removeFirst();
+                    }
+                    if(open.size() + opening < limit) {
+                        // Reserve slot for channel to open
+                        opening++;
+                        break;
+                    }
+                    try {
+                        this.wait();
+                    }
+                    catch(InterruptedException e) {
+                        throw new ConnectionCanceledException();
+                    }
+                }
+            }
+            final SFTPv3Client client;
+            try {
+                client = session.open();
+            }
+            catch(ConnectionCanceledException e) {
+                synchronized(this) {
+                    opening--;
+                    this.notifyAll();
+                }
+                throw e;
+            }
+            catch(IOException e) {
+                synchronized(this) {
+                    opening--;
+                    this.notifyAll();
+                    if(open.isEmpty() && 0 == opening) {
+                        throw e;
+                    }
+                    // Server limit for channels on a connection reached
+                    limit = Math.max(1, open.size() + opening);
+                    log.warn(String.format("Limit channels to %d after failure %s", limit, e.getMessage()));
+                }
+                continue;
+            }
+            synchronized(this) {
+                opening--;
+                if(closed) {
+                    client.close();
+                    this.notifyAll();
+                    throw new ConnectionCanceledException();
+                }
+                open.add(client);
+                if(log.isDebugEnabled()) {
+                    log.debug(String.format("Opened channel %d of %d", open.size(), limit));
+                }
+                return client;
+            }
+        }
+    }
+
+    /**
+     * @param client Channel no longer in use
+     */
+    public synchronized void release(final SFTPv3Client client) {
+        if(idle.contains(client)) {
+            // Already released
+            return;
+        }
+        if(client.isConnected() && !closed) {
+            idle.addFirst(client);
+        }
+        else {
+            open.remove(client);
+        }
+        this.notifyAll();
+    }
+
+    /**
+     * Close a channel no longer usable without closing the other channels of the connection
+     *
+     * @param client Channel failed reading reply
+     */
+    public synchronized void discard(final SFTPv3Client client) {
+        if(log.isDebugEnabled()) {
+            log.debug(String.format("Discard channel %s", client));
+        }
+        idle.remove(client);
+        if(open.remove(client)) {
+            client.close();
+        }
+        this.notifyAll();
+    }
+
+    /**
+     * @return Maximum number of channels
+     */
+    public synchronized int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Close all channels. Channels in use are closed as well.
+     */
+    public synchronized void close() {
+        closed = true;
+        for(SFTPv3Client client : open) {
+            client.close();
+        }
+        open.clear();
+        idle.clear();
+        this.notifyAll();
+    }
+}
@@ -22,6 +22,7 @@ import ch.cyberduck.core.AbstractPath;
 import ch.cyberduck.core.AttributedList;
 import ch.cyberduck.core.Path;
 import ch.cyberduck.core.Permission;
+import ch.cyberduck.core.Preference;
 import ch.cyberduck.core.Preferences;
 import ch.cyberduck.core.Protocol;
 import ch.cyberduck.core.StreamListener;
@@ -39,11 +40,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.text.MessageFormat;
+import java.util.List;
 
 import ch.ethz.ssh2.SCPClient;
 import ch.ethz.ssh2.SFTPException;
-import ch.ethz.ssh2.SFTPInputStream;
-import ch.ethz.ssh2.SFTPOutputStream;
 import ch.ethz.ssh2.SFTPv3Client;
 import ch.ethz.ssh2.SFTPv3DirectoryEntry;
 import ch.ethz.ssh2.SFTPv3FileAttributes;
@@ -55,6 +55,12 @@ import ch.ethz.ssh2.SFTPv3FileHandle;
 public class SFTPPath extends Path {
     private static final Logger log = Logger.getLogger(SFTPPath.class);
 
+    private static final Preference<String> TRANSFER
+            = Preference.string("ssh.transfer");
+
+    private static final Preference<Integer> PERMISSIONS_FILE
+            = Preference.integer("queue.upload.permissions.file.default");
+
     private final SFTPSession session;
 
     public SFTPPath(SFTPSession s, String parent, String name, int type) {
@@ -82,6 +88,29 @@ public class SFTPPath extends Path {
         return session;
     }
 
+    /**
+     * Request with a channel leased from the session
+     */
+    private abstract static class ChannelAction<T> {
+        public abstract T run(SFTPv3Client channel) throws IOException;
+    }
+
+    /**
+     * @param action Request to send
+     * @return Result of action
+     * @throws IOException I/O error
+     */
+    private <T> T channel(final ChannelAction<T> action) throws IOException {
+        final SFTPChannelPool pool = this.getSession().getChannelPool();
+        final SFTPv3Client channel = pool.borrow();
+        try {
+            return action.run(channel);
+        }
+        finally {
+            pool.release(channel);
+        }
+    }
+
     @Override
     public AttributedList<Path> list(final AttributedList<Path> children) {
         try {
@@ -89,7 +118,13 @@ public class SFTPPath extends Path {
             this.getSession().message(MessageFormat.format(Locale.localizedString("Listing directory {0}", "Status"),
                     this.getName()));
 
-            for(SFTPv3DirectoryEntry f : this.getSession().sftp().ls(this.getAbsolute())) {
+            final List<SFTPv3DirectoryEntry> entries = this.channel(new ChannelAction<List<SFTPv3DirectoryEntry>>() {
+                @Override
+                public List<SFTPv3DirectoryEntry> run(final SFTPv3Client channel) throws IOException {
+                    return channel.ls(getAbsolute());
+                }
+            });
+            for(SFTPv3DirectoryEntry f : entries) {
                 if(f.filename.equals(".") || f.filename.equals("..")) {
                     continue;
                 }
@@ -118,8 +153,15 @@ public class SFTPPath extends Path {
             this.getSession().message(MessageFormat.format(Locale.localizedString("Making directory {0}", "Status"),
                     this.getName()));
 
-            this.getSession().sftp().mkdir(this.getAbsolute(),
-                    Integer.parseInt(new Permission(Preferences.instance().getInteger("queue.upload.permissions.folder.default")).getOctalString(), 8));
+            final int mode = Integer.parseInt(new Permission(
+                    Preferences.instance().getInteger("queue.upload.permissions.folder.default")).getOctalString(), 8);
+            this.channel(new ChannelAction<Void>() {
+                @Override
+                public Void run(final SFTPv3Client channel) throws IOException {
+                    channel.mkdir(getAbsolute(), mode);
+                    return null;
+                }
+            });
         }
         catch(IOException e) {
             this.error("Cannot create folder {0}", e);
@@ -127,7 +169,7 @@ public class SFTPPath extends Path {
     }
 
     @Override
-    public void rename(AbstractPath renamed) {
+    public void rename(final AbstractPath renamed) {
         try {
             this.getSession().check();
             this.getSession().message(MessageFormat.format(Locale.localizedString("Renaming {0} to {1}", "Status"),
@@ -136,7 +178,13 @@ public class SFTPPath extends Path {
             if(renamed.exists()) {
                 renamed.delete();
             }
-            this.getSession().sftp().mv(this.getAbsolute(), renamed.getAbsolute());
+            this.channel(new ChannelAction<Void>() {
+                @Override
+                public Void run(final SFTPv3Client channel) throws IOException {
+                    channel.mv(getAbsolute(), renamed.getAbsolute());
+                    return null;
+                }
+            });
         }
         catch(IOException e) {
             this.error("Cannot rename {0}", e);
@@ -151,7 +199,13 @@ public class SFTPPath extends Path {
                     this.getName()));
 
             if(this.attributes().isFile() || this.attributes().isSymbolicLink()) {
-                this.getSession().sftp().rm(this.getAbsolute());
+                this.channel(new ChannelAction<Void>() {
+                    @Override
+                    public Void run(final SFTPv3Client channel) throws IOException {
+                        channel.rm(getAbsolute());
+                        return null;
+                    }
+                });
             }
             else if(this.attributes().isDirectory()) {
                 for(AbstractPath child : this.children()) {
@@ -163,7 +217,13 @@ public class SFTPPath extends Path {
                 this.getSession().message(MessageFormat.format(Locale.localizedString("Deleting {0}", "Status"),
                         this.getName()));
 
-                this.getSession().sftp().rmdir(this.getAbsolute());
+                this.channel(new ChannelAction<Void>() {
+                    @Override
+                    public Void run(final SFTPv3Client channel) throws IOException {
+                        channel.rmdir(getAbsolute());
+                        return null;
+                    }
+                });
             }
         }
         catch(IOException e) {
@@ -172,7 +232,7 @@ public class SFTPPath extends Path {
     }
 
     protected void readAttributes() throws IOException {
-        this.readAttributes(this.getSession().sftp().stat(this.getAbsolute()));
+        this.readAttributes(this.stat(this.getAbsolute()));
     }
 
     protected void readAttributes(SFTPv3FileAttributes attributes) {
@@ -208,12 +268,17 @@ public class SFTPPath extends Path {
         }
         if(attributes.isSymlink()) {
             try {
-                String target = this.getSession().sftp().readLink(this.getAbsolute());
+                String target = this.channel(new ChannelAction<String>() {
+                    @Override
+                    public String run(final SFTPv3Client channel) throws IOException {
+                        return channel.readLink(getAbsolute());
+                    }
+                });
                 if(!target.startsWith(String.valueOf(Path.DELIMITER))) {
                     target = Path.normalize(this.getParent().getAbsolute() + String.valueOf(Path.DELIMITER) + target);
                 }
                 this.setSymlinkTarget(target);
-                SFTPv3FileAttributes targetAttributes = this.getSession().sftp().stat(target);
+                SFTPv3FileAttributes targetAttributes = this.stat(target);
                 if(targetAttributes.isDirectory()) {
                     this.attributes().setType(SYMBOLIC_LINK_TYPE | DIRECTORY_TYPE);
                 }
@@ -228,8 +293,28 @@ public class SFTPPath extends Path {
         }
     }
 
-    protected void writeAttributes(SFTPv3FileAttributes attributes) throws IOException {
-        this.getSession().sftp().setstat(this.getAbsolute(), attributes);
+    /**
+     * @param path Absolute path
+     * @return Attributes following symbolic links
+     * @throws IOException I/O error
+     */
+    private SFTPv3FileAttributes stat(final String path) throws IOException {
+        return this.channel(new ChannelAction<SFTPv3FileAttributes>() {
+            @Override
+            public SFTPv3FileAttributes run(final SFTPv3Client channel) throws IOException {
+                return channel.stat(path);
+            }
+        });
+    }
+
+    protected void writeAttributes(final SFTPv3FileAttributes attributes) throws IOException {
+        this.channel(new ChannelAction<Void>() {
+            @Override
+            public Void run(final SFTPv3Client channel) throws IOException {
+                channel.setstat(getAbsolute(), attributes);
+                return null;
+            }
+        });
     }
 
     @Override
@@ -370,9 +455,30 @@ public class SFTPPath extends Path {
     @Override
     public InputStream read(final TransferStatus status) throws IOException {
         InputStream in = null;
-        if(Preferences.instance().getProperty("ssh.transfer").equals(Protocol.SFTP.getIdentifier())) {
-            final SFTPv3FileHandle handle = this.getSession().sftp().openFileRO(this.getAbsolute());
-            in = new SFTPInputStream(handle);
+        if(TRANSFER.get().equals(Protocol.SFTP.getIdentifier())) {
+            // Use channel of its own until stream is closed
+            final SFTPChannelPool pool = this.getSession().getChannelPool();
+            final SFTPv3Client channel = pool.borrow();
+            final SFTPv3FileHandle handle;
+            try {
+                handle = channel.openFileRO(this.getAbsolute());
+            }
+            catch(IOException e) {
+                pool.release(channel);
+                throw e;
+            }
+            // Read ahead with multiple requests outstanding independent of the buffer size of the caller
+            in = new SFTPPipelinedInputStream(handle) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    }
+                    finally {
+                        pool.release(channel);
+                    }
+                }
+            };
             if(status.isResume()) {
                 log.info(String.format("Skipping %d bytes", status.getCurrent()));
                 final long skipped = in.skip(status.getCurrent());
@@ -380,12 +486,8 @@ public class SFTPPath extends Path {
                     throw new IOResumeException(String.format("Skipped %d bytes instead of %d", skipped, status.getCurrent()));
                 }
             }
-            // No parallel requests if the file size is smaller than the buffer.
-            this.getSession().sftp().setRequestParallelism(
-                    (int) (status.getLength() / Preferences.instance().getInteger("connection.chunksize")) + 1
-            );
         }
-        else if(Preferences.instance().getProperty("ssh.transfer").equals(Protocol.SCP.getIdentifier())) {
+        else if(TRANSFER.get().equals(Protocol.SCP.getIdentifier())) {
             SCPClient scp = this.getSession().openScp();
             scp.setCharset(this.getSession().getEncoding());
             in = scp.get(this.getAbsolute());
@@ -413,7 +515,7 @@ public class SFTPPath extends Path {
     }
 
     @Override
-    public void symlink(String target) {
+    public void symlink(final String target) {
         if(log.isDebugEnabled()) {
             log.debug("symlink:" + target);
         }
@@ -422,7 +524,13 @@ public class SFTPPath extends Path {
             this.getSession().message(MessageFormat.format(Locale.localizedString("Uploading {0}", "Status"),
                     this.getName()));
 
-            this.getSession().sftp().createSymlink(this.getAbsolute(), target);
+            this.channel(new ChannelAction<Void>() {
+                @Override
+                public Void run(final SFTPv3Client channel) throws IOException {
+                    channel.createSymlink(getAbsolute(), target);
+                    return null;
+                }
+            });
         }
         catch(IOException e) {
             this.error("Cannot create file {0}", e);
@@ -431,29 +539,45 @@ public class SFTPPath extends Path {
 
     @Override
     public OutputStream write(final TransferStatus status) throws IOException {
-        final String mode = Preferences.instance().getProperty("ssh.transfer");
+        final String mode = TRANSFER.get();
         if(mode.equals(Protocol.SFTP.getIdentifier())) {
+            final boolean append = status.isResume() && this.exists();
+            // Use channel of its own until stream is closed
+            final SFTPChannelPool pool = this.getSession().getChannelPool();
+            final SFTPv3Client channel = pool.borrow();
             SFTPv3FileHandle handle;
-            if(status.isResume() && this.exists()) {
-                handle = this.getSession().sftp().openFile(this.getAbsolute(),
-                        SFTPv3Client.SSH_FXF_WRITE | SFTPv3Client.SSH_FXF_APPEND, null);
+            try {
+                if(append) {
+                    handle = channel.openFile(this.getAbsolute(),
+                            SFTPv3Client.SSH_FXF_WRITE | SFTPv3Client.SSH_FXF_APPEND, null);
+                }
+                else {
+                    handle = channel.openFile(this.getAbsolute(),
+                            SFTPv3Client.SSH_FXF_CREAT | SFTPv3Client.SSH_FXF_TRUNC | SFTPv3Client.SSH_FXF_WRITE, null);
+                }
             }
-            else {
-                handle = this.getSession().sftp().openFile(this.getAbsolute(),
-                        SFTPv3Client.SSH_FXF_CREAT | SFTPv3Client.SSH_FXF_TRUNC | SFTPv3Client.SSH_FXF_WRITE, null);
+            catch(IOException e) {
+                pool.release(channel);
+                throw e;
             }
-            final OutputStream out = new SFTPOutputStream(handle);
+            final SFTPPipelinedOutputStream out = new SFTPPipelinedOutputStream(handle) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    }
+                    finally {
+                        pool.release(channel);
+                    }
+                }
+            };
             if(status.isResume()) {
-                long skipped = ((SFTPOutputStream) out).skip(status.getCurrent());
+                long skipped = out.skip(status.getCurrent());
                 log.info(String.format("Skipping %d bytes", skipped));
                 if(skipped < status.getCurrent()) {
                     throw new IOResumeException(String.format("Skipped %d bytes instead of %d", skipped, status.getCurrent()));
                 }
             }
-            // No parallel requests if the file size is smaller than the buffer.
-            this.getSession().sftp().setRequestParallelism(
-                    (int) (status.getLength() / Preferences.instance().getInteger("connection.chunksize")) + 1
-            );
             return out;
         }
         else if(mode.equals(Protocol.SCP.getIdentifier())) {
@@ -491,10 +615,16 @@ public class SFTPPath extends Path {
             this.getSession().message(MessageFormat.format(Locale.localizedString("Uploading {0}", "Status"),
                     this.getName()));
 
-            SFTPv3FileAttributes attr = new SFTPv3FileAttributes();
-            Permission permission = new Permission(Preferences.instance().getInteger("queue.upload.permissions.file.default"));
+            final SFTPv3FileAttributes attr = new SFTPv3FileAttributes();
+            Permission permission = new Permission(PERMISSIONS_FILE.get());
             attr.permissions = Integer.parseInt(permission.getOctalString(), 8);
-            this.getSession().sftp().createFile(this.getAbsolute(), attr);
+            this.channel(new ChannelAction<Void>() {
+                @Override
+                public Void run(final SFTPv3Client channel) throws IOException {
+                    channel.closeFile(channel.createFile(getAbsolute(), attr));
+                    return null;
+                }
+            });
             try {
                 // Even if specified above when creating the file handle, we still need to update the
                 // permissions after the creating the file. SSH_FXP_OPEN does not support setting
@@ -0,0 +1,147 @@
+package ch.cyberduck.core.sftp;
+
+/*
+ * Copyright (c) 2002-2013 David Kocher. All rights reserved.
+ * http://cyberduck.ch/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * Bug fixes, suggestions and comments should be sent to:
+ * dkocher@cyberduck.ch
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import ch.ethz.ssh2.SFTPv3Client;
+import ch.ethz.ssh2.SFTPv3FileHandle;
+
+/**
+ * Reads ahead a full window of the file with as many SSH_FXP_READ requests outstanding as the window allows
+ * regardless of the buffer size of the caller. Replies completing out of order are placed at their offset
+ * in the window buffer.
+ *
+ * @version $Id$
+ */
+public class SFTPPipelinedInputStream extends InputStream {
+
+    private final SFTPv3Client client;
+
+    private final SFTPv3FileHandle handle;
+
+    private final SFTPWindow window;
+
+    private byte[] buffer = new byte[0];
+
+    /**
+     * Position in buffer
+     */
+    private int position;
+
+    /**
+     * Number of bytes in buffer
+     */
+    private int limit;
+
+    /**
+     * Offset in file to request next
+     */
+    private long offset;
+
+    private boolean eof;
+
+    public SFTPPipelinedInputStream(final SFTPv3FileHandle handle) {
+        this(handle, new SFTPWindow());
+    }
+
+    public SFTPPipelinedInputStream(final SFTPv3FileHandle handle, final SFTPWindow window) {
+        this.client = handle.getClient();
+        this.handle = handle;
+        this.window = window;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final byte[] b = new byte[1];
+        if(-1 == this.read(b, 0, 1)) {
+            return -1;
+        }
+        return b[0] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if(0 == len) {
+            return 0;
+        }
+        if(position == limit) {
+            if(eof) {
+                return -1;
+            }
+            this.fill();
+            if(0 == limit) {
+                return -1;
+            }
+        }
+        final int n = Math.min(len, limit - position);
+        System.arraycopy(buffer, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    /**
+     * Request the next window of the file
+     */
+    private void fill() throws IOException {
+        final int size = window.getSize();
+        if(buffer.length < size) {
+            buffer = new byte[size];
+        }
+        client.setRequestParallelism(window.getRequests());
+        final long start = System.nanoTime();
+        int filled = 0;
+        while(filled < size) {
+            final int n = client.read(handle, offset, buffer, filled, size - filled);
+            if(n <= 0) {
+                eof = true;
+                break;
+            }
+            filled += n;
+            offset += n;
+        }
+        if(!eof) {
+            window.update(filled, System.nanoTime() - start);
+        }
+        position = 0;
+        limit = filled;
+    }
+
+    @Override
+    public long skip(final long n) {
+        if(n <= 0) {
+            return 0;
+        }
+        final int buffered = limit - position;
+        if(n <= buffered) {
+            position += n;
+        }
+        else {
+            offset += n - buffered;
+            position = limit = 0;
+        }
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        client.closeFile(handle);
+    }
+}
@@ -0,0 +1,104 @@
+package ch.cyberduck.core.sftp;
+
+/*
+ * Copyright (c) 2002-2013 David Kocher. All rights reserved.
+ * http://cyberduck.ch/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * Bug fixes, suggestions and comments should be sent to:
+ * dkocher@cyberduck.ch
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import ch.ethz.ssh2.SFTPv3Client;
+import ch.ethz.ssh2.SFTPv3FileHandle;
+
+/**
+ * Writes with as many SSH_FXP_WRITE requests outstanding as the window allows. The status of a request is
+ * only awaited when the window is full. The window is adjusted after every window of bytes written.
+ *
+ * @version $Id$
+ */
+public class SFTPPipelinedOutputStream extends OutputStream {
+
+    private final SFTPv3Client client;
+
+    private final SFTPv3FileHandle handle;
+
+    private final SFTPWindow window;
+
+    /**
+     * Offset in file to write next
+     */
+    private long offset;
+
+    /**
+     * Bytes written since last window adjustment
+     */
+    private long written;
+
+    private long start = System.nanoTime();
+
+    public SFTPPipelinedOutputStream(final SFTPv3FileHandle handle) {
+        this(handle, new SFTPWindow());
+    }
+
+    public SFTPPipelinedOutputStream(final SFTPv3FileHandle handle, final SFTPWindow window) {
+        this.client = handle.getClient();
+        this.handle = handle;
+        this.window = window;
+        this.client.setRequestParallelism(window.getRequests());
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        this.write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] b, int off, int len) throws IOException {
+        while(len > 0) {
+            final int n = Math.min(len, SFTPWindow.PACKET_SIZE);
+            client.write(handle, offset, b, off, n);
+            offset += n;
+            off += n;
+            len -= n;
+            written += n;
+            if(written >= window.getSize()) {
+                final long now = System.nanoTime();
+                window.update(written, now - start);
+                client.setRequestParallelism(window.getRequests());
+                written = 0;
+                start = now;
+            }
+        }
+    }
+
+    /**
+     * @param n Number of bytes to skip at the beginning of the file
+     * @return Number of bytes skipped
+     */
+    public long skip(final long n) {
+        offset += n;
+        return n;
+    }
+
+    /**
+     * Awaits the status of all outstanding requests
+     */
+    @Override
+    public void close() throws IOException {
+        client.closeFile(handle);
+    }
+}
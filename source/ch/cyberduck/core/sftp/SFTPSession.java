@@ -33,12 +33,14 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.StringReader;
+import java.util.List;
 
 import ch.ethz.ssh2.Connection;
 import ch.ethz.ssh2.ConnectionMonitor;
 import ch.ethz.ssh2.InteractiveCallback;
 import ch.ethz.ssh2.PacketListener;
 import ch.ethz.ssh2.SCPClient;
+import ch.ethz.ssh2.SFTPException;
 import ch.ethz.ssh2.SFTPv3Client;
 import ch.ethz.ssh2.StreamGobbler;
 import ch.ethz.ssh2.channel.ChannelClosedException;
@@ -78,39 +80,65 @@ public class SFTPSession extends Session {
         return false;
     }
 
-    private SFTPv3Client client;
+    private SFTPChannelPool pool;
 
     /**
-     * If never called before opens a new SFTP subsystem. If called before, the cached
-     * SFTP subsystem is returned. May not be used concurrently.
+     * Lock for channel pool not held while waiting for a channel
+     */
+    private final Object lock = new Object();
+
+    /**
+     * Opens a new SFTP subsystem in a new channel of the connection
      *
      * @return Client instance
      * @throws IOException If opening SFTP channel fails
      */
-    protected SFTPv3Client sftp() throws IOException {
-        if(null == client) {
-            if(!this.isConnected()) {
-                throw new ConnectionCanceledException();
+    protected SFTPv3Client open() throws IOException {
+        if(!this.isConnected()) {
+            throw new ConnectionCanceledException();
+        }
+        if(!this.getClient().isAuthenticationComplete()) {
+            throw new LoginCanceledException();
+        }
+        final SFTPv3Client client = new SFTPv3Client(this.getClient(), new PacketListener() {
+            @Override
+            public void read(String packet) {
+                SFTPSession.this.log(false, packet);
             }
-            if(!this.getClient().isAuthenticationComplete()) {
-                throw new LoginCanceledException();
+
+            @Override
+            public void write(String packet) {
+                SFTPSession.this.log(true, packet);
             }
-            this.message(Locale.localizedString("Starting SFTP subsystem", "Status"));
-            client = new SFTPv3Client(this.getClient(), new PacketListener() {
-                @Override
-                public void read(String packet) {
-                    SFTPSession.this.log(false, packet);
-                }
+        });
+        client.setCharset(this.getEncoding());
+        return client;
+    }
 
-                @Override
-                public void write(String packet) {
-                    SFTPSession.this.log(true, packet);
-                }
-            });
-            this.message(Locale.localizedString("SFTP subsystem ready", "Status"));
-            client.setCharset(this.getEncoding());
+    /**
+     * SFTP subsystems on the connection of this session to use concurrently
+     *
+     * @return Pool of channels
+     */
+    protected SFTPChannelPool getChannelPool() {
+        synchronized(lock) {
+            if(null == pool) {
+                pool = new SFTPChannelPool(this, Preferences.instance().getInteger("sftp.channels.max"));
+            }
+            return pool;
+        }
+    }
+
+    /**
+     * Close SFTP subsystems
+     */
+    private void closeChannelPool() {
+        synchronized(lock) {
+            if(null != pool) {
+                pool.close();
+                pool = null;
+            }
         }
-        return client;
     }
 
     /**
@@ -158,7 +186,10 @@ public class SFTPSession extends Session {
             throw new LoginCanceledException();
         }
         // Make sure subsystem is available
-        this.sftp();
+        this.message(Locale.localizedString("Starting SFTP subsystem", "Status"));
+        final SFTPChannelPool channels = this.getChannelPool();
+        channels.release(channels.borrow());
+        this.message(Locale.localizedString("SFTP subsystem ready", "Status"));
         this.fireConnectionDidOpenEvent();
     }
 
@@ -343,16 +374,13 @@ public class SFTPSession extends Session {
     public void close() {
         try {
             this.fireConnectionWillCloseEvent();
-            if(client != null) {
-                client.close();
-            }
+            this.closeChannelPool();
             this.getClient().close();
         }
         catch(ConnectionCanceledException e) {
             log.warn(e.getMessage());
         }
         finally {
-            client = null;
             connection = null;
             this.fireConnectionDidCloseEvent();
         }
@@ -369,14 +397,41 @@ public class SFTPSession extends Session {
             log.warn(e.getMessage());
         }
         finally {
-            client = null;
+            this.closeChannelPool();
             connection = null;
             this.fireConnectionDidCloseEvent();
         }
     }
 
+    /**
+     * @return True as every request leases a channel from the pool of the session
+     */
     @Override
-    public void check() throws IOException {
+    public boolean isConcurrent() {
+        return true;
+    }
+
+    /**
+     * Files are deleted concurrently with the channels of the connection shared by all threads.
+     *
+     * @param files Selected files
+     */
+    @Override
+    public void delete(final List<Path> files) {
+        final int channels = this.getChannelPool().getLimit();
+        if(channels > 1) {
+            new ConcurrentDelete(this, channels).delete(files);
+        }
+        else {
+            super.delete(files);
+        }
+    }
+
+    /**
+     * Synchronized as the session is shared by threads of a transfer
+     */
+    @Override
+    public synchronized void check() throws IOException {
         try {
             super.check();
         }
@@ -385,28 +440,66 @@ public class SFTPSession extends Session {
             this.interrupt();
             this.connect();
         }
-        SFTPv3Client subsystem = this.sftp();
-        if(!subsystem.isConnected()) {
-            log.warn("Connection to subsystem already closed");
+        try {
+            this.canonicalize(".");
+        }
+        catch(IOException e) {
+            log.warn("Connection to subsystem already closed:" + e.getMessage());
+            if(this.isAlive()) {
+                // Only the channel failed and is discarded. Streams of other channels are kept open.
+                return;
+            }
             this.interrupt();
             this.connect();
         }
-        else {
-            try {
-                subsystem.canonicalPath(".");
-            }
-            catch(IOException e) {
-                log.warn("Connection already closed:" + e.getMessage());
-                this.interrupt();
-                this.connect();
-            }
+    }
+
+    /**
+     * @return True if the connection shared by all channels is still open
+     */
+    private boolean isAlive() {
+        if(!this.isConnected()) {
+            return false;
+        }
+        try {
+            this.noop();
+        }
+        catch(IOException e) {
+            log.warn("Connection already closed:" + e.getMessage());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param path Path
+     * @return Absolute path resolved on server
+     * @throws IOException Failure leasing channel or reading reply
+     */
+    private String canonicalize(final String path) throws IOException {
+        final SFTPChannelPool channels = this.getChannelPool();
+        final SFTPv3Client channel = channels.borrow();
+        final String canonical;
+        try {
+            canonical = channel.canonicalPath(path);
+        }
+        catch(SFTPException e) {
+            // Error reply from server
+            channels.release(channel);
+            throw e;
+        }
+        catch(IOException e) {
+            channels.discard(channel);
+            throw e;
         }
+        channels.release(channel);
+        return canonical;
     }
 
     @Override
     public Path workdir() throws IOException {
         // "." as referring to the current directory
-        final String directory = this.sftp().canonicalPath(".");
+        final String directory = this.canonicalize(".");
         return new SFTPPath(this, directory,
                 directory.equals(String.valueOf(Path.DELIMITER)) ? Path.VOLUME_TYPE | Path.DIRECTORY_TYPE : Path.DIRECTORY_TYPE);
     }
@@ -0,0 +1,117 @@
+package ch.cyberduck.core.sftp;
+
+/*
+ * Copyright (c) 2002-2013 David Kocher. All rights reserved.
+ * http://cyberduck.ch/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * Bug fixes, suggestions and comments should be sent to:
+ * dkocher@cyberduck.ch
+ */
+
+import ch.cyberduck.core.Preferences;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Number of read or write requests to keep outstanding. The window is doubled as long as the throughput
+ * measured for a full window improves, as on links with a high latency more data in flight is needed
+ * to fill the bandwidth available. It is halved when the throughput drops significantly.
+ *
+ * @version $Id$
+ */
+public final class SFTPWindow {
+    private static final Logger log = Logger.getLogger(SFTPWindow.class);
+
+    /**
+     * Maximum payload of a single read or write request
+     */
+    public static final int PACKET_SIZE = 32768;
+
+    /**
+     * Minimum relative improvement in throughput to grow the window further
+     */
+    private static final double GROWTH = 1.1d;
+
+    private final int min;
+
+    private final int max;
+
+    /**
+     * Number of outstanding requests
+     */
+    private int requests;
+
+    /**
+     * Best throughput measured in bytes per nanosecond
+     */
+    private double best;
+
+    public SFTPWindow() {
+        this(Preferences.instance().getInteger("sftp.window.requests.min"),
+                Preferences.instance().getInteger("sftp.window.requests.max"));
+    }
+
+    /**
+     * @param min Initial and minimum number of outstanding requests
+     * @param max Maximum number of outstanding requests
+     */
+    public SFTPWindow(final int min, final int max) {
+        this.min = Math.max(1, min);
+        this.max = Math.max(this.min, max);
+        this.requests = this.min;
+    }
+
+    /**
+     * @return Number of requests to keep outstanding
+     */
+    public int getRequests() {
+        return requests;
+    }
+
+    /**
+     * @return Number of bytes in flight for a full window
+     */
+    public int getSize() {
+        return requests * PACKET_SIZE;
+    }
+
+    /**
+     * @param bytes Number of bytes transferred for a full window
+     * @param nanos Time elapsed in nanoseconds
+     */
+    public void update(final long bytes, final long nanos) {
+        if(nanos <= 0) {
+            return;
+        }
+        final double rate = (double) bytes / nanos;
+        if(rate > best * GROWTH) {
+            best = rate;
+            if(requests < max) {
+                requests = Math.min(max, requests * 2);
+                if(log.isDebugEnabled()) {
+                    log.debug(String.format("Increase window to %d requests", requests));
+                }
+            }
+        }
+        else if(rate < best / 2) {
+            // Link has degraded
+            best = rate;
+            if(requests > min) {
+                requests = Math.max(min, requests / 2);
+                if(log.isDebugEnabled()) {
+                    log.debug(String.format("Decrease window to %d requests", requests));
+                }
+            }
+        }
+    }
+}
@@ -23,6 +23,8 @@ import ch.cyberduck.core.Preferences;
 
 import org.apache.log4j.Logger;
 
+import javax.net.ssl.HandshakeCompletedEvent;
+import javax.net.ssl.HandshakeCompletedListener;
 import javax.net.ssl.KeyManager;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLSocket;
@@ -67,6 +69,19 @@ public class CustomTrustSSLProtocolSocketFactory extends SSLSocketFactory {
         this(trust, null);
     }
 
+    /**
+     * Use context shared with other connections of the session to the same host to resume previous handshakes.
+     *
+     * @param hostname Hostname
+     * @param port     Port
+     * @param trust    Verifiying trusts in system settings
+     * @see SSLContextRegistry
+     */
+    public CustomTrustSSLProtocolSocketFactory(final String hostname, final int port, final X509TrustManager trust) {
+        context = SSLContextRegistry.instance().get(hostname, port, trust, null);
+        factory = context.getSocketFactory();
+    }
+
     /**
      * @param trust Verifiying trusts in system settings
      * @param key   Key manager for client certificate selection
@@ -101,6 +116,12 @@ public class CustomTrustSSLProtocolSocketFactory extends SSLSocketFactory {
             catch(Exception e) {
                 log.warn(String.format("Failed to configure SSL parameters %s", e.getMessage()));
             }
+            ((SSLSocket) socket).addHandshakeCompletedListener(new HandshakeCompletedListener() {
+                @Override
+                public void handshakeCompleted(final HandshakeCompletedEvent event) {
+                    SSLContextRegistry.instance().handshake(event.getSession());
+                }
+            });
         }
     }
 
@@ -0,0 +1,207 @@
+package ch.cyberduck.core.ssl;
+
+/*
+ * Copyright (c) 2002-2013 David Kocher. All rights reserved.
+ * http://cyberduck.ch/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * Bug fixes, suggestions and comments should be sent to:
+ * dkocher@cyberduck.ch
+ */
+
+import ch.cyberduck.core.FactoryException;
+import ch.cyberduck.core.Preferences;
+
+import org.apache.commons.collections.map.LRUMap;
+import org.apache.log4j.Logger;
+import org.jets3t.service.utils.ServiceUtils;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509KeyManager;
+import javax.net.ssl.X509TrustManager;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SSL contexts shared by all connections to the same host and port using the same trust and key manager
+ * instances. Because the session cache is part of the context, new control connections, data channels and
+ * reconnects can resume a previous handshake instead of repeating the full key exchange. Contexts are never
+ * shared between trust managers such that a handshake is only resumed if verified by the same trust manager.
+ *
+ * @version $Id$
+ */
+public final class SSLContextRegistry {
+    private static final Logger log = Logger.getLogger(SSLContextRegistry.class);
+
+    private static SSLContextRegistry current = null;
+
+    private static final Object lock = new Object();
+
+    /**
+     * @return Process wide registry
+     */
+    public static SSLContextRegistry instance() {
+        synchronized(lock) {
+            if(null == current) {
+                current = new SSLContextRegistry(
+                        Preferences.instance().getInteger("connection.ssl.session.cache.size"));
+            }
+            return current;
+        }
+    }
+
+    /**
+     * Maximum number of contexts retained
+     */
+    private static final int MAXIMUM_CONTEXTS = 100;
+
+    private final Map<Key, SSLContext> contexts
+            = new LRUMap(MAXIMUM_CONTEXTS);
+
+    /**
+     * Identifiers of sessions already negotiated
+     */
+    private final Map<String, Boolean> negotiated;
+
+    private final AtomicLong full = new AtomicLong();
+
+    private final AtomicLong resumed = new AtomicLong();
+
+    private final int size;
+
+    /**
+     * @param size Number of sessions cached for each context
+     */
+    public SSLContextRegistry(final int size) {
+        this.size = size;
+        this.negotiated = Collections.synchronizedMap(new LRUMap(Math.max(1, size * 10)));
+    }
+
+    /**
+     * @param hostname Hostname
+     * @param port     Port
+     * @param trust    Trust manager of session
+     * @param key      Key manager for client certificate selection or null
+     * @return Context shared with other connections using the same trust and key manager
+     */
+    public synchronized SSLContext get(final String hostname, final int port,
+                                       final X509TrustManager trust, final X509KeyManager key) {
+        final Key id = new Key(hostname.toLowerCase(Locale.ENGLISH), port, trust, key);
+        SSLContext context = contexts.get(id);
+        if(null == context) {
+            if(log.isInfoEnabled()) {
+                log.info(String.format("Create SSL context for %s", id));
+            }
+            try {
+                context = SSLContext.getInstance("TLS");
+                context.init(null == key ? null : new KeyManager[]{key}, new TrustManager[]{trust}, null);
+            }
+            catch(NoSuchAlgorithmException e) {
+                throw new FactoryException(e.getMessage(), e);
+            }
+            catch(KeyManagementException e) {
+                throw new FactoryException(e.getMessage(), e);
+            }
+            context.getClientSessionContext().setSessionCacheSize(size);
+            contexts.put(id, context);
+        }
+        return context;
+    }
+
+    /**
+     * Count completed handshake
+     *
+     * @param session Negotiated session
+     */
+    public void handshake(final SSLSession session) {
+        final String id = ServiceUtils.toHex(session.getId());
+        if(null == negotiated.put(id, Boolean.TRUE)) {
+            full.incrementAndGet();
+            if(log.isDebugEnabled()) {
+                log.debug(String.format("Full handshake with %s:%d for session %s",
+                        session.getPeerHost(), session.getPeerPort(), id));
+            }
+        }
+        else {
+            resumed.incrementAndGet();
+            if(log.isDebugEnabled()) {
+                log.debug(String.format("Resumed session %s with %s:%d",
+                        id, session.getPeerHost(), session.getPeerPort()));
+            }
+        }
+    }
+
+    /**
+     * @return Number of handshakes with a new session
+     */
+    public long getFullHandshakes() {
+        return full.get();
+    }
+
+    /**
+     * @return Number of handshakes resuming a cached session
+     */
+    public long getResumedHandshakes() {
+        return resumed.get();
+    }
+
+    /**
+     * Host and port with trust and key manager compared by identity
+     */
+    private static final class Key {
+        private final String hostname;
+        private final int port;
+        private final X509TrustManager trust;
+        private final X509KeyManager key;
+
+        private Key(final String hostname, final int port, final X509TrustManager trust, final X509KeyManager key) {
+            this.hostname = hostname;
+            this.port = port;
+            this.trust = trust;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if(this == o) {
+                return true;
+            }
+            if(!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return port == other.port && hostname.equals(other.hostname)
+                    && trust == other.trust && key == other.key;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = hostname.hashCode();
+            result = 31 * result + port;
+            result = 31 * result + System.identityHashCode(trust);
+            result = 31 * result + System.identityHashCode(key);
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s:%d", hostname, port);
+        }
+    }
+}
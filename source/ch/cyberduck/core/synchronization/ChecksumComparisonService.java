@@ -20,15 +20,37 @@ package ch.cyberduck.core.synchronization;
 
 import ch.cyberduck.core.Path;
 import ch.cyberduck.core.PathAttributes;
+import ch.cyberduck.core.Preferences;
+import ch.cyberduck.core.io.AbstractChecksumCompute;
+import ch.cyberduck.core.io.MD5ChecksumCompute;
+import ch.cyberduck.core.io.MultipartChecksumCompute;
+import ch.cyberduck.core.local.Local;
+import ch.cyberduck.core.local.LocalAttributes;
+import ch.cyberduck.core.s3.S3Path;
 
 import org.apache.log4j.Logger;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 /**
+ * Compare the checksum of the remote file with the checksum of the local file. For objects uploaded to S3
+ * in multiple parts, the ETag is not the MD5 hash of the content but the MD5 hash of the MD5 hashes of all
+ * parts followed by the number of parts. The matching checksum of the local file is computed assuming the
+ * part size of multipart uploads if the number of parts is as expected.
+ *
  * @version $Id: ChecksumComparisonService.java 10548 2012-10-22 16:14:57Z dkocher $
  */
 public class ChecksumComparisonService implements ComparisonService {
     private static Logger log = Logger.getLogger(ComparisonService.class);
 
+    /**
+     * ETag of multipart upload with number of parts
+     */
+    private static final Pattern MULTIPART = Pattern.compile("[0-9a-fA-F]{32}-([0-9]+)");
+
     @Override
     public Comparison compare(final Path p) {
         if(log.isDebugEnabled()) {
@@ -36,7 +58,10 @@ public class ChecksumComparisonService implements ComparisonService {
         }
         final PathAttributes attributes = p.attributes();
         if(attributes.isFile()) {
+            Future<String> local = null;
             if(null == attributes.getChecksum()) {
+                // Hash local file while retrieving the remote checksum
+                local = this.checksum(p);
                 if(p.getSession().isChecksumSupported()) {
                     p.readChecksum();
                 }
@@ -45,12 +70,89 @@ public class ChecksumComparisonService implements ComparisonService {
                 log.warn("No checksum available for comparison:" + p);
                 return Comparison.UNEQUAL;
             }
+            final AbstractChecksumCompute algorithm = this.algorithm(p);
+            if(null == algorithm) {
+                return Comparison.UNEQUAL;
+            }
+            if(null == local || !(algorithm instanceof MD5ChecksumCompute)) {
+                local = this.checksum(p.getLocal(), algorithm);
+            }
+            if(null == local && !(algorithm instanceof MD5ChecksumCompute)) {
+                return Comparison.UNEQUAL;
+            }
             //fist make sure both files are larger than 0 bytes
-            if(attributes.getChecksum().equals(p.getLocal().attributes().getChecksum())) {
+            if(attributes.getChecksum().equals(this.get(p.getLocal(), local))) {
                 return Comparison.EQUAL;
             }
         }
         //different sum - further comparison check
         return Comparison.UNEQUAL;
     }
+
+    /**
+     * Start computing the checksum of the local file matching the known checksum of the remote file
+     * in the background.
+     *
+     * @param p Remote file with local file
+     * @return Null if the checksum cannot be computed in the background
+     */
+    public Future<String> checksum(final Path p) {
+        final AbstractChecksumCompute algorithm = this.algorithm(p);
+        if(null == algorithm) {
+            return null;
+        }
+        return this.checksum(p.getLocal(), algorithm);
+    }
+
+    /**
+     * @param p Remote file
+     * @return Algorithm to compute local checksum with or null if no matching checksum can be computed
+     */
+    private AbstractChecksumCompute algorithm(final Path p) {
+        final String checksum = p.attributes().getChecksum();
+        if(null == checksum) {
+            return new MD5ChecksumCompute();
+        }
+        final Matcher matcher = MULTIPART.matcher(checksum);
+        if(!matcher.matches()) {
+            return new MD5ChecksumCompute();
+        }
+        if(!Preferences.instance().getBoolean("queue.sync.compare.hash.multipart")) {
+            return null;
+        }
+        final long length = p.getLocal().attributes().getSize();
+        final long parts = Long.parseLong(matcher.group(1));
+        // Part size chosen for multipart uploads
+        final long partsize = Math.max(length / S3Path.MAXIMUM_UPLOAD_PARTS,
+                Preferences.instance().getLong("s3.upload.multipart.size"));
+        if(parts != (length + partsize - 1) / partsize) {
+            log.warn(String.format("Number of parts %d in checksum %s does not match part size %d of %s",
+                    parts, checksum, partsize, p.getLocal()));
+            return null;
+        }
+        return new MultipartChecksumCompute(partsize);
+    }
+
+    private Future<String> checksum(final Local local, final AbstractChecksumCompute algorithm) {
+        if(local.attributes() instanceof LocalAttributes) {
+            return ((LocalAttributes) local.attributes()).checksum(algorithm);
+        }
+        return null;
+    }
+
+    private String get(final Local local, final Future<String> checksum) {
+        if(null == checksum) {
+            return local.attributes().getChecksum();
+        }
+        try {
+            return checksum.get();
+        }
+        catch(InterruptedException e) {
+            log.error(String.format("Error computing checksum for %s", local), e);
+        }
+        catch(ExecutionException e) {
+            log.error(String.format("Error computing checksum for %s", local), e.getCause());
+        }
+        return null;
+    }
 }
@@ -19,13 +19,19 @@ package ch.cyberduck.core.synchronization;
  */
 
 import ch.cyberduck.core.Path;
-import ch.cyberduck.core.Preferences;
+import ch.cyberduck.core.Preference;
 
 /**
  * @version $Id: CombinedComparisionService.java 10273 2012-10-15 19:42:46Z dkocher $
  */
 public class CombinedComparisionService implements ComparisonService {
 
+    private static final Preference<Boolean> HASH
+            = Preference.bool("queue.sync.compare.hash");
+
+    private static final Preference<Boolean> SIZE
+            = Preference.bool("queue.sync.compare.size");
+
     private ComparisonService checksum
             = new ChecksumComparisonService();
 
@@ -43,7 +49,7 @@ public class CombinedComparisionService implements ComparisonService {
     @Override
     public Comparison compare(final Path p) {
         if(p.getLocal().exists() && p.exists()) {
-            if(Preferences.instance().getBoolean("queue.sync.compare.hash")) {
+            if(HASH.get()) {
                 // MD5/ETag Checksum is supported
                 Comparison comparison = checksum.compare(p);
                 if(!Comparison.UNEQUAL.equals(comparison)) {
@@ -51,7 +57,7 @@ public class CombinedComparisionService implements ComparisonService {
                     return comparison;
                 }
             }
-            if(Preferences.instance().getBoolean("queue.sync.compare.size")) {
+            if(SIZE.get()) {
                 Comparison comparison = size.compare(p);
                 if(!Comparison.UNEQUAL.equals(comparison)) {
                     // Decision is available
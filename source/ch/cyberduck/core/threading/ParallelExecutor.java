@@ -0,0 +1,134 @@
+package ch.cyberduck.core.threading;
+
+/*
+ * Copyright (c) 2002-2013 David Kocher. All rights reserved.
+ * http://cyberduck.ch/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * Bug fixes, suggestions and comments should be sent to:
+ * dkocher@cyberduck.ch
+ */
+
+import ch.cyberduck.core.ConnectionCanceledException;
+
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Run tasks concurrently in a fixed number of threads. Submitting blocks while twice as many tasks
+ * as threads are pending such that a producer cannot run ahead arbitrarily. The first failure
+ * of a task is rethrown to the producer and no further tasks are accepted.
+ *
+ * @version $Id$
+ */
+public final class ParallelExecutor {
+    private static final Logger log = Logger.getLogger(ParallelExecutor.class);
+
+    private final ExecutorService pool;
+
+    private final int limit;
+
+    /**
+     * Permits for tasks submitted but not yet completed
+     */
+    private final Semaphore pending;
+
+    private volatile Exception failure;
+
+    /**
+     * @param name        Thread name prefix
+     * @param concurrency Number of threads
+     */
+    public ParallelExecutor(final String name, final int concurrency) {
+        this.pool = Executors.newFixedThreadPool(Math.max(1, concurrency), new NamedThreadFactory(name));
+        this.limit = Math.max(1, concurrency) * 2;
+        this.pending = new Semaphore(limit);
+    }
+
+    /**
+     * @param task Task to run
+     * @throws IOException                 Previous task failed
+     * @throws ConnectionCanceledException Interrupted waiting for a previous task to complete
+     */
+    public void submit(final Callable<Void> task) throws IOException {
+        this.check();
+        try {
+            pending.acquire();
+        }
+        catch(InterruptedException e) {
+            throw new ConnectionCanceledException(e.getMessage(), e);
+        }
+        pool.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if(null == failure) {
+                        task.call();
+                    }
+                }
+                catch(Exception e) {
+                    log.warn(String.format("Task failed:%s", e.getMessage()));
+                    if(null == failure) {
+                        failure = e;
+                    }
+                }
+                finally {
+                    pending.release();
+                }
+            }
+        });
+    }
+
+    /**
+     * Wait for all submitted tasks to complete and release the threads.
+     *
+     * @throws IOException                 A task failed
+     * @throws ConnectionCanceledException Interrupted waiting for tasks to complete
+     */
+    public void await() throws IOException {
+        try {
+            pending.acquire(limit);
+            pending.release(limit);
+        }
+        catch(InterruptedException e) {
+            throw new ConnectionCanceledException(e.getMessage(), e);
+        }
+        finally {
+            pool.shutdownNow();
+        }
+        this.check();
+    }
+
+    private void check() throws IOException {
+        final Exception e = failure;
+        if(null == e) {
+            return;
+        }
+        pool.shutdownNow();
+        if(e instanceof IOException) {
+            throw (IOException) e;
+        }
+        throw new IOException(e.getMessage(), e);
+    }
+
+    /**
+     * Cancel pending tasks and release the threads
+     */
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
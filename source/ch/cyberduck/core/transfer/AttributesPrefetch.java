@@ -0,0 +1,308 @@
+package ch.cyberduck.core.transfer;
+
+/*
+ * Copyright (c) 2002-2013 David Kocher. All rights reserved.
+ * http://cyberduck.ch/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * Bug fixes, suggestions and comments should be sent to:
+ * dkocher@cyberduck.ch
+ */
+
+import ch.cyberduck.core.Acl;
+import ch.cyberduck.core.AttributedList;
+import ch.cyberduck.core.Cache;
+import ch.cyberduck.core.Path;
+import ch.cyberduck.core.PathAttributes;
+import ch.cyberduck.core.PathFactory;
+import ch.cyberduck.core.PathReference;
+import ch.cyberduck.core.Permission;
+import ch.cyberduck.core.Preferences;
+import ch.cyberduck.core.Session;
+import ch.cyberduck.core.SessionPool;
+import ch.cyberduck.core.threading.ParallelExecutor;
+
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Read attributes needed to prepare files for transfer in advance. Attributes missing are first copied from
+ * the directory listing of the parent which includes size, timestamp and permissions for most protocols
+ * (MLSD facts, S3 and Swift object listings). Only files still lacking attributes are queried one by one
+ * concurrently with connections from the pool of the transfer instead of serially in the transfer filter.
+ *
+ * @version $Id$
+ */
+public final class AttributesPrefetch {
+    private static final Logger log = Logger.getLogger(AttributesPrefetch.class);
+
+    /**
+     * @param session Session of transfer
+     * @param pool    Additional connections or null to leave queries to the transfer filter
+     * @return Size, timestamp and permission of files to download
+     */
+    public static AttributesPrefetch download(final Session session, final SessionPool pool) {
+        return new AttributesPrefetch(session, pool, true,
+                session.isReadTimestampSupported()
+                        && Preferences.instance().getBoolean("queue.download.preserveDate"),
+                session.isUnixPermissionsSupported()
+                        && Preferences.instance().getBoolean("queue.download.changePermissions"),
+                false, false);
+    }
+
+    /**
+     * @param session Session of transfer
+     * @param pool    Additional connections or null to leave queries to the transfer filter
+     * @return Permission and ACL of files to upload already found on the server
+     */
+    public static AttributesPrefetch upload(final Session session, final SessionPool pool) {
+        final boolean change = Preferences.instance().getBoolean("queue.upload.changePermissions");
+        return new AttributesPrefetch(session, pool, false, false,
+                change && session.isUnixPermissionsSupported(),
+                change && session.isAclSupported(),
+                true);
+    }
+
+    private final Session session;
+
+    /**
+     * Connections for queries of single files or null
+     */
+    private final SessionPool pool;
+
+    private final boolean size;
+
+    private final boolean timestamp;
+
+    private final boolean permission;
+
+    private final boolean acl;
+
+    /**
+     * Only read attributes of files found in the listing of the parent directory
+     */
+    private final boolean existing;
+
+    /**
+     * Minimum number of files in the same directory to list the directory instead of querying each file
+     */
+    private final int threshold;
+
+    private AttributesPrefetch(final Session session, final SessionPool pool, final boolean size,
+                               final boolean timestamp, final boolean permission, final boolean acl,
+                               final boolean existing) {
+        this.session = session;
+        this.pool = pool;
+        this.size = size;
+        this.timestamp = timestamp;
+        this.permission = permission;
+        this.acl = acl;
+        this.existing = existing;
+        this.threshold = Preferences.instance().getInteger("queue.prepare.prefetch.list.threshold");
+    }
+
+    /**
+     * @param files Files to be prepared for transfer
+     */
+    public void prefetch(final List<Path> files) {
+        final Map<Path, List<Path>> directories = new LinkedHashMap<Path, List<Path>>();
+        for(Path file : files) {
+            if(!this.isMissing(file)) {
+                continue;
+            }
+            final Path parent = file.getParent();
+            if(!directories.containsKey(parent)) {
+                directories.put(parent, new ArrayList<Path>());
+            }
+            directories.get(parent).add(file);
+        }
+        if(directories.isEmpty()) {
+            return;
+        }
+        final List<Path> missing = new ArrayList<Path>();
+        final Cache cache = session.cache();
+        for(Map.Entry<Path, List<Path>> entry : directories.entrySet()) {
+            final Path parent = entry.getKey();
+            final AttributedList<Path> list;
+            if(cache.containsKey(parent.getReference())) {
+                // Listing available
+                list = cache.get(parent.getReference());
+            }
+            else if(existing || entry.getValue().size() >= threshold) {
+                // A single listing instead of a query for every file. Listed anyway by the
+                // transfer filter to determine if a file exists.
+                list = parent.children();
+            }
+            else {
+                list = AttributedList.emptyList();
+            }
+            for(Path file : entry.getValue()) {
+                if(existing && !list.contains(file.getReference())) {
+                    // Not found on server
+                    continue;
+                }
+                this.copy(file, list);
+                if(this.isMissing(file)) {
+                    missing.add(file);
+                }
+            }
+        }
+        if(missing.isEmpty()) {
+            return;
+        }
+        if(null == pool) {
+            // Queried by transfer filter
+            return;
+        }
+        if(log.isInfoEnabled()) {
+            log.info(String.format("Read attributes of %d files with %d connections", missing.size(), pool.getSize()));
+        }
+        final ParallelExecutor executor = new ParallelExecutor("prefetch", pool.getSize());
+        try {
+            for(final Path file : missing) {
+                executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        final Session s = pool.borrow();
+                        try {
+                            // Shares attributes with the original file
+                            read(PathFactory.createPath(s, file));
+                        }
+                        finally {
+                            pool.release(s);
+                        }
+                        return null;
+                    }
+                });
+            }
+            executor.await();
+        }
+        catch(IOException e) {
+            log.warn(String.format("Failure reading attributes:%s", e.getMessage()));
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Copy attributes from directory listing
+     *
+     * @param file File
+     * @param list Listing of parent directory
+     */
+    private void copy(final Path file, final AttributedList<Path> list) {
+        final PathReference reference = file.getReference();
+        if(!list.contains(reference)) {
+            return;
+        }
+        final Path listed = list.get(reference);
+        if(listed == file) {
+            return;
+        }
+        final PathAttributes attributes = file.attributes();
+        if(size) {
+            if(-1 == attributes.getSize()) {
+                attributes.setSize(listed.attributes().getSize());
+            }
+            if(null == attributes.getChecksum()) {
+                attributes.setChecksum(listed.attributes().getChecksum());
+            }
+        }
+        if(timestamp && -1 == attributes.getModificationDate()) {
+            attributes.setModificationDate(listed.attributes().getModificationDate());
+        }
+        if(permission && this.isPermissionMissing(file)) {
+            if(!listed.attributes().getPermission().equals(Permission.EMPTY)) {
+                attributes.setPermission(listed.attributes().getPermission());
+                attributes.setPermissionRead(true);
+            }
+        }
+        if(acl && !attributes.isAclRead()) {
+            if(!Acl.EMPTY.equals(listed.attributes().getAcl())) {
+                attributes.setAcl(listed.attributes().getAcl());
+                attributes.setAclRead(true);
+            }
+        }
+    }
+
+    /**
+     * Query attributes still missing
+     *
+     * @param file File bound to connection from pool
+     */
+    private void read(final Path file) {
+        if(size && file.attributes().isFile() && -1 == file.attributes().getSize()) {
+            file.readSize();
+        }
+        if(timestamp && -1 == file.attributes().getModificationDate()) {
+            file.readTimestamp();
+        }
+        if(permission && this.isPermissionMissing(file)) {
+            if(existing) {
+                // Discard permission set from local file when prepared before
+                file.attributes().setPermission(Permission.EMPTY);
+            }
+            file.readUnixPermission();
+            file.attributes().setPermissionRead(true);
+        }
+        if(acl && !file.attributes().isAclRead()) {
+            file.readAcl();
+            file.attributes().setAclRead(true);
+        }
+    }
+
+    /**
+     * @param file File
+     * @return True if the transfer filter would query attributes of the file
+     */
+    private boolean isMissing(final Path file) {
+        if(file.attributes().isSymbolicLink()) {
+            // Resolved by transfer filter
+            return false;
+        }
+        if(size && file.attributes().isFile() && -1 == file.attributes().getSize()) {
+            return true;
+        }
+        if(timestamp && -1 == file.attributes().getModificationDate()) {
+            return true;
+        }
+        if(permission && this.isPermissionMissing(file)) {
+            return true;
+        }
+        if(acl && !file.attributes().isAclRead()) {
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param file File
+     * @return True unless the permission of the file on the server is known
+     */
+    private boolean isPermissionMissing(final Path file) {
+        if(file.attributes().isPermissionRead()) {
+            return false;
+        }
+        if(existing) {
+            // Permission of file to upload may be set from the local file
+            return true;
+        }
+        return file.attributes().getPermission().equals(Permission.EMPTY);
+    }
+}
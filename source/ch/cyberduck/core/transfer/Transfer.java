@@ -21,25 +21,38 @@ package ch.cyberduck.core.transfer;
 import ch.cyberduck.core.*;
 import ch.cyberduck.core.i18n.Locale;
 import ch.cyberduck.core.io.BandwidthThrottle;
+import ch.cyberduck.core.io.BandwidthThrottleRegistry;
 import ch.cyberduck.core.local.Local;
+import ch.cyberduck.core.local.LocalFactory;
 import ch.cyberduck.core.serializer.Deserializer;
 import ch.cyberduck.core.serializer.DeserializerFactory;
 import ch.cyberduck.core.serializer.Serializer;
 import ch.cyberduck.core.serializer.SerializerFactory;
+import ch.cyberduck.core.threading.NamedThreadFactory;
 import ch.cyberduck.ui.growl.Growl;
 
 import org.apache.log4j.Logger;
 
+import java.io.File;
 import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @version $Id: Transfer.java 10988 2013-05-02 12:26:23Z dkocher $
@@ -60,18 +73,33 @@ public abstract class Transfer implements Serializable {
     /**
      * The sum of the file length of all files in the <code>queue</code>
      */
-    private long size = 0;
+    private final AtomicLong size = new AtomicLong();
 
     /**
      * The number bytes already transferred of the files in the <code>queue</code>
      */
-    private long transferred = 0;
+    private final AtomicLong transferred = new AtomicLong();
 
     /**
      * The transfer has been canceled and should
      * not continue any further processing
      */
-    private boolean canceled;
+    private volatile boolean canceled;
+
+    /**
+     * Additional connections for concurrent file transfers while running
+     */
+    private volatile SessionPool pool;
+
+    /**
+     * Unique identifier of transfer persisted across launches
+     */
+    private String uuid = UUID.randomUUID().toString();
+
+    /**
+     * Files completed recorded while running or null
+     */
+    private volatile TransferJournal journal;
 
     // Backward compatibility for serialization
     public static final int KIND_DOWNLOAD = 0;
@@ -154,22 +182,22 @@ public abstract class Transfer implements Serializable {
      */
     public Transfer(final List<Path> roots, final BandwidthThrottle bandwidth) {
         this.roots = roots;
-        this.status = new HashMap<Path, TransferStatus>();
+        this.status = new ConcurrentHashMap<Path, TransferStatus>();
         for(Path root : this.roots) {
             this.status.put(root, new TransferStatus());
         }
         this.session = this.getRoot().getSession();
-        this.bandwidth = bandwidth;
+        this.setBandwidth(bandwidth);
     }
 
     public <T> Transfer(final T serialized, final Session session, final BandwidthThrottle bandwidth) {
         this.session = session;
-        this.bandwidth = bandwidth;
+        this.setBandwidth(bandwidth);
         final Deserializer dict = DeserializerFactory.createDeserializer(serialized);
         final List rootsObj = dict.listForKey("Roots");
         if(rootsObj != null) {
             roots = new ArrayList<Path>();
-            status = new HashMap<Path, TransferStatus>();
+            status = new ConcurrentHashMap<Path, TransferStatus>();
             for(Object rootDict : rootsObj) {
                 final Path root = PathFactory.createPath(session, rootDict);
                 roots.add(root);
@@ -177,7 +205,7 @@ public abstract class Transfer implements Serializable {
         }
         Object sizeObj = dict.stringForKey("Size");
         if(sizeObj != null) {
-            size = (long) Double.parseDouble(sizeObj.toString());
+            size.set((long) Double.parseDouble(sizeObj.toString()));
         }
         Object timestampObj = dict.stringForKey("Timestamp");
         if(timestampObj != null) {
@@ -185,12 +213,16 @@ public abstract class Transfer implements Serializable {
         }
         Object currentObj = dict.stringForKey("Current");
         if(currentObj != null) {
-            transferred = (long) Double.parseDouble(currentObj.toString());
+            transferred.set((long) Double.parseDouble(currentObj.toString()));
         }
         Object bandwidthObj = dict.stringForKey("Bandwidth");
         if(bandwidthObj != null) {
             bandwidth.setRate(Float.parseFloat(bandwidthObj.toString()));
         }
+        Object uuidObj = dict.stringForKey("UUID");
+        if(uuidObj != null) {
+            uuid = uuidObj.toString();
+        }
     }
 
     @Override
@@ -208,6 +240,7 @@ public abstract class Transfer implements Serializable {
         if(bandwidth != null) {
             dict.setStringForKey(String.valueOf(bandwidth.getRate()), "Bandwidth");
         }
+        dict.setStringForKey(uuid, "UUID");
         return dict;
     }
 
@@ -305,8 +338,14 @@ public abstract class Transfer implements Serializable {
         }
     }
 
+    /**
+     * @param bandwidth Throttle for this transfer. Shares the bandwidth limit of the host.
+     */
     public void setBandwidth(final BandwidthThrottle bandwidth) {
         this.bandwidth = bandwidth;
+        if(null != session) {
+            this.bandwidth.setParent(BandwidthThrottleRegistry.host(session.getHost()));
+        }
     }
 
     /**
@@ -353,6 +392,13 @@ public abstract class Transfer implements Serializable {
         return Collections.singletonList(this.session);
     }
 
+    /**
+     * @return Additional connections of the running transfer or null if not transferring concurrently
+     */
+    protected SessionPool getPool() {
+        return pool;
+    }
+
     public String getName() {
         return this.getRoot().getName();
     }
@@ -400,6 +446,23 @@ public abstract class Transfer implements Serializable {
      */
     public abstract AttributedList<Path> children(final Path parent);
 
+    /**
+     * Returns the children of this path notifying the listener while the listing is read to allow
+     * to cancel listing large directories. Transfers not reading children in chunks notify the listener
+     * once with all children.
+     *
+     * @param parent   The directory to list the children
+     * @param listener Notified with chunks of children. May cancel the listing.
+     * @return A list of child items
+     * @throws ConnectionCanceledException Canceled by listener
+     */
+    public AttributedList<Path> children(final Path parent, final ListProgressListener listener)
+            throws ConnectionCanceledException {
+        final AttributedList<Path> children = this.children(parent);
+        listener.chunk(children, children);
+        return children;
+    }
+
     public boolean isSelected(Path item) {
         if(status.containsKey(item)) {
             return status.get(item).isSelected();
@@ -442,6 +505,10 @@ public abstract class Transfer implements Serializable {
             status.setComplete();
             return;
         }
+        if(status.isComplete()) {
+            // Completed before according to journal
+            return;
+        }
         if(!this.check()) {
             return;
         }
@@ -453,6 +520,7 @@ public abstract class Transfer implements Serializable {
             if(file.attributes().isFile()) {
                 // Post process of file
                 filter.complete(file, options, status);
+                this.journal(file, status);
             }
             // Notification
             this.fireDidTransferPath(file);
@@ -483,10 +551,172 @@ public abstract class Transfer implements Serializable {
             }
             // Post process of directory
             filter.complete(file, options, status);
+            if(!failure) {
+                this.journal(file, status);
+            }
             this.cache().remove(file.getReference());
         }
     }
 
+    /**
+     * Transfer files concurrently using the connections from the pool. Directories are
+     * transferred on the calling thread before any of their children are scheduled.
+     *
+     * @param file        File
+     * @param filter      Filter to apply to exclude files from transfer
+     * @param options     Quarantine option
+     * @param status      Transfer status
+     * @param pool        Connections to borrow from for file transfers
+     * @param executor    Worker threads
+     * @param files       Scheduled file transfers
+     * @param directories Directories pending post processing in the order visited
+     */
+    private void transfer(final Path file, final TransferPathFilter filter,
+                          final TransferOptions options, final TransferStatus status,
+                          final SessionPool pool, final ExecutorService executor,
+                          final List<Future<Path>> files, final List<PendingDirectory> directories) {
+        if(!status.isSelected()) {
+            if(log.isInfoEnabled()) {
+                log.info(String.format("Skip %s not selected in prompt", file.getAbsolute()));
+            }
+            status.setComplete();
+            return;
+        }
+        if(status.isComplete()) {
+            // Completed before according to journal
+            return;
+        }
+        if(!this.check()) {
+            return;
+        }
+        if(filter.accept(file)) {
+            if(file.attributes().isFile()) {
+                files.add(executor.submit(new Callable<Path>() {
+                    @Override
+                    public Path call() throws IOException {
+                        transfer(file, filter, options, status, pool);
+                        return file;
+                    }
+                }));
+                return;
+            }
+            // Notification
+            this.fireWillTransferPath(file);
+            // Transfer
+            this.transfer(file, options, status);
+            // Notification
+            this.fireDidTransferPath(file);
+        }
+        else {
+            status.setComplete();
+        }
+        if(!this.check()) {
+            return;
+        }
+        if(file.attributes().isDirectory()) {
+            final AttributedList<Path> children = this.children(file);
+            final PendingDirectory directory = new PendingDirectory(file, status);
+            if(!children.attributes().isReadable()) {
+                directory.failure = true;
+            }
+            directories.add(directory);
+            for(Path child : children) {
+                directory.children.add(child);
+                // Recursive
+                this.transfer(child, filter, options, this.status.get(child), pool, executor, files, directories);
+            }
+        }
+    }
+
+    /**
+     * Transfer a single file with a connection from the pool
+     *
+     * @param file    File
+     * @param filter  Filter to apply to exclude files from transfer
+     * @param options Quarantine option
+     * @param status  Transfer status
+     * @param pool    Connections to borrow from
+     * @throws IOException Opening the connection failed
+     */
+    private void transfer(final Path file, final TransferPathFilter filter,
+                          final TransferOptions options, final TransferStatus status,
+                          final SessionPool pool) throws IOException {
+        if(!this.check()) {
+            return;
+        }
+        final Session session = pool.borrow();
+        try {
+            // Bind to the connection borrowed from the pool
+            final Path copy = PathFactory.createPath(session, file);
+            // Notification
+            this.fireWillTransferPath(file);
+            // Transfer
+            this.transfer(copy, options, status);
+            // Post process of file
+            filter.complete(copy, options, status);
+            this.journal(file, status);
+            // Notification
+            this.fireDidTransferPath(file);
+        }
+        finally {
+            pool.release(session);
+        }
+    }
+
+    /**
+     * Directory waiting for its children to complete
+     */
+    private static final class PendingDirectory {
+        private final Path directory;
+        private final TransferStatus status;
+        private final List<Path> children = new ArrayList<Path>();
+        private boolean failure;
+
+        private PendingDirectory(final Path directory, final TransferStatus status) {
+            this.directory = directory;
+            this.status = status;
+        }
+    }
+
+    /**
+     * @return True if files can be transferred concurrently using multiple connections
+     */
+    protected boolean isParallelizable() {
+        return false;
+    }
+
+    /**
+     * @return The number of connections to use for this transfer including the
+     *         connection of the session. Limited by the maximum number of connections allowed for the host.
+     * @see Session#getMaxConnections()
+     */
+    protected int getConnections() {
+        if(!this.isParallelizable()) {
+            return 1;
+        }
+        int connections = Preferences.instance().getInteger("queue.connections.limit");
+        final int max = session.getMaxConnections();
+        if(max > 0) {
+            connections = Math.min(connections, max);
+        }
+        return Math.max(1, connections);
+    }
+
+    /**
+     * @return True if files are prepared and transferred at the same time. Requires an
+     *         additional connection to the host for transferring files.
+     */
+    protected boolean isPipelined() {
+        if(!this.isParallelizable()) {
+            return false;
+        }
+        if(!Preferences.instance().getBoolean("queue.prepare.pipeline")) {
+            return false;
+        }
+        final int max = session.getMaxConnections();
+        return max < 0 || max > 1;
+    }
+
     /**
      * The actual transfer implementation
      *
@@ -534,13 +764,74 @@ public abstract class Transfer implements Serializable {
         }
         // Reset the cached size of the transfer and progress value
         this.reset();
-        // Calculate information about the files in advance to give progress information
-        for(Path next : roots) {
-            this.prepare(next, filter);
+        final TransferJournal journal = this.journal(action);
+        this.journal = journal;
+        final ScheduledExecutorService checkpoint = Executors.newSingleThreadScheduledExecutor(
+                new NamedThreadFactory("journal"));
+        if(null != journal) {
+            final long interval = Preferences.instance().getLong("queue.journal.interval");
+            // Write progress to disk outside of the threads transferring files
+            checkpoint.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    checkpoint(journal);
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+        }
+        try {
+            final int connections = this.getConnections();
+            if(this.isPipelined()) {
+                // Transfer files while the size of the transfer is calculated
+                final SessionPool pool = new SessionPool(session, Math.max(1, connections - 1));
+                this.pool = pool;
+                try {
+                    new TransferPipeline(this, status, filter, options, pool).run(roots);
+                }
+                finally {
+                    pool.close();
+                    this.pool = null;
+                }
+            }
+            else {
+                final SessionPool pool = connections > 1 ? new SessionPool(session, connections - 1) : null;
+                this.pool = pool;
+                try {
+                    // Calculate information about the files in advance to give progress information
+                    this.prefetch(roots, pool);
+                    for(Path next : roots) {
+                        this.prepare(next, filter, pool);
+                    }
+                    if(null == pool) {
+                        // Transfer all files sequentially
+                        for(Path next : roots) {
+                            this.transfer(next, filter, options, status.get(next));
+                        }
+                    }
+                    else {
+                        // Transfer files concurrently
+                        this.transfer(filter, options, pool);
+                    }
+                }
+                finally {
+                    if(null != pool) {
+                        pool.close();
+                    }
+                    this.pool = null;
+                }
+            }
         }
-        // Transfer all files sequentially
-        for(Path next : roots) {
-            this.transfer(next, filter, options, status.get(next));
+        finally {
+            checkpoint.shutdownNow();
+            this.journal = null;
+            if(null != journal) {
+                if(this.isComplete() && !this.isCanceled()) {
+                    journal.delete();
+                }
+                else {
+                    this.checkpoint(journal);
+                    journal.close();
+                }
+            }
         }
         this.clear(options);
         if(options.closeSession) {
@@ -550,13 +841,217 @@ public abstract class Transfer implements Serializable {
         }
     }
 
+    /**
+     * Transfer files concurrently with additional connections to the same host. The session of this
+     * transfer is used for listing and creating directories.
+     *
+     * @param filter  Filter to apply to exclude files from transfer
+     * @param options Transfer options
+     * @param pool    Additional connections for file transfers
+     */
+    private void transfer(final TransferPathFilter filter, final TransferOptions options, final SessionPool pool) {
+        if(log.isInfoEnabled()) {
+            log.info(String.format("Transfer %s with %d connections", this.getName(), pool.getSize() + 1));
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(pool.getSize(),
+                new NamedThreadFactory("transfer"));
+        try {
+            final List<Future<Path>> files = new ArrayList<Future<Path>>();
+            final List<PendingDirectory> directories = new ArrayList<PendingDirectory>();
+            for(Path next : roots) {
+                this.transfer(next, filter, options, status.get(next), pool, executor, files, directories);
+            }
+            for(Future<Path> future : files) {
+                try {
+                    future.get();
+                }
+                catch(InterruptedException e) {
+                    log.error(String.format("Interrupted waiting for file transfer:%s", e.getMessage()));
+                    this.cancel();
+                }
+                catch(ExecutionException e) {
+                    log.warn(String.format("File transfer failed:%s", e.getMessage()));
+                }
+            }
+            // Post process directories after all their children
+            Collections.reverse(directories);
+            for(PendingDirectory directory : directories) {
+                boolean failure = directory.failure;
+                for(Path child : directory.children) {
+                    if(!this.status.get(child).isComplete()) {
+                        failure = true;
+                    }
+                    this.status.remove(child);
+                }
+                // Set completion status
+                if(!failure) {
+                    directory.status.setComplete();
+                }
+                if(!this.isCanceled()) {
+                    // Post process of directory
+                    filter.complete(directory.directory, options, directory.status);
+                }
+                if(!failure) {
+                    this.journal(directory.directory, directory.status);
+                }
+                this.cache().remove(directory.directory.getReference());
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @param action Transfer action selected
+     * @return Journal of this transfer or null if disabled. Cleared unless resuming.
+     */
+    private TransferJournal journal(final TransferAction action) {
+        if(!Preferences.instance().getBoolean("queue.journal")) {
+            return null;
+        }
+        final File file = this.getJournalFile();
+        if(null == file) {
+            return null;
+        }
+        final TransferJournal journal = new TransferJournal(file);
+        if(action.equals(TransferAction.ACTION_RESUME)) {
+            if(log.isInfoEnabled()) {
+                log.info(String.format("Resume transfer %s with %d files completed", this.getName(),
+                        journal.getCompleted()));
+            }
+        }
+        else {
+            journal.clear();
+        }
+        return journal;
+    }
+
+    /**
+     * @return Location of journal or null if unknown
+     */
+    private File getJournalFile() {
+        final String directory = Preferences.instance().getProperty("application.support.path");
+        if(null == directory) {
+            return null;
+        }
+        return new File(new File(LocalFactory.createLocal(directory).getAbsolute(), "Transfers"),
+                String.format("%s.journal", uuid));
+    }
+
+    /**
+     * Remove the progress recorded to resume this transfer when it is removed from the queue
+     */
+    public void deleteJournal() {
+        final TransferJournal j = journal;
+        if(null != j) {
+            j.delete();
+            return;
+        }
+        final File file = this.getJournalFile();
+        if(null != file && file.exists()) {
+            if(log.isDebugEnabled()) {
+                log.debug(String.format("Delete journal %s", file));
+            }
+            if(!file.delete()) {
+                log.warn(String.format("Failure deleting %s", file));
+            }
+        }
+    }
+
+    /**
+     * Record multipart uploads in progress and write journal to disk
+     *
+     * @param journal Journal of transfer
+     */
+    private void checkpoint(final TransferJournal journal) {
+        for(Map.Entry<Path, TransferStatus> entry : status.entrySet()) {
+            final TransferStatus s = entry.getValue();
+            if(!s.isComplete()) {
+                journal.multipart(entry.getKey().getAbsolute(), s.getMultipart());
+            }
+        }
+        journal.checkpoint();
+    }
+
+    /**
+     * Skip file or directory completed before the transfer was interrupted
+     *
+     * @param file File
+     * @return Completed status or null if not recorded in journal
+     */
+    TransferStatus journaled(final Path file) {
+        final TransferJournal j = journal;
+        if(null == j) {
+            return null;
+        }
+        final long length = j.getLength(file.getAbsolute());
+        if(-1 == length) {
+            return null;
+        }
+        if(log.isDebugEnabled()) {
+            log.debug(String.format("Skip %s completed before", file.getAbsolute()));
+        }
+        final TransferStatus s = new TransferStatus();
+        s.setLength(length);
+        s.setCurrent(length);
+        s.setComplete();
+        this.addSize(length);
+        this.addTransferred(length);
+        return s;
+    }
+
+    /**
+     * Continue multipart upload recorded in journal
+     *
+     * @param file   File
+     * @param status Transfer status determined by filter
+     */
+    void restore(final Path file, final TransferStatus status) {
+        final TransferJournal j = journal;
+        if(null == j) {
+            return;
+        }
+        if(status.isResume()) {
+            status.setMultipart(j.getMultipart(file.getAbsolute()));
+        }
+    }
+
+    /**
+     * Record completed file or directory with all its children
+     *
+     * @param file   File
+     * @param status Transfer status
+     */
+    void journal(final Path file, final TransferStatus status) {
+        final TransferJournal j = journal;
+        if(null == j) {
+            return;
+        }
+        if(status.isComplete()) {
+            j.complete(file.getAbsolute(), file.attributes().isFile() ? status.getLength() : 0L);
+        }
+    }
+
+    /**
+     * Read attributes of files in advance that would otherwise be queried for each file
+     * when preparing the transfer. Default implementation does nothing.
+     *
+     * @param files Files about to be prepared
+     * @param pool  Additional connections for concurrent queries or null
+     */
+    protected void prefetch(final List<Path> files, final SessionPool pool) {
+        //
+    }
+
     /**
      * To be called before any file is actually transferred
      *
      * @param p      File
      * @param filter Filter to apply to exclude files from transfer
+     * @param pool   Additional connections or null
      */
-    private void prepare(final Path p, final TransferPathFilter filter) {
+    private void prepare(final Path p, final TransferPathFilter filter, final SessionPool pool) {
         if(log.isDebugEnabled()) {
             log.debug(String.format("Find transfer status for path %s", p.getAbsolute()));
         }
@@ -566,6 +1061,11 @@ public abstract class Transfer implements Serializable {
         if(!this.isSelected(p)) {
             return;
         }
+        final TransferStatus journaled = this.journaled(p);
+        if(null != journaled) {
+            status.put(p, journaled);
+            return;
+        }
         final TransferStatus s;
         // Only prepare the path it will be actually transferred
         if(filter.accept(p)) {
@@ -574,6 +1074,7 @@ public abstract class Transfer implements Serializable {
             }
             session.message(MessageFormat.format(Locale.localizedString("Prepare {0}", "Status"), p.getName()));
             s = filter.prepare(p);
+            this.restore(p, s);
             // Add transfer length to total bytes
             this.addSize(s.getLength());
             // Add skipped bytes
@@ -588,9 +1089,11 @@ public abstract class Transfer implements Serializable {
         }
         status.put(p, s);
         if(p.attributes().isDirectory()) {
+            final AttributedList<Path> children = this.children(p);
+            this.prefetch(children, pool);
             // Call recursively for all children
-            for(Path child : this.children(p)) {
-                this.prepare(child, filter);
+            for(Path child : children) {
+                this.prepare(child, filter, pool);
             }
         }
     }
@@ -683,6 +1186,10 @@ public abstract class Transfer implements Serializable {
         for(Session s : this.getSessions()) {
             s.interrupt();
         }
+        final SessionPool p = pool;
+        if(p != null) {
+            p.interrupt();
+        }
     }
 
     /**
@@ -730,8 +1237,8 @@ public abstract class Transfer implements Serializable {
         if(log.isDebugEnabled()) {
             log.debug(String.format("Reset status for %s", this.getName()));
         }
-        transferred = 0;
-        size = 0;
+        transferred.set(0);
+        size.set(0);
         reset = true;
     }
 
@@ -760,21 +1267,21 @@ public abstract class Transfer implements Serializable {
      * @return The sum of all file lengths in this transfer.
      */
     public long getSize() {
-        return size;
+        return size.get();
     }
 
     public void addSize(final long bytes) {
-        size += bytes;
+        size.addAndGet(bytes);
     }
 
     /**
      * @return The number of bytes transferred of all files.
      */
     public long getTransferred() {
-        return transferred;
+        return transferred.get();
     }
 
     public void addTransferred(final long bytes) {
-        transferred += bytes;
+        transferred.addAndGet(bytes);
     }
 }
\ No newline at end of file
@@ -77,6 +77,12 @@ public final class TransferCollection extends Collection<Transfer> {
         this.save();
     }
 
+    @Override
+    public void collectionItemRemoved(Transfer transfer) {
+        transfer.deleteJournal();
+        super.collectionItemRemoved(transfer);
+    }
+
     public void save() {
         this.save(file);
     }
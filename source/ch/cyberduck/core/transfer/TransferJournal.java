@@ -0,0 +1,450 @@
+package ch.cyberduck.core.transfer;
+
+/*
+ * Copyright (c) 2002-2013 David Kocher. All rights reserved.
+ * http://cyberduck.ch/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * Bug fixes, suggestions and comments should be sent to:
+ * dkocher@cyberduck.ch
+ */
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Progress of a transfer appended to a file as files complete such that a transfer interrupted by a crash
+ * can be resumed without preparing files already transferred again. Records completed files and directories
+ * with their length and identifiers of multipart uploads in progress. Each record is followed by its CRC32
+ * checksum and reading stops at the first truncated or corrupt record. Records are buffered in memory and
+ * only written to disk on checkpoints. The file is rewritten with the current state if it contains mostly
+ * obsolete records. Writing to disk does not block recording further progress.
+ *
+ * @version $Id$
+ */
+public final class TransferJournal {
+    private static final Logger log = Logger.getLogger(TransferJournal.class);
+
+    private static final int MAGIC = 0x544a4e31;
+
+    private static final byte COMPLETE = 1;
+
+    private static final byte MULTIPART = 2;
+
+    /**
+     * Minimum number of records before compacting
+     */
+    private static final int COMPACT_THRESHOLD = 1000;
+
+    private final File file;
+
+    /**
+     * Compacted journal written before replacing the file
+     */
+    private final File temporary;
+
+    /**
+     * Length of completed files by path
+     */
+    private final Map<String, Long> completed = new HashMap<String, Long>();
+
+    /**
+     * Identifier of multipart upload by path
+     */
+    private final Map<String, String> multipart = new HashMap<String, String>();
+
+    /**
+     * Records not yet written to disk
+     */
+    private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+    /**
+     * Number of records in file and buffer
+     */
+    private int records;
+
+    /**
+     * False if closed or writing failed
+     */
+    private boolean open;
+
+    /**
+     * Serializes writing to disk. Must be acquired before the monitor of this journal.
+     */
+    private final Object lock = new Object();
+
+    /**
+     * Guarded by lock
+     */
+    private FileOutputStream stream;
+
+    /**
+     * @param file Journal file
+     */
+    public TransferJournal(final File file) {
+        this.file = file;
+        this.temporary = new File(file.getParentFile(), file.getName() + ".tmp");
+        this.load();
+    }
+
+    /**
+     * @param path Absolute path
+     * @return True if the file or directory including all children is completed
+     */
+    public synchronized boolean isComplete(final String path) {
+        return completed.containsKey(path);
+    }
+
+    /**
+     * @param path Absolute path
+     * @return Length of completed file or -1 if not completed
+     */
+    public synchronized long getLength(final String path) {
+        final Long length = completed.get(path);
+        if(null == length) {
+            return -1L;
+        }
+        return length;
+    }
+
+    /**
+     * @param path Absolute path
+     * @return Identifier of multipart upload in progress or null
+     */
+    public synchronized String getMultipart(final String path) {
+        return multipart.get(path);
+    }
+
+    /**
+     * @return Number of completed files and directories
+     */
+    public synchronized int getCompleted() {
+        return completed.size();
+    }
+
+    /**
+     * @param path   Absolute path
+     * @param length Length of file
+     */
+    public synchronized void complete(final String path, final long length) {
+        completed.put(path, length);
+        multipart.remove(path);
+        this.append(COMPLETE, path, length, null);
+    }
+
+    /**
+     * @param path Absolute path
+     * @param id   Identifier of multipart upload or null if no longer in progress
+     */
+    public synchronized void multipart(final String path, final String id) {
+        if(StringUtils.equals(multipart.get(path), id)) {
+            return;
+        }
+        if(null == id) {
+            multipart.remove(path);
+        }
+        else {
+            multipart.put(path, id);
+        }
+        this.append(MULTIPART, path, 0L, id);
+    }
+
+    /**
+     * Write buffered records to disk and compact the file if it contains mostly obsolete records
+     */
+    public void checkpoint() {
+        synchronized(lock) {
+            final byte[] pending;
+            final Map<String, Long> c;
+            final Map<String, String> m;
+            synchronized(this) {
+                if(!open) {
+                    return;
+                }
+                if(records > COMPACT_THRESHOLD && records > (completed.size() + multipart.size()) * 2) {
+                    // Buffered records are included in the current state
+                    c = new HashMap<String, Long>(completed);
+                    m = new HashMap<String, String>(multipart);
+                    records = c.size() + m.size();
+                    pending = null;
+                }
+                else {
+                    c = null;
+                    m = null;
+                    pending = buffer.toByteArray();
+                }
+                buffer = new ByteArrayOutputStream();
+            }
+            try {
+                if(null == pending) {
+                    this.compact(c, m);
+                }
+                else if(pending.length > 0) {
+                    stream.write(pending);
+                    stream.getFD().sync();
+                }
+            }
+            catch(IOException e) {
+                this.fail(e);
+            }
+        }
+    }
+
+    /**
+     * Remove all records
+     */
+    public void clear() {
+        synchronized(lock) {
+            synchronized(this) {
+                completed.clear();
+                multipart.clear();
+                buffer = new ByteArrayOutputStream();
+                records = 0;
+            }
+            try {
+                this.compact(Collections.<String, Long>emptyMap(), Collections.<String, String>emptyMap());
+            }
+            catch(IOException e) {
+                this.fail(e);
+            }
+        }
+    }
+
+    /**
+     * Write buffered records and close file
+     */
+    public void close() {
+        synchronized(lock) {
+            this.checkpoint();
+            this.shutdown();
+        }
+    }
+
+    /**
+     * Close and remove file when the transfer is complete
+     */
+    public void delete() {
+        synchronized(lock) {
+            this.shutdown();
+            for(File f : new File[]{file, temporary}) {
+                if(f.exists()) {
+                    if(!f.delete()) {
+                        log.warn(String.format("Failure deleting %s", f));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Close file and discard records not written
+     */
+    private void shutdown() {
+        IOUtils.closeQuietly(stream);
+        stream = null;
+        synchronized(this) {
+            open = false;
+            buffer = new ByteArrayOutputStream();
+        }
+    }
+
+    private void append(final byte type, final String path, final long length, final String id) {
+        if(!open) {
+            return;
+        }
+        try {
+            this.write(new DataOutputStream(buffer), type, path, length, id);
+            records++;
+        }
+        catch(IOException e) {
+            // Not expected writing to memory
+            log.error(String.format("Failure buffering record for %s:%s", path, e.getMessage()));
+        }
+    }
+
+    private void fail(final IOException e) {
+        log.warn(String.format("Failure writing transfer journal %s:%s", file, e.getMessage()));
+        this.shutdown();
+    }
+
+    /**
+     * Read records until the end of the file or the first invalid record
+     */
+    private void load() {
+        // Journal must be rewritten
+        boolean invalid = false;
+        // Interrupted after removing the file but before renaming the compacted journal
+        final File source = !file.exists() && temporary.exists() ? temporary : file;
+        if(source.exists()) {
+            DataInputStream in = null;
+            try {
+                in = new DataInputStream(new BufferedInputStream(new FileInputStream(source)));
+                if(in.readInt() != MAGIC) {
+                    log.warn(String.format("Discard transfer journal %s with unknown format", source));
+                    invalid = true;
+                }
+                else {
+                    final CRC32 crc = new CRC32();
+                    while(true) {
+                        final int size;
+                        try {
+                            size = in.readInt();
+                        }
+                        catch(EOFException e) {
+                            break;
+                        }
+                        if(size <= 0 || size > 65536) {
+                            throw new IOException(String.format("Invalid record length %d", size));
+                        }
+                        final byte[] record = new byte[size];
+                        in.readFully(record);
+                        crc.reset();
+                        crc.update(record);
+                        if((int) crc.getValue() != in.readInt()) {
+                            throw new IOException("Checksum mismatch");
+                        }
+                        this.read(record);
+                        records++;
+                    }
+                }
+            }
+            catch(IOException e) {
+                // Truncated or corrupt record written when interrupted
+                log.warn(String.format("Failure reading transfer journal %s after %d records:%s",
+                        source, records, e.getMessage()));
+                invalid = true;
+            }
+            finally {
+                IOUtils.closeQuietly(in);
+            }
+        }
+        synchronized(lock) {
+            try {
+                if(invalid || !file.exists()) {
+                    this.compact(completed, multipart);
+                    records = completed.size() + multipart.size();
+                }
+                else {
+                    stream = new FileOutputStream(file, true);
+                }
+                open = true;
+            }
+            catch(IOException e) {
+                this.fail(e);
+            }
+        }
+    }
+
+    private void read(final byte[] record) throws IOException {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        final byte type = in.readByte();
+        final String path = in.readUTF();
+        if(COMPLETE == type) {
+            completed.put(path, in.readLong());
+            multipart.remove(path);
+        }
+        else if(MULTIPART == type) {
+            final String id = in.readUTF();
+            if(StringUtils.isEmpty(id)) {
+                multipart.remove(path);
+            }
+            else {
+                multipart.put(path, id);
+            }
+        }
+        else {
+            throw new IOException(String.format("Unknown record type %d", type));
+        }
+    }
+
+    /**
+     * Rewrite file with state only. Must hold lock.
+     *
+     * @param completed Length of completed files by path
+     * @param multipart Identifier of multipart upload by path
+     */
+    private void compact(final Map<String, Long> completed, final Map<String, String> multipart) throws IOException {
+        if(log.isInfoEnabled()) {
+            log.info(String.format("Compact transfer journal %s with %d completed", file, completed.size()));
+        }
+        IOUtils.closeQuietly(stream);
+        stream = null;
+        final File parent = file.getParentFile();
+        if(null != parent && !parent.exists()) {
+            if(!parent.mkdirs()) {
+                throw new IOException(String.format("Failure creating %s", parent));
+            }
+        }
+        final FileOutputStream out = new FileOutputStream(temporary);
+        final DataOutputStream writer = new DataOutputStream(new BufferedOutputStream(out));
+        try {
+            writer.writeInt(MAGIC);
+            for(Map.Entry<String, Long> entry : completed.entrySet()) {
+                this.write(writer, COMPLETE, entry.getKey(), entry.getValue(), null);
+            }
+            for(Map.Entry<String, String> entry : multipart.entrySet()) {
+                this.write(writer, MULTIPART, entry.getKey(), 0L, entry.getValue());
+            }
+            writer.flush();
+            out.getFD().sync();
+        }
+        finally {
+            writer.close();
+        }
+        // Atomically replaces the existing file on POSIX
+        if(!temporary.renameTo(file)) {
+            // Existing file is not replaced on Windows. Loaded from temporary file if missing.
+            if(!file.delete() && file.exists() || !temporary.renameTo(file)) {
+                throw new IOException(String.format("Failure replacing %s", file));
+            }
+        }
+        stream = new FileOutputStream(file, true);
+    }
+
+    private void write(final DataOutputStream out, final byte type, final String path,
+                       final long length, final String id) throws IOException {
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        final DataOutputStream record = new DataOutputStream(buffer);
+        record.writeByte(type);
+        record.writeUTF(path);
+        if(COMPLETE == type) {
+            record.writeLong(length);
+        }
+        else {
+            record.writeUTF(StringUtils.defaultString(id));
+        }
+        record.flush();
+        final byte[] bytes = buffer.toByteArray();
+        final CRC32 crc = new CRC32();
+        crc.update(bytes);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        out.writeInt((int) crc.getValue());
+    }
+}
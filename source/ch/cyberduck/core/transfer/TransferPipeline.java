@@ -0,0 +1,450 @@
+package ch.cyberduck.core.transfer;
+
+/*
+ * Copyright (c) 2002-2013 David Kocher. All rights reserved.
+ * http://cyberduck.ch/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * Bug fixes, suggestions and comments should be sent to:
+ * dkocher@cyberduck.ch
+ */
+
+import ch.cyberduck.core.AttributedList;
+import ch.cyberduck.core.ConnectionCanceledException;
+import ch.cyberduck.core.ListProgressListener;
+import ch.cyberduck.core.Path;
+import ch.cyberduck.core.PathFactory;
+import ch.cyberduck.core.Preferences;
+import ch.cyberduck.core.Session;
+import ch.cyberduck.core.SessionPool;
+import ch.cyberduck.core.i18n.Locale;
+import ch.cyberduck.core.threading.NamedThreadFactory;
+
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Prepare and transfer files at the same time. A walker thread lists directories and determines
+ * the transfer status of each file using the session of the transfer and feeds a bounded queue. Items
+ * are taken from the queue in the order visited and transferred using connections from the pool. Directories
+ * are transferred before any of their children and post processed when all children have completed.
+ *
+ * @version $Id$
+ */
+final class TransferPipeline {
+    private static final Logger log = Logger.getLogger(TransferPipeline.class);
+
+    private final Transfer transfer;
+
+    /**
+     * Transfer status of files currently in progress
+     */
+    private final Map<Path, TransferStatus> status;
+
+    private final TransferPathFilter filter;
+
+    private final TransferOptions options;
+
+    private final SessionPool pool;
+
+    /**
+     * Prepared files waiting to be transferred
+     */
+    private final BlockingQueue<Item> queue;
+
+    /**
+     * @param transfer Transfer
+     * @param status   Transfer status of files in progress. Needed to cancel running transfers.
+     * @param filter   Filter to apply to exclude files from transfer
+     * @param options  Transfer options
+     * @param pool     Connections for transferring files
+     */
+    TransferPipeline(final Transfer transfer, final Map<Path, TransferStatus> status,
+                     final TransferPathFilter filter, final TransferOptions options,
+                     final SessionPool pool) {
+        this.transfer = transfer;
+        this.status = status;
+        this.filter = filter;
+        this.options = options;
+        this.pool = pool;
+        this.queue = new LinkedBlockingQueue<Item>(
+                Preferences.instance().getInteger("queue.prepare.pipeline.size"));
+    }
+
+    /**
+     * Walk the roots and transfer files as they are prepared. Returns when all files
+     * have been transferred.
+     *
+     * @param roots Files and folders selected for the transfer
+     */
+    public void run(final List<Path> roots) {
+        final ExecutorService walker = Executors.newSingleThreadExecutor(new NamedThreadFactory("prepare"));
+        final ExecutorService executor = Executors.newFixedThreadPool(pool.getSize(),
+                new NamedThreadFactory("transfer"));
+        try {
+            final Future<Void> walk = walker.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws InterruptedException {
+                    transfer.prefetch(roots, pool);
+                    for(Path next : roots) {
+                        walk(next, true);
+                    }
+                    return null;
+                }
+            });
+            // Limit the number of files scheduled but not yet transferred
+            final int limit = pool.getSize() * 2;
+            final Semaphore scheduled = new Semaphore(limit);
+            Frame current = null;
+            while(true) {
+                final Item item;
+                try {
+                    item = queue.poll(1, TimeUnit.SECONDS);
+                }
+                catch(InterruptedException e) {
+                    log.error(String.format("Interrupted waiting for prepared file:%s", e.getMessage()));
+                    transfer.cancel();
+                    break;
+                }
+                if(null == item) {
+                    if(walk.isDone() && queue.isEmpty()) {
+                        // No more files to transfer
+                        break;
+                    }
+                    continue;
+                }
+                if(item.end) {
+                    // All children of the directory have been dispatched
+                    if(item.failure) {
+                        current.failure = true;
+                    }
+                    current.done();
+                    current = current.parent;
+                    continue;
+                }
+                if(!transfer.check()) {
+                    break;
+                }
+                if(item.file.attributes().isFile()) {
+                    if(item.accepted) {
+                        if(null != current) {
+                            current.pending.incrementAndGet();
+                        }
+                        try {
+                            scheduled.acquire();
+                        }
+                        catch(InterruptedException e) {
+                            log.error(String.format("Interrupted waiting for file transfer:%s", e.getMessage()));
+                            transfer.cancel();
+                            break;
+                        }
+                        status.put(item.file, item.status);
+                        executor.execute(new Worker(item, current, scheduled));
+                    }
+                    else {
+                        item.status.setComplete();
+                    }
+                }
+                else {
+                    if(item.accepted) {
+                        status.put(item.file, item.status);
+                        try {
+                            // Create directory before any of its children are transferred
+                            this.transfer(item.file, item.status);
+                        }
+                        catch(IOException e) {
+                            log.warn(String.format("Directory transfer failed:%s", e.getMessage()));
+                        }
+                    }
+                    else {
+                        item.status.setComplete();
+                    }
+                    if(item.file.attributes().isDirectory()) {
+                        if(null != current) {
+                            current.pending.incrementAndGet();
+                        }
+                        current = new Frame(item, current);
+                    }
+                }
+            }
+            // Stop walker if blocked waiting for space in queue
+            walker.shutdownNow();
+            try {
+                walk.get();
+            }
+            catch(InterruptedException e) {
+                log.error(String.format("Interrupted waiting for prepare:%s", e.getMessage()));
+            }
+            catch(ExecutionException e) {
+                log.warn(String.format("Prepare failed:%s", e.getMessage()));
+            }
+            // Wait for all scheduled files to complete
+            scheduled.acquireUninterruptibly(limit);
+        }
+        finally {
+            walker.shutdownNow();
+            executor.shutdownNow();
+            queue.clear();
+        }
+    }
+
+    /**
+     * Determine the transfer status of the file and queue it followed by its children if a directory.
+     *
+     * @param p    File
+     * @param root Selected root of transfer
+     * @throws InterruptedException Transfer stage has quit
+     */
+    private void walk(final Path p, final boolean root) throws InterruptedException {
+        if(!transfer.check()) {
+            return;
+        }
+        if(!transfer.isSelected(p)) {
+            return;
+        }
+        final TransferStatus journaled = transfer.journaled(p);
+        if(null != journaled) {
+            // Completed before including all children
+            if(root) {
+                status.put(p, journaled);
+            }
+            return;
+        }
+        final TransferStatus s;
+        final boolean accepted = filter.accept(p);
+        // Only prepare the path it will be actually transferred
+        if(accepted) {
+            transfer.session.message(MessageFormat.format(Locale.localizedString("Prepare {0}", "Status"), p.getName()));
+            s = filter.prepare(p);
+            transfer.restore(p, s);
+            // Add transfer length to total bytes
+            transfer.addSize(s.getLength());
+            // Add skipped bytes
+            transfer.addTransferred(s.getCurrent());
+        }
+        else {
+            // Empty transfer status for files not accepted by filter
+            s = new TransferStatus();
+        }
+        if(log.isDebugEnabled()) {
+            log.debug(String.format("Determined transfer status %s for %s", s, p.getAbsolute()));
+        }
+        queue.put(Item.file(p, s, root, accepted));
+        if(p.attributes().isDirectory()) {
+            final AttributedList<Path> children;
+            try {
+                // Stop reading the listing when canceled. Children are prepared when the listing is
+                // complete as the session of the transfer must not be used while the listing is read.
+                children = transfer.children(p, new ListProgressListener() {
+                    @Override
+                    public void chunk(final AttributedList<Path> list, final List<Path> chunk) throws ConnectionCanceledException {
+                        if(transfer.isCanceled()) {
+                            throw new ConnectionCanceledException();
+                        }
+                    }
+                });
+            }
+            catch(ConnectionCanceledException e) {
+                final InterruptedException failure = new InterruptedException(e.getMessage());
+                failure.initCause(e);
+                throw failure;
+            }
+            transfer.prefetch(children, pool);
+            for(Path child : children) {
+                this.walk(child, false);
+            }
+            queue.put(Item.end(p, s, !children.attributes().isReadable()));
+        }
+    }
+
+    /**
+     * Transfer the file with a connection from the pool
+     *
+     * @param file   File
+     * @param status Transfer status
+     * @throws IOException Opening connection failed
+     */
+    private void transfer(final Path file, final TransferStatus status) throws IOException {
+        final Session session = pool.borrow();
+        try {
+            // Bind to the connection borrowed from the pool
+            final Path copy = PathFactory.createPath(session, file);
+            // Notification
+            transfer.fireWillTransferPath(file);
+            // Transfer
+            transfer.transfer(copy, options, status);
+            if(file.attributes().isFile()) {
+                // Post process of file
+                filter.complete(copy, options, status);
+                transfer.journal(file, status);
+            }
+            // Notification
+            transfer.fireDidTransferPath(file);
+        }
+        finally {
+            pool.release(session);
+        }
+    }
+
+    private final class Worker implements Runnable {
+        private final Item item;
+        private final Frame parent;
+        private final Semaphore scheduled;
+
+        private Worker(final Item item, final Frame parent, final Semaphore scheduled) {
+            this.item = item;
+            this.parent = parent;
+            this.scheduled = scheduled;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if(transfer.check()) {
+                    transfer(item.file, item.status);
+                }
+            }
+            catch(IOException e) {
+                log.warn(String.format("File transfer failed:%s", e.getMessage()));
+            }
+            finally {
+                if(!item.root) {
+                    status.remove(item.file);
+                }
+                if(null != parent) {
+                    if(!item.status.isComplete()) {
+                        parent.failure = true;
+                    }
+                    parent.done();
+                }
+                scheduled.release();
+            }
+        }
+    }
+
+    /**
+     * Directory with children not yet completed
+     */
+    private final class Frame {
+        private final Item item;
+        private final Frame parent;
+
+        /**
+         * Number of children still in progress including the end marker of the walk
+         */
+        private final AtomicInteger pending = new AtomicInteger(1);
+
+        private volatile boolean failure;
+
+        private Frame(final Item item, final Frame parent) {
+            this.item = item;
+            this.parent = parent;
+        }
+
+        /**
+         * A child has completed. Post process directory when last child completes.
+         */
+        private void done() {
+            if(pending.decrementAndGet() > 0) {
+                return;
+            }
+            try {
+                if(transfer.isCanceled()) {
+                    return;
+                }
+                // Set completion status
+                if(!failure) {
+                    item.status.setComplete();
+                }
+                final Session session = pool.borrow();
+                try {
+                    // Post process of directory
+                    filter.complete(PathFactory.createPath(session, item.file), options, item.status);
+                }
+                finally {
+                    pool.release(session);
+                }
+                if(!failure) {
+                    transfer.journal(item.file, item.status);
+                }
+                transfer.cache().remove(item.file.getReference());
+            }
+            catch(IOException e) {
+                log.warn(String.format("Failure completing directory %s:%s", item.file, e.getMessage()));
+            }
+            finally {
+                if(!item.root) {
+                    status.remove(item.file);
+                }
+                if(null != parent) {
+                    if(!item.status.isComplete()) {
+                        parent.failure = true;
+                    }
+                    parent.done();
+                }
+            }
+        }
+    }
+
+    /**
+     * Prepared file or end of directory marker
+     */
+    private static final class Item {
+        private final Path file;
+        private final TransferStatus status;
+        private final boolean root;
+        private final boolean accepted;
+
+        /**
+         * Marks the end of the children of a directory
+         */
+        private final boolean end;
+
+        /**
+         * Listing of directory failed
+         */
+        private final boolean failure;
+
+        private Item(final Path file, final TransferStatus status, final boolean root, final boolean accepted,
+                     final boolean end, final boolean failure) {
+            this.file = file;
+            this.status = status;
+            this.root = root;
+            this.accepted = accepted;
+            this.end = end;
+            this.failure = failure;
+        }
+
+        private static Item file(final Path file, final TransferStatus status, final boolean root,
+                                 final boolean accepted) {
+            return new Item(file, status, root, accepted, false, false);
+        }
+
+        private static Item end(final Path directory, final TransferStatus status, final boolean failure) {
+            return new Item(directory, status, false, false, true, failure);
+        }
+    }
+}
@@ -42,7 +42,7 @@ public class TransferStatus {
     /**
      * The number of transfered bytes. Must be less or equals size.
      */
-    private long current = 0L;
+    private volatile long current = 0L;
 
     /**
      * Transfer size. May be less than the file size in attributes or 0 if creating symbolic links.
@@ -94,14 +94,14 @@ public class TransferStatus {
     /**
      * @param current The already transferred bytes
      */
-    public void setCurrent(final long current) {
+    public synchronized void setCurrent(final long current) {
         this.current = current;
-        if(log.isInfoEnabled()) {
-            log.info(String.format("Transferred bytes set to %d bytes", current));
+        if(log.isDebugEnabled()) {
+            log.debug(String.format("Transferred bytes set to %d bytes", current));
         }
     }
 
-    public void addCurrent(final long transferred) {
+    public synchronized void addCurrent(final long transferred) {
         this.setCurrent(current + transferred);
     }
 
@@ -149,6 +149,25 @@ public class TransferStatus {
         return resume;
     }
 
+    /**
+     * Identifier of multipart upload in progress
+     */
+    private volatile String multipart;
+
+    /**
+     * @return Identifier of multipart upload in progress or null
+     */
+    public String getMultipart() {
+        return multipart;
+    }
+
+    /**
+     * @param multipart Identifier of multipart upload in progress or null when completed or aborted
+     */
+    public void setMultipart(final String multipart) {
+        this.multipart = multipart;
+    }
+
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder();
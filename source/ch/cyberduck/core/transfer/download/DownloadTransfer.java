@@ -20,9 +20,14 @@ package ch.cyberduck.core.transfer.download;
 
 import ch.cyberduck.core.AbstractStreamListener;
 import ch.cyberduck.core.AttributedList;
+import ch.cyberduck.core.ConnectionCanceledException;
+import ch.cyberduck.core.ListProgressListener;
+import ch.cyberduck.core.NullListProgressListener;
 import ch.cyberduck.core.Path;
 import ch.cyberduck.core.Preferences;
 import ch.cyberduck.core.Session;
+import ch.cyberduck.core.SessionPool;
+import ch.cyberduck.core.StreamListener;
 import ch.cyberduck.core.filter.DownloadRegexFilter;
 import ch.cyberduck.core.io.BandwidthThrottle;
 import ch.cyberduck.core.local.ApplicationLauncher;
@@ -32,6 +37,7 @@ import ch.cyberduck.core.local.IconServiceFactory;
 import ch.cyberduck.core.local.Local;
 import ch.cyberduck.core.local.LocalFactory;
 import ch.cyberduck.core.serializer.Serializer;
+import ch.cyberduck.core.transfer.AttributesPrefetch;
 import ch.cyberduck.core.transfer.Transfer;
 import ch.cyberduck.core.transfer.TransferAction;
 import ch.cyberduck.core.transfer.TransferOptions;
@@ -46,6 +52,7 @@ import org.apache.log4j.Logger;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * @version $Id: DownloadTransfer.java 10907 2013-04-23 12:23:32Z dkocher $
@@ -82,6 +89,17 @@ public class DownloadTransfer extends Transfer {
 
     @Override
     public AttributedList<Path> children(final Path parent) {
+        try {
+            return this.children(parent, new NullListProgressListener());
+        }
+        catch(ConnectionCanceledException e) {
+            return AttributedList.emptyList();
+        }
+    }
+
+    @Override
+    public AttributedList<Path> children(final Path parent, final ListProgressListener listener)
+            throws ConnectionCanceledException {
         if(log.isDebugEnabled()) {
             log.debug(String.format("Children for %s", parent));
         }
@@ -91,7 +109,22 @@ public class DownloadTransfer extends Transfer {
             }
             return AttributedList.emptyList();
         }
-        final AttributedList<Path> list = parent.children(filter);
+        final AtomicBoolean canceled = new AtomicBoolean();
+        final AttributedList<Path> list = parent.children(null, filter, new ListProgressListener() {
+            @Override
+            public void chunk(final AttributedList<Path> list, final List<Path> chunk) throws ConnectionCanceledException {
+                try {
+                    listener.chunk(list, chunk);
+                }
+                catch(ConnectionCanceledException e) {
+                    canceled.set(true);
+                    throw e;
+                }
+            }
+        });
+        if(canceled.get()) {
+            throw new ConnectionCanceledException();
+        }
         for(Path download : list) {
             // Change download path relative to parent local folder
             download.setLocal(LocalFactory.createLocal(parent.getLocal(), download.getName()));
@@ -99,6 +132,13 @@ public class DownloadTransfer extends Transfer {
         return list;
     }
 
+    @Override
+    protected void prefetch(final List<Path> files, final SessionPool pool) {
+        if(Preferences.instance().getBoolean("queue.prepare.prefetch")) {
+            AttributesPrefetch.download(session, pool).prefetch(files);
+        }
+    }
+
     @Override
     public TransferPathFilter filter(final TransferPrompt prompt, final TransferAction action) {
         if(log.isDebugEnabled()) {
@@ -194,7 +234,7 @@ public class DownloadTransfer extends Transfer {
             if(update) {
                 icon.setProgress(local, 0);
             }
-            file.download(bandwidth, new AbstractStreamListener() {
+            final StreamListener listener = new AbstractStreamListener() {
                 // Only update the file custom icon if the size is > 5MB. Otherwise creating too much
                 // overhead when transferring a large amount of files
                 private final boolean threshold
@@ -221,7 +261,15 @@ public class DownloadTransfer extends Transfer {
                         }
                     }
                 }
-            }, status);
+            };
+            if(SegmentedDownload.isSegmentable(file, this.getPool(), status)) {
+                new SegmentedDownload(file, this.getPool(), bandwidth, listener, status).run();
+            }
+            else {
+                // Progress of previous segmented download not resumed
+                SegmentJournal.discard(local);
+                file.download(bandwidth, listener, status);
+            }
         }
         else if(file.attributes().isDirectory()) {
             local.mkdir();
@@ -253,6 +301,11 @@ public class DownloadTransfer extends Transfer {
         return true;
     }
 
+    @Override
+    protected boolean isParallelizable() {
+        return true;
+    }
+
     @Override
     public String getStatus() {
         return this.isComplete() ? "Download complete" : "Transfer incomplete";
@@ -20,6 +20,10 @@ public class ResumeFilter extends AbstractDownloadFilter {
                 return false;
             }
         }
+        if(SegmentJournal.exists(file.getLocal())) {
+            // Incomplete segmented download with preallocated local file
+            return super.accept(file);
+        }
         if(file.getLocal().attributes().getSize() >= file.attributes().getSize()) {
             // No need to resume completed transfers
             return false;
@@ -34,8 +38,21 @@ public class ResumeFilter extends AbstractDownloadFilter {
             if(file.attributes().isFile()) {
                 if(file.getLocal().exists()) {
                     if(file.attributes().getSize() > 0) {
-                        status.setResume(true);
-                        status.setCurrent(file.getLocal().attributes().getSize());
+                        if(SegmentJournal.exists(file.getLocal())) {
+                            final SegmentJournal journal = SegmentJournal.load(file.getLocal(), status.getLength());
+                            if(null == journal) {
+                                // Length changed or invalid journal
+                                status.setResume(false);
+                            }
+                            else {
+                                status.setResume(true);
+                                status.setCurrent(journal.getTransferred());
+                            }
+                        }
+                        else {
+                            status.setResume(true);
+                            status.setCurrent(file.getLocal().attributes().getSize());
+                        }
                     }
                 }
             }
@@ -0,0 +1,296 @@
+package ch.cyberduck.core.transfer.download;
+
+/*
+ * Copyright (c) 2002-2013 David Kocher. All rights reserved.
+ * http://cyberduck.ch/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * Bug fixes, suggestions and comments should be sent to:
+ * dkocher@cyberduck.ch
+ */
+
+import ch.cyberduck.core.local.Local;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Progress of the segments of a download persisted in a file next to the local file
+ * such that a resumed download only fetches the missing ranges.
+ *
+ * @version $Id$
+ */
+final class SegmentJournal {
+    private static final Logger log = Logger.getLogger(SegmentJournal.class);
+
+    /**
+     * Minimum interval in milliseconds between writes of the journal while downloading
+     */
+    private static final long CHECKPOINT_INTERVAL = 1000L;
+
+    private final File file;
+
+    /**
+     * Length of the download
+     */
+    private final long length;
+
+    private final List<Segment> segments;
+
+    private long saved;
+
+    private SegmentJournal(final File file, final long length, final List<Segment> segments) {
+        this.file = file;
+        this.length = length;
+        this.segments = segments;
+    }
+
+    /**
+     * @param local Downloaded file
+     * @return Journal file for local file
+     */
+    private static File journal(final Local local) {
+        return new File(new File(local.getAbsolute()).getParentFile(), String.format(".%s.segments", local.getName()));
+    }
+
+    /**
+     * @param local Downloaded file
+     * @return True if an incomplete segmented download exists for the local file
+     */
+    static boolean exists(final Local local) {
+        return journal(local).exists();
+    }
+
+    /**
+     * Remove a journal that is not used to resume the download
+     *
+     * @param local Downloaded file
+     */
+    static void discard(final Local local) {
+        delete(journal(local));
+    }
+
+    /**
+     * Split the download into segments
+     *
+     * @param local   Downloaded file
+     * @param length  Length of the download
+     * @param count   Maximum number of segments
+     * @param minimum Minimum size of a segment
+     * @return New journal with no bytes transferred
+     */
+    static SegmentJournal create(final Local local, final long length, final int count, final long minimum) {
+        final long size = Math.max(minimum, (length + count - 1) / count);
+        final List<Segment> segments = new ArrayList<Segment>();
+        for(long offset = 0; offset < length; offset += size) {
+            segments.add(new Segment(offset, Math.min(size, length - offset), 0L));
+        }
+        return new SegmentJournal(journal(local), length, segments);
+    }
+
+    /**
+     * @param local  Downloaded file
+     * @param length Length of the download
+     * @return Null if no journal is found or the length of the download has changed. A journal
+     * that cannot be resumed from is deleted.
+     */
+    static SegmentJournal load(final Local local, final long length) {
+        final File file = journal(local);
+        if(!file.exists()) {
+            return null;
+        }
+        final Properties properties = new Properties();
+        InputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            properties.load(in);
+        }
+        catch(IOException e) {
+            log.warn(String.format("Failure reading segments from %s:%s", file, e.getMessage()));
+            delete(file);
+            return null;
+        }
+        finally {
+            IOUtils.closeQuietly(in);
+        }
+        try {
+            if(Long.parseLong(properties.getProperty("length")) != length) {
+                log.warn(String.format("Length of %s changed", local));
+                delete(file);
+                return null;
+            }
+            final int count = Integer.parseInt(properties.getProperty("segments"));
+            final List<Segment> segments = new ArrayList<Segment>(count);
+            for(int i = 0; i < count; i++) {
+                final String[] values = properties.getProperty(String.format("segment.%d", i)).split(",");
+                segments.add(new Segment(Long.parseLong(values[0]), Long.parseLong(values[1]), Long.parseLong(values[2])));
+            }
+            return new SegmentJournal(file, length, segments);
+        }
+        catch(RuntimeException e) {
+            log.warn(String.format("Invalid segments in %s:%s", file, e.getMessage()));
+            delete(file);
+            return null;
+        }
+    }
+
+    /**
+     * @return Segments of the download
+     */
+    List<Segment> getSegments() {
+        return Collections.unmodifiableList(segments);
+    }
+
+    /**
+     * @return Number of bytes already written to the local file
+     */
+    long getTransferred() {
+        long transferred = 0L;
+        for(Segment segment : segments) {
+            transferred += segment.getWritten();
+        }
+        return transferred;
+    }
+
+    /**
+     * @return True if all segments are written
+     */
+    boolean isComplete() {
+        for(Segment segment : segments) {
+            if(!segment.isComplete()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Save the journal if it has not been written for a while
+     */
+    synchronized void checkpoint() {
+        if(System.currentTimeMillis() - saved >= CHECKPOINT_INTERVAL) {
+            this.save();
+        }
+    }
+
+    /**
+     * Replace the journal on disk with the current progress of the segments
+     */
+    synchronized void save() {
+        final Properties properties = new Properties();
+        properties.setProperty("length", String.valueOf(length));
+        properties.setProperty("segments", String.valueOf(segments.size()));
+        for(int i = 0; i < segments.size(); i++) {
+            final Segment segment = segments.get(i);
+            properties.setProperty(String.format("segment.%d", i), String.format("%d,%d,%d",
+                    segment.getOffset(), segment.getLength(), segment.getWritten()));
+        }
+        // Write to temporary file first to never leave a truncated journal
+        final File temporary = new File(file.getParentFile(), String.format("%s.tmp", file.getName()));
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(temporary);
+            properties.store(out, null);
+        }
+        catch(IOException e) {
+            log.warn(String.format("Failure writing segments to %s:%s", file, e.getMessage()));
+            return;
+        }
+        finally {
+            IOUtils.closeQuietly(out);
+        }
+        if(!temporary.renameTo(file)) {
+            // Rename does not replace existing file on Windows
+            file.delete();
+            if(!temporary.renameTo(file)) {
+                log.warn(String.format("Failure renaming %s to %s", temporary, file));
+            }
+        }
+        saved = System.currentTimeMillis();
+    }
+
+    /**
+     * Remove the journal when the download is complete
+     */
+    synchronized void delete() {
+        delete(file);
+    }
+
+    private static void delete(final File file) {
+        if(file.exists()) {
+            if(!file.delete()) {
+                log.warn(String.format("Failure deleting %s", file));
+            }
+        }
+    }
+
+    /**
+     * Byte range of the file
+     */
+    static final class Segment {
+        private final long offset;
+        private final long length;
+
+        /**
+         * Number of bytes written from the start of the segment
+         */
+        private volatile long written;
+
+        Segment(final long offset, final long length, final long written) {
+            this.offset = offset;
+            this.length = length;
+            this.written = written;
+        }
+
+        long getOffset() {
+            return offset;
+        }
+
+        long getLength() {
+            return length;
+        }
+
+        long getWritten() {
+            return written;
+        }
+
+        void addWritten(final long bytes) {
+            written += bytes;
+        }
+
+        boolean isComplete() {
+            return written >= length;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder();
+            sb.append("Segment");
+            sb.append("{offset=").append(offset);
+            sb.append(", length=").append(length);
+            sb.append(", written=").append(written);
+            sb.append('}');
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package ch.cyberduck.core.transfer.download;
+
+/*
+ * Copyright (c) 2002-2013 David Kocher. All rights reserved.
+ * http://cyberduck.ch/
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * Bug fixes, suggestions and comments should be sent to:
+ * dkocher@cyberduck.ch
+ */
+
+import ch.cyberduck.core.ConnectionCanceledException;
+import ch.cyberduck.core.Path;
+import ch.cyberduck.core.PathFactory;
+import ch.cyberduck.core.Preferences;
+import ch.cyberduck.core.Session;
+import ch.cyberduck.core.SessionPool;
+import ch.cyberduck.core.StreamListener;
+import ch.cyberduck.core.i18n.Locale;
+import ch.cyberduck.core.io.BandwidthThrottle;
+import ch.cyberduck.core.io.BufferPool;
+import ch.cyberduck.core.io.ThrottledInputStream;
+import ch.cyberduck.core.local.Local;
+import ch.cyberduck.core.threading.NamedThreadFactory;
+import ch.cyberduck.core.transfer.TransferStatus;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Download a file in byte ranges fetched in parallel with the connection of the file and idle connections
+ * borrowed from the pool of the transfer. Segments are written at their position into the preallocated
+ * local file. The progress of each segment is saved in a journal to only fetch missing ranges when resuming.
+ *
+ * @version $Id$
+ */
+final class SegmentedDownload {
+    private static final Logger log = Logger.getLogger(SegmentedDownload.class);
+
+    private final Path file;
+
+    /**
+     * Additional connections of the transfer or null
+     */
+    private final SessionPool pool;
+
+    private final BandwidthThrottle throttle;
+
+    private final StreamListener listener;
+
+    private final TransferStatus status;
+
+    /**
+     * A segment failed and remaining segments should stop
+     */
+    private volatile boolean interrupted;
+
+    /**
+     * @param file     File to download
+     * @param pool     Connections of the transfer to borrow idle connections from or null
+     * @param throttle The bandwidth limit
+     * @param listener The stream listener to notify about bytes received
+     * @param status   Transfer status
+     */
+    SegmentedDownload(final Path file, final SessionPool pool, final BandwidthThrottle throttle,
+                      final StreamListener listener, final TransferStatus status) {
+        this.file = file;
+        this.pool = pool;
+        this.throttle = throttle;
+        this.listener = listener;
+        this.status = status;
+    }
+
+    /**
+     * @param file   File to download
+     * @param pool   Connections of the transfer or null
+     * @param status Transfer status
+     * @return True if the file should be downloaded in segments
+     */
+    static boolean isSegmentable(final Path file, final SessionPool pool, final TransferStatus status) {
+        if(status.isResume()) {
+            if(SegmentJournal.exists(file.getLocal())) {
+                // Continue download previously started in segments
+                return true;
+            }
+            if(status.getCurrent() > 0) {
+                // Append to partial file of previous download
+                return false;
+            }
+        }
+        final Preferences preferences = Preferences.instance();
+        if(!preferences.getBoolean("queue.download.segments")) {
+            return false;
+        }
+        if(null == pool) {
+            // No additional connections to fetch segments with
+            return false;
+        }
+        if(getConnections(file.getSession()) < 2) {
+            return false;
+        }
+        if(status.getLength() < preferences.getLong("queue.download.segments.threshold")) {
+            return false;
+        }
+        return file.getSession().isDownloadSegmentable();
+    }
+
+    /**
+     * @param session Connection to host
+     * @return Number of segments fetched in parallel
+     */
+    private static int getConnections(final Session session) {
+        int connections = Preferences.instance().getInteger("queue.download.segments.count");
+        final int max = session.getMaxConnections();
+        if(max > 0) {
+            connections = Math.min(connections, max);
+        }
+        return connections;
+    }
+
+    /**
+     * Download missing segments. Failures are reported to the session of the file.
+     */
+    void run() {
+        final Local local = file.getLocal();
+        final SegmentJournal journal = this.journal(local);
+        if(log.isDebugEnabled()) {
+            log.debug(String.format("Download %s in segments %s", file, journal.getSegments()));
+        }
+        file.getSession().message(MessageFormat.format(Locale.localizedString("Downloading {0}", "Status"),
+                file.getName()));
+        RandomAccessFile out = null;
+        final Queue<SegmentJournal.Segment> pending = new ConcurrentLinkedQueue<SegmentJournal.Segment>();
+        for(SegmentJournal.Segment segment : journal.getSegments()) {
+            if(!segment.isComplete()) {
+                pending.add(segment);
+            }
+        }
+        // Connection of the file and idle connections of the transfer
+        final List<Session> sessions = this.borrow(Math.min(pending.size(), getConnections(file.getSession())));
+        final ExecutorService executor = Executors.newFixedThreadPool(sessions.size(), new NamedThreadFactory("segment"));
+        try {
+            out = new RandomAccessFile(local.getAbsolute(), "rw");
+            // Preallocate
+            out.setLength(status.getLength());
+            journal.save();
+            final FileChannel channel = out.getChannel();
+            final List<Future<Void>> segments = new ArrayList<Future<Void>>();
+            for(final Session session : sessions) {
+                segments.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        SegmentJournal.Segment segment;
+                        while((segment = pending.poll()) != null) {
+                            download(segment, channel, session, journal);
+                            if(log.isInfoEnabled()) {
+                                log.info(String.format("Completed %s", segment));
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            IOException failure = null;
+            for(Future<Void> future : segments) {
+                try {
+                    future.get();
+                }
+                catch(InterruptedException e) {
+                    log.error(String.format("Interrupted waiting for segment:%s", e.getMessage()));
+                    interrupted = true;
+                    failure = new ConnectionCanceledException(e.getMessage(), e);
+                    break;
+                }
+                catch(ExecutionException e) {
+                    log.warn(String.format("Segment download failed:%s", e.getMessage()));
+                    if(null == failure) {
+                        // Stop remaining segments
+                        interrupted = true;
+                        if(e.getCause() instanceof IOException) {
+                            failure = (IOException) e.getCause();
+                        }
+                        else {
+                            failure = new IOException(e.getCause().getMessage());
+                            failure.initCause(e.getCause());
+                        }
+                    }
+                }
+            }
+            if(null != failure) {
+                throw failure;
+            }
+            if(journal.isComplete()) {
+                status.setComplete();
+                journal.delete();
+            }
+        }
+        catch(IOException e) {
+            file.getSession().error(file, "Download failed", e);
+        }
+        finally {
+            executor.shutdownNow();
+            if(!status.isComplete()) {
+                journal.save();
+            }
+            IOUtils.closeQuietly(out);
+            // Return all but the connection of the file
+            for(Session session : sessions.subList(1, sessions.size())) {
+                pool.release(session);
+            }
+        }
+    }
+
+    /**
+     * @param count Maximum number of connections
+     * @return Connection of the file and connections of the pool not in use by other files of the transfer
+     */
+    private List<Session> borrow(final int count) {
+        final List<Session> sessions = new ArrayList<Session>();
+        sessions.add(file.getSession());
+        while(null != pool && sessions.size() < count) {
+            try {
+                final Session session = pool.poll();
+                if(null == session) {
+                    break;
+                }
+                sessions.add(session);
+            }
+            catch(IOException e) {
+                log.warn(String.format("Failure opening connection for segment:%s", e.getMessage()));
+                break;
+            }
+        }
+        if(log.isDebugEnabled()) {
+            log.debug(String.format("Download %s with %d connections", file, sessions.size()));
+        }
+        return sessions;
+    }
+
+    /**
+     * @param local Downloaded file
+     * @return Progress of previous attempt when resuming or new segments
+     */
+    private SegmentJournal journal(final Local local) {
+        if(status.isResume()) {
+            final SegmentJournal journal = SegmentJournal.load(local, status.getLength());
+            if(null != journal) {
+                status.setCurrent(journal.getTransferred());
+                return journal;
+            }
+        }
+        status.setCurrent(0L);
+        return SegmentJournal.create(local, status.getLength(),
+                getConnections(file.getSession()), Preferences.instance().getLong("queue.download.segments.size"));
+    }
+
+    /**
+     * Fetch the remaining range of a segment
+     *
+     * @param segment Segment
+     * @param channel Local file
+     * @param session Connection to fetch range with
+     * @param journal Progress of segments
+     * @throws IOException Read or write not completed due to a I/O problem
+     */
+    private void download(final SegmentJournal.Segment segment, final FileChannel channel,
+                          final Session session, final SegmentJournal journal) throws IOException {
+        final BufferPool buffers = BufferPool.instance();
+        final ByteBuffer buffer = buffers.acquire();
+        InputStream in = null;
+        try {
+            // Bind to the connection of the worker
+            final Path copy = PathFactory.createPath(session, file);
+            final long remaining = segment.getLength() - segment.getWritten();
+            in = new ThrottledInputStream(copy.read(segment.getOffset() + segment.getWritten(), remaining), throttle);
+            final byte[] chunk = buffer.array();
+            while(!segment.isComplete()) {
+                if(status.isCanceled() || interrupted) {
+                    throw new ConnectionCanceledException("Interrupted transfer");
+                }
+                final int read = in.read(chunk, 0, (int) Math.min(chunk.length, segment.getLength() - segment.getWritten()));
+                if(-1 == read) {
+                    throw new IOException(String.format("Unexpected end of stream at %d in %s",
+                            segment.getOffset() + segment.getWritten(), segment));
+                }
+                buffer.clear();
+                buffer.limit(read);
+                long position = segment.getOffset() + segment.getWritten();
+                while(buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+                segment.addWritten(read);
+                status.addCurrent(read);
+                listener.bytesReceived(read);
+                journal.checkpoint();
+            }
+            if(segment.getOffset() + segment.getLength() == status.getLength()) {
+                // Read end of file to allow the server to complete the transfer
+                if(-1 != in.read()) {
+                    log.warn(String.format("Data available after end of %s", segment));
+                }
+            }
+        }
+        finally {
+            IOUtils.closeQuietly(in);
+            buffers.release(buffer);
+        }
+    }
+}
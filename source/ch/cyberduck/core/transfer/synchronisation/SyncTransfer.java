@@ -27,6 +27,7 @@ import ch.cyberduck.core.Session;
 import ch.cyberduck.core.i18n.Locale;
 import ch.cyberduck.core.io.BandwidthThrottle;
 import ch.cyberduck.core.serializer.Serializer;
+import ch.cyberduck.core.synchronization.ChecksumComparisonService;
 import ch.cyberduck.core.synchronization.CombinedComparisionService;
 import ch.cyberduck.core.synchronization.Comparison;
 import ch.cyberduck.core.transfer.Transfer;
@@ -245,6 +246,15 @@ public class SyncTransfer extends Transfer {
         if(parent.getLocal().exists()) {
             children.addAll(_delegateUpload.children(parent));
         }
+        if(Preferences.instance().getBoolean("queue.sync.compare.hash")) {
+            // Start hashing local files in the background before comparing
+            final ChecksumComparisonService checksum = new ChecksumComparisonService();
+            for(Path child : children) {
+                if(child.getLocal().attributes().isFile()) {
+                    checksum.checksum(child);
+                }
+            }
+        }
         return new AttributedList<Path>(children);
     }
 
@@ -54,13 +54,21 @@ public abstract class AbstractUploadFilter extends TransferPathFilter {
         final PathAttributes attributes = file.attributes();
         if(Preferences.instance().getBoolean("queue.upload.changePermissions")) {
             if(file.exists()) {
-                // Do not overwrite permissions for existing file.
+                // Do not overwrite permissions for existing file unless already read in advance.
                 if(file.getSession().isUnixPermissionsSupported()) {
-                    file.readUnixPermission();
+                    if(!attributes.isPermissionRead()) {
+                        // Discard permission set from local file when prepared before
+                        attributes.setPermission(Permission.EMPTY);
+                        file.readUnixPermission();
+                        attributes.setPermissionRead(true);
+                    }
                 }
                 // Do not overwrite ACL for existing file.
                 if(file.getSession().isAclSupported()) {
-                    file.readAcl();
+                    if(!attributes.isAclRead()) {
+                        file.readAcl();
+                        attributes.setAclRead(true);
+                    }
                 }
             }
             else {
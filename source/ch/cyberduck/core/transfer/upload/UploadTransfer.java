@@ -26,10 +26,12 @@ import ch.cyberduck.core.Path;
 import ch.cyberduck.core.PathFactory;
 import ch.cyberduck.core.Preferences;
 import ch.cyberduck.core.Session;
+import ch.cyberduck.core.SessionPool;
 import ch.cyberduck.core.filter.UploadRegexFilter;
 import ch.cyberduck.core.io.BandwidthThrottle;
 import ch.cyberduck.core.local.Local;
 import ch.cyberduck.core.serializer.Serializer;
+import ch.cyberduck.core.transfer.AttributesPrefetch;
 import ch.cyberduck.core.transfer.Transfer;
 import ch.cyberduck.core.transfer.TransferAction;
 import ch.cyberduck.core.transfer.TransferOptions;
@@ -131,6 +133,18 @@ public class UploadTransfer extends Transfer {
         return true;
     }
 
+    @Override
+    protected boolean isParallelizable() {
+        return true;
+    }
+
+    @Override
+    protected void prefetch(final List<Path> files, final SessionPool pool) {
+        if(Preferences.instance().getBoolean("queue.prepare.prefetch")) {
+            AttributesPrefetch.upload(session, pool).prefetch(files);
+        }
+    }
+
     @Override
     public TransferPathFilter filter(final TransferPrompt prompt, final TransferAction action) {
         if(log.isDebugEnabled()) {
@@ -42,9 +42,10 @@ public abstract class DeleteWorker extends Worker<Boolean> {
 
     @Override
     public Boolean run() {
-        for(Path file : files) {
-            file.delete();
+        if(files.isEmpty()) {
+            return true;
         }
+        files.get(0).getSession().delete(files);
         return true;
     }
 
@@ -121,6 +121,7 @@ namespace Ch.Cyberduck.Ui.Controller
         {
             Log.info("setProperty: " + property + "," + value);
             _settings[property] = value;
+            invalidate();
         }
 
         public override string locale()
@@ -137,6 +138,7 @@ namespace Ch.Cyberduck.Ui.Controller
         {
             Log.debug("deleteProperty: " + property);
             _settings.Remove(property);
+            invalidate();
         }
 
         public override string getProperty(string property)
@@ -5,7 +5,9 @@ import ch.cyberduck.ui.cocoa.foundation.NSString;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 
 import static org.junit.Assert.*;
 
@@ -41,4 +43,39 @@ public class AttributedListTest extends AbstractTestCase {
         }).isEmpty());
         assertEquals(Collections.emptyList(), list.attributes().getHidden());
     }
+
+    @Test
+    public void testSort() throws Exception {
+        AttributedList<Path> list = new AttributedList<Path>();
+        final NullPath b = new NullPath("/b", Path.FILE_TYPE);
+        final NullPath a = new NullPath("/a", Path.FILE_TYPE);
+        list.add(b);
+        list.add(a);
+        list.sort(new Comparator<Path>() {
+            @Override
+            public int compare(final Path o1, final Path o2) {
+                return o1.getName().compareTo(o2.getName());
+            }
+        });
+        assertEquals(Arrays.<Path>asList(a, b), list);
+        assertEquals(0, list.indexOf(a.getReference()));
+    }
+
+    @Test
+    public void testIteratorSnapshot() throws Exception {
+        AttributedList<Path> list = new AttributedList<Path>();
+        for(int i = 0; i < 100; i++) {
+            list.add(new NullPath("/" + i, Path.FILE_TYPE));
+        }
+        int count = 0;
+        for(Path ignored : list) {
+            list.add(new NullPath("/n" + count, Path.FILE_TYPE));
+            count++;
+        }
+        assertEquals(100, count);
+        assertEquals(200, list.size());
+        list.clear();
+        assertTrue(list.isEmpty());
+        assertFalse(list.contains(new NSObjectPathReference(NSString.stringWithString("/1"))));
+    }
 }
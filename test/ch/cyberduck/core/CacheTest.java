@@ -90,4 +90,37 @@ public class CacheTest extends AbstractTestCase {
         assertTrue(cache.containsKey(reference));
         assertFalse(cache.isCached(reference));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testLookupAfterRemove() throws Exception {
+        Cache cache = new Cache();
+        final AttributedList<Path> list = new AttributedList<Path>();
+        final Path file = new NullPath("/d/name", Path.FILE_TYPE);
+        list.add(file);
+        final PathReference reference = PathReferenceFactory.createPathReference(new NullPath("/d", Path.DIRECTORY_TYPE));
+        cache.put(reference, list);
+        assertSame(file, cache.lookup(file.getReference()));
+        cache.remove(reference);
+        assertNull(cache.lookup(file.getReference()));
+        assertEquals(1L, cache.getHits());
+        assertEquals(1L, cache.getMisses());
+    }
+
+    @Test
+    public void testExpired() throws Exception {
+        Cache cache = new Cache(0L);
+        final PathReference reference = PathReferenceFactory.createPathReference(new NullPath("/d", Path.DIRECTORY_TYPE));
+        cache.put(reference, new AttributedList<Path>());
+        Thread.sleep(10L);
+        assertTrue(cache.containsKey(reference));
+        assertFalse(cache.isCached(reference));
+    }
+
+    @Test
+    public void testNotExpiring() throws Exception {
+        Cache cache = new Cache(-1L);
+        final PathReference reference = PathReferenceFactory.createPathReference(new NullPath("/d", Path.DIRECTORY_TYPE));
+        cache.put(reference, new AttributedList<Path>());
+        assertTrue(cache.isCached(reference));
+    }
+}
@@ -45,6 +45,25 @@ public class PathAttributesTest extends AbstractTestCase {
         assertEquals(Acl.EMPTY, attributes.getAcl());
     }
 
+    @Test
+    public void testPermissionMode() throws Exception {
+        PathAttributes attributes = new PathAttributes(Path.FILE_TYPE);
+        attributes.setPermission(new Permission(644));
+        assertEquals(new Permission(644), attributes.getPermission());
+        assertNotSame(attributes.getPermission(), attributes.getPermission());
+        attributes.setPermission(Permission.EMPTY);
+        assertSame(Permission.EMPTY, attributes.getPermission());
+    }
+
+    @Test
+    public void testInternOwner() throws Exception {
+        PathAttributes a = new PathAttributes(Path.FILE_TYPE);
+        a.setOwner(new String("u"));
+        PathAttributes b = new PathAttributes(Path.FILE_TYPE);
+        b.setOwner(new String("u"));
+        assertSame(a.getOwner(), b.getOwner());
+    }
+
     @Test
     public void testSerialize() throws Exception {
         PathAttributes attributes = new PathAttributes(Path.FILE_TYPE);
@@ -41,6 +41,15 @@ public class PermissionTest extends AbstractTestCase {
         }
     }
 
+    @Test
+    public void testMode() throws Exception {
+        assertEquals(0755, new Permission(755).getMode());
+        assertEquals(0640, new Permission("rw-r-----").getMode());
+        assertEquals(0, new Permission().getMode());
+        assertEquals(new Permission(751), Permission.forMode(0751));
+        assertEquals(new Permission("rwxrwxrwx"), Permission.forMode(new Permission("rwxrwxrwx").getMode()));
+    }
+
     /**
      * 4000    (the set-user-ID-on-execution bit) Executable files with this bit set will run with effective uid set to the uid of the file owner.
      * Directories with the set-user-id bit set will force all files and sub-directories created in them to be owned by the directory owner
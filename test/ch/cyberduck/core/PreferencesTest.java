@@ -55,4 +55,20 @@ public class PreferencesTest extends AbstractTestCase {
         p.setProperty("test.p", 0.983652);
         assertEquals("0.983652", p.getProperty("test.p"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testInvalidate() {
+        Preferences p = Preferences.instance();
+        final Preference<Integer> accessor = Preference.integer("test.p");
+        p.setProperty("test.p", 1);
+        assertEquals(1, p.getInteger("test.p"));
+        assertEquals(1, accessor.get().intValue());
+        p.setProperty("test.p", 2);
+        assertEquals(2, p.getInteger("test.p"));
+        assertEquals(2L, p.getLong("test.p"));
+        assertEquals(2, accessor.get().intValue());
+        p.deleteProperty("test.p");
+        assertEquals(-1, p.getInteger("test.p"));
+        assertEquals(-1, accessor.get().intValue());
+    }
+}
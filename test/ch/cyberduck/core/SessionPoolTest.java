@@ -0,0 +1,69 @@
+package ch.cyberduck.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @version $Id$
+ */
+public class SessionPoolTest extends AbstractTestCase {
+
+    @Test
+    public void testBorrow() throws Exception {
+        final SessionPool pool = new SessionPool(new NullSession(new Host("t")), 2) {
+            @Override
+            protected Session create() {
+                return new NullSession(new Host("t"));
+            }
+        };
+        final Session first = pool.borrow();
+        final Session second = pool.borrow();
+        assertNotSame(first, second);
+        assertEquals(2, pool.getSessions().size());
+        pool.release(first);
+        assertSame(first, pool.borrow());
+        assertEquals(2, pool.getSessions().size());
+    }
+
+    @Test
+    public void testConcurrent() throws Exception {
+        final Session origin = new NullSession(new Host("t")) {
+            @Override
+            public boolean isConcurrent() {
+                return true;
+            }
+        };
+        final SessionPool pool = new SessionPool(origin, 2);
+        assertSame(origin, pool.borrow());
+        assertSame(origin, pool.borrow());
+    }
+
+    @Test
+    public void testPoll() throws Exception {
+        final SessionPool pool = new SessionPool(new NullSession(new Host("t")), 1) {
+            @Override
+            protected Session create() {
+                return new NullSession(new Host("t"));
+            }
+        };
+        final Session session = pool.poll();
+        assertNotNull(session);
+        // All connections in use
+        assertNull(pool.poll());
+        pool.release(session);
+        assertSame(session, pool.poll());
+    }
+
+    @Test(expected = ConnectionCanceledException.class)
+    public void testClose() throws Exception {
+        final SessionPool pool = new SessionPool(new NullSession(new Host("t")), 1) {
+            @Override
+            protected Session create() {
+                return new NullSession(new Host("t"));
+            }
+        };
+        pool.close();
+        pool.borrow();
+    }
+}
@@ -0,0 +1,41 @@
+package ch.cyberduck.core.dav;
+
+import ch.cyberduck.core.io.IOResumeException;
+
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Test;
+
+/**
+ * @version $Id$
+ */
+public class DAVSessionTest {
+
+    @Test
+    public void testValidateRange() throws Exception {
+        final BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_PARTIAL_CONTENT, "Partial Content");
+        response.addHeader(HttpHeaders.CONTENT_RANGE, "bytes 100-199/1000");
+        DAVSession.DAVClient.validate(response, 100L, 100L);
+    }
+
+    @Test(expected = IOResumeException.class)
+    public void testValidateRangeIgnored() throws Exception {
+        final BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+        DAVSession.DAVClient.validate(response, 100L, 100L);
+    }
+
+    @Test(expected = IOResumeException.class)
+    public void testValidateRangeMismatch() throws Exception {
+        final BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_PARTIAL_CONTENT, "Partial Content");
+        response.addHeader(HttpHeaders.CONTENT_RANGE, "bytes 0-99/1000");
+        DAVSession.DAVClient.validate(response, 100L, 100L);
+    }
+
+    @Test(expected = IOResumeException.class)
+    public void testValidateRangeMissing() throws Exception {
+        final BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_PARTIAL_CONTENT, "Partial Content");
+        DAVSession.DAVClient.validate(response, 100L, 100L);
+    }
+}
@@ -0,0 +1,72 @@
+package ch.cyberduck.core.http;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.ManagedClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.protocol.BasicHttpContext;
+import org.junit.Test;
+
+import java.net.ServerSocket;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @version $Id$
+ */
+public class HttpConnectionPoolTest {
+
+    @Test
+    public void testLease() throws Exception {
+        final HttpConnectionPool pool = new HttpConnectionPool(2, 1);
+        final SchemeRegistry registry = new SchemeRegistry();
+        registry.register(new Scheme("http", 8080, PlainSocketFactory.getSocketFactory()));
+        final ClientConnectionManager manager = pool.create(registry);
+        assertSame(registry, manager.getSchemeRegistry());
+        final ManagedClientConnection connection = manager.requestConnection(
+                new HttpRoute(new HttpHost("localhost")), null).getConnection(0L, TimeUnit.MILLISECONDS);
+        assertEquals(1, pool.getLeased());
+        assertEquals(0, pool.getPending());
+        manager.releaseConnection(connection, 0L, TimeUnit.MILLISECONDS);
+        assertEquals(0, pool.getLeased());
+        manager.shutdown();
+    }
+
+    @Test
+    public void testReuseBySameSessionOnly() throws Exception {
+        final ServerSocket server = new ServerSocket(0);
+        try {
+            final HttpConnectionPool pool = new HttpConnectionPool(2, 2);
+            final SchemeRegistry registry = new SchemeRegistry();
+            registry.register(new Scheme("http", 80, PlainSocketFactory.getSocketFactory()));
+            final ClientConnectionManager a = pool.create(registry);
+            final ClientConnectionManager b = pool.create(registry);
+            final HttpRoute route = new HttpRoute(new HttpHost("localhost", server.getLocalPort()));
+            final ManagedClientConnection connection = a.requestConnection(route, null).getConnection(0L, TimeUnit.MILLISECONDS);
+            connection.open(route, new BasicHttpContext(), new BasicHttpParams());
+            connection.markReusable();
+            a.releaseConnection(connection, 60L, TimeUnit.SECONDS);
+            assertEquals(1, pool.getAvailable());
+            // Not leased by another session
+            final ManagedClientConnection other = b.requestConnection(route, null).getConnection(0L, TimeUnit.MILLISECONDS);
+            assertEquals(1, pool.getAvailable());
+            b.releaseConnection(other, 0L, TimeUnit.MILLISECONDS);
+            // Reused by the same session
+            final ManagedClientConnection reused = a.requestConnection(route, null).getConnection(0L, TimeUnit.MILLISECONDS);
+            assertEquals(0, pool.getAvailable());
+            assertTrue(reused.isOpen());
+            reused.shutdown();
+            a.releaseConnection(reused, 0L, TimeUnit.MILLISECONDS);
+        }
+        finally {
+            server.close();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package ch.cyberduck.core.http;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @version $Id$
+ */
+public class PipedHttpEntityTest {
+
+    @Test
+    public void testWriteTo() throws Exception {
+        final byte[] content = new byte[100000];
+        new Random().nextBytes(content);
+        final PipedHttpEntity entity = new PipedHttpEntity(content.length, 1000);
+        final Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final OutputStream out = entity.getStream();
+                    for(int offset = 0; offset < content.length; offset += 777) {
+                        out.write(content, offset, Math.min(777, content.length - offset));
+                    }
+                    out.close();
+                }
+                catch(IOException e) {
+                    fail(e.getMessage());
+                }
+            }
+        });
+        producer.start();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertTrue(entity.isStreaming());
+        entity.writeTo(out);
+        producer.join();
+        assertFalse(entity.isStreaming());
+        assertArrayEquals(content, out.toByteArray());
+    }
+
+    @Test(expected = IOException.class)
+    public void testFail() throws Exception {
+        final PipedHttpEntity entity = new PipedHttpEntity(10L, 4);
+        entity.getStream().write(new byte[4]);
+        entity.fail(new IOException("Request already completed"));
+        // Buffer full
+        entity.getStream().write(new byte[1]);
+    }
+}
@@ -0,0 +1,41 @@
+package ch.cyberduck.core.io;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @version $Id$
+ */
+public class BandwidthThrottleTest {
+
+    @Test
+    public void testUnlimited() throws Exception {
+        final BandwidthThrottle throttle = new BandwidthThrottle(BandwidthThrottle.UNLIMITED);
+        assertEquals(1000, throttle.request(1000));
+    }
+
+    @Test
+    public void testRequest() throws Exception {
+        final BandwidthThrottle throttle = new BandwidthThrottle(10000f);
+        // A quarter of the bytes per tick
+        assertEquals(250, throttle.request(1000));
+        assertEquals(100, throttle.request(100));
+    }
+
+    @Test
+    public void testParent() throws Exception {
+        final BandwidthThrottle parent = new BandwidthThrottle(1000f);
+        final BandwidthThrottle child = new BandwidthThrottle(parent, BandwidthThrottle.UNLIMITED);
+        assertEquals(25, child.request(1000));
+        final BandwidthThrottle limited = new BandwidthThrottle(parent, 10000f);
+        assertTrue(limited.request(1000) <= 25);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCycle() throws Exception {
+        final BandwidthThrottle parent = new BandwidthThrottle(1000f);
+        final BandwidthThrottle child = new BandwidthThrottle(parent, 1000f);
+        parent.setParent(child);
+    }
+}
@@ -0,0 +1,99 @@
+package ch.cyberduck.core.io;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @version $Id$
+ */
+public class ChecksumServiceTest {
+
+    @Test
+    public void testCompute() throws Exception {
+        final File file = new File(UUID.randomUUID().toString());
+        final FileOutputStream out = new FileOutputStream(file);
+        out.write("abc".getBytes());
+        out.close();
+        final ChecksumService service = new ChecksumService(2, 1, 2);
+        try {
+            final Future<String> md5 = service.compute(file, new MD5ChecksumCompute());
+            final Future<String> sha256 = service.compute(file, new SHA256ChecksumCompute());
+            final Future<String> multipart = service.compute(file, new MultipartChecksumCompute(2L));
+            assertEquals("900150983cd24fb0d6963f7d28e17f72", md5.get());
+            assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", sha256.get());
+            assertEquals("d833159094d1d7ad96ffcc78414e3682-2", multipart.get());
+        }
+        finally {
+            service.shutdown();
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testHashWhileReading() throws Exception {
+        final List<File> files = new ArrayList<File>();
+        for(int i = 0; i < 3; i++) {
+            final File file = new File(UUID.randomUUID().toString());
+            final FileOutputStream out = new FileOutputStream(file);
+            out.write("abc".getBytes());
+            out.close();
+            files.add(file);
+        }
+        // Only passed if all files are hashed at the same time with a single permit to read
+        final CyclicBarrier barrier = new CyclicBarrier(files.size());
+        final AbstractChecksumCompute algorithm = new AbstractChecksumCompute() {
+            @Override
+            public ChecksumDigest create() {
+                return new ChecksumDigest() {
+                    @Override
+                    public void update(final ByteBuffer buffer) {
+                        try {
+                            barrier.await(10L, TimeUnit.SECONDS);
+                        }
+                        catch(Exception e) {
+                            throw new IllegalStateException(e);
+                        }
+                        buffer.position(buffer.limit());
+                    }
+
+                    @Override
+                    public String digest() {
+                        return "d";
+                    }
+                };
+            }
+
+            @Override
+            public String getName() {
+                return "barrier";
+            }
+        };
+        final ChecksumService service = new ChecksumService(files.size(), 1, 1024);
+        try {
+            final List<Future<String>> futures = new ArrayList<Future<String>>();
+            for(File file : files) {
+                futures.add(service.compute(file, algorithm));
+            }
+            for(Future<String> future : futures) {
+                assertEquals("d", future.get());
+            }
+        }
+        finally {
+            service.shutdown();
+            for(File file : files) {
+                file.delete();
+            }
+        }
+    }
+}
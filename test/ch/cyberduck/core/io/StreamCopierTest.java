@@ -0,0 +1,68 @@
+package ch.cyberduck.core.io;
+
+import ch.cyberduck.core.AbstractStreamListener;
+import ch.cyberduck.core.ConnectionCanceledException;
+import ch.cyberduck.core.transfer.TransferStatus;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * @version $Id$
+ */
+public class StreamCopierTest {
+
+    @Test
+    public void testTransfer() throws Exception {
+        final byte[] content = new byte[1000];
+        Arrays.fill(content, (byte) 1);
+        final TransferStatus status = new TransferStatus();
+        final AtomicLong received = new AtomicLong();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(1000L, new StreamCopier(status, new AbstractStreamListener() {
+            @Override
+            public void bytesReceived(final long bytes) {
+                received.addAndGet(bytes);
+            }
+        }, new BufferPool(64, 1), 256L, Long.MAX_VALUE).transfer(new ByteArrayInputStream(content), out, -1));
+        assertArrayEquals(content, out.toByteArray());
+        assertEquals(1000L, status.getCurrent());
+        assertEquals(1000L, received.get());
+        assertTrue(status.isComplete());
+    }
+
+    @Test
+    public void testTransferLimit() throws Exception {
+        final TransferStatus status = new TransferStatus();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(100L, new StreamCopier(status, new AbstractStreamListener(), new BufferPool(64, 1), 256L, Long.MAX_VALUE)
+                .transfer(new ByteArrayInputStream(new byte[1000]), out, 100L));
+        assertEquals(100, out.size());
+        assertEquals(100L, status.getCurrent());
+        assertFalse(status.isComplete());
+    }
+
+    @Test(expected = ConnectionCanceledException.class)
+    public void testTransferCanceled() throws Exception {
+        final TransferStatus status = new TransferStatus();
+        status.setCanceled();
+        new StreamCopier(status, new AbstractStreamListener(), new BufferPool(64, 1), 256L, Long.MAX_VALUE)
+                .transfer(new ByteArrayInputStream(new byte[1000]), new ByteArrayOutputStream(), -1);
+    }
+
+    @Test
+    public void testBufferPool() throws Exception {
+        final BufferPool pool = new BufferPool(64, 1);
+        final java.nio.ByteBuffer buffer = pool.acquire();
+        assertEquals(64, buffer.capacity());
+        pool.release(buffer);
+        assertSame(buffer, pool.acquire());
+        assertNotSame(buffer, pool.acquire());
+    }
+}
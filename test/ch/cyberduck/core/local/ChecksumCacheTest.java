@@ -0,0 +1,87 @@
+package ch.cyberduck.core.local;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * @version $Id$
+ */
+public class ChecksumCacheTest {
+
+    private static final String CHECKSUM = "d41d8cd98f00b204e9800998ecf8427e";
+
+    @Test
+    public void testInvalidate() throws Exception {
+        final ChecksumCache cache = new ChecksumCache(null, 10);
+        assertNull(cache.get("/a", 1L, 0L, 1000L));
+        cache.put("/a", 1L, 0L, 1000L, CHECKSUM);
+        assertEquals(CHECKSUM, cache.get("/a", 1L, 0L, 1000L));
+        assertNull(cache.get("/a", 1L, 0L, 2000L));
+        cache.put("/a", 1L, 0L, 1000L, CHECKSUM);
+        assertNull(cache.get("/a", 1L, 1L, 1000L));
+        cache.put("/a", 1L, 0L, 1000L, CHECKSUM);
+        assertNull(cache.get("/a", 2L, 0L, 1000L));
+    }
+
+    @Test
+    public void testPersist() throws Exception {
+        final File file = new File(UUID.randomUUID().toString());
+        try {
+            final ChecksumCache cache = new ChecksumCache(file, 10);
+            cache.put("/a", -1L, 0L, 1000L, CHECKSUM);
+            cache.put("/b", -1L, 0L, 1000L, CHECKSUM);
+            final ChecksumCache reloaded = new ChecksumCache(file, 10);
+            assertEquals(CHECKSUM, reloaded.get("/a", -1L, 0L, 1000L));
+            assertEquals(CHECKSUM, reloaded.get("/b", -1L, 0L, 1000L));
+            assertNull(reloaded.get("/c", -1L, 0L, 1000L));
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testTruncated() throws Exception {
+        final File file = new File(UUID.randomUUID().toString());
+        try {
+            final ChecksumCache cache = new ChecksumCache(file, 10);
+            cache.put("/a", -1L, 0L, 1000L, CHECKSUM);
+            cache.put("/b", -1L, 0L, 1000L, CHECKSUM);
+            final RandomAccessFile f = new RandomAccessFile(file, "rw");
+            f.setLength(f.length() - 4);
+            f.close();
+            final ChecksumCache reloaded = new ChecksumCache(file, 10);
+            assertEquals(CHECKSUM, reloaded.get("/a", -1L, 0L, 1000L));
+            assertNull(reloaded.get("/b", -1L, 0L, 1000L));
+            reloaded.put("/c", -1L, 0L, 1000L, CHECKSUM);
+            final ChecksumCache compacted = new ChecksumCache(file, 10);
+            assertEquals(CHECKSUM, compacted.get("/a", -1L, 0L, 1000L));
+            assertEquals(CHECKSUM, compacted.get("/c", -1L, 0L, 1000L));
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testMultipart() throws Exception {
+        final File file = new File(UUID.randomUUID().toString());
+        try {
+            final ChecksumCache cache = new ChecksumCache(file, 10);
+            cache.put("/a", -1L, 0L, 1000L, CHECKSUM);
+            cache.put("/a", "MD5-2", -1L, 0L, 1000L, CHECKSUM + "-2");
+            final ChecksumCache reloaded = new ChecksumCache(file, 10);
+            assertEquals(CHECKSUM, reloaded.get("/a", -1L, 0L, 1000L));
+            assertEquals(CHECKSUM + "-2", reloaded.get("/a", "MD5-2", -1L, 0L, 1000L));
+            assertNull(reloaded.get("/a", "MD5-3", -1L, 0L, 1000L));
+        }
+        finally {
+            file.delete();
+        }
+    }
+}
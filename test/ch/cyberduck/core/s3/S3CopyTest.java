@@ -0,0 +1,65 @@
+package ch.cyberduck.core.s3;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @version $Id$
+ */
+public class S3CopyTest {
+
+    @Test
+    public void testRename() throws Exception {
+        assertEquals("b/f", S3Copy.rename("a/f", "a/", "b/"));
+        assertEquals("b/", S3Copy.rename("a/", "a/", "b/"));
+        assertEquals("c/b/d/f", S3Copy.rename("a/d/f", "a/", "c/b/"));
+    }
+
+    @Test
+    public void testRenameKeepsNestedPrefix() throws Exception {
+        assertEquals("b/a/f", S3Copy.rename("a/a/f", "a/", "b/"));
+    }
+
+    @Test
+    public void testParts() throws Exception {
+        final List<S3Copy.Part> parts = S3Copy.parts(25L, 10L);
+        assertEquals(3, parts.size());
+        assertEquals(1, parts.get(0).getNumber());
+        assertEquals(0L, parts.get(0).getStart());
+        assertEquals(9L, parts.get(0).getEnd());
+        assertEquals(2, parts.get(1).getNumber());
+        assertEquals(10L, parts.get(1).getStart());
+        assertEquals(19L, parts.get(1).getEnd());
+        assertEquals(3, parts.get(2).getNumber());
+        assertEquals(20L, parts.get(2).getStart());
+        assertEquals(24L, parts.get(2).getEnd());
+    }
+
+    @Test
+    public void testPartsExactMultiple() throws Exception {
+        final List<S3Copy.Part> parts = S3Copy.parts(20L, 10L);
+        assertEquals(2, parts.size());
+        assertEquals(19L, parts.get(1).getEnd());
+    }
+
+    @Test
+    public void testPartsEmpty() throws Exception {
+        assertTrue(S3Copy.parts(0L, 10L).isEmpty());
+    }
+
+    @Test
+    public void testPartsMaximumCount() throws Exception {
+        final long length = 5L * 1024L * 1024L * 1024L * 1024L;
+        final List<S3Copy.Part> parts = S3Copy.parts(length, 5L * 1024L * 1024L);
+        assertTrue(parts.size() <= 10000);
+        long expected = 0L;
+        for(S3Copy.Part part : parts) {
+            assertEquals(expected, part.getStart());
+            expected = part.getEnd() + 1;
+        }
+        assertEquals(length, expected);
+    }
+}
@@ -0,0 +1,41 @@
+package ch.cyberduck.core.s3;
+
+import org.jets3t.service.model.StorageObject;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @version $Id$
+ */
+public class S3PlaceholderResolverTest {
+
+    @Test
+    public void testDetectDelimiterSuffix() throws Exception {
+        final StorageObject object = new StorageObject("a/");
+        object.setContentLength(0L);
+        assertTrue(S3PlaceholderResolver.detect(object));
+    }
+
+    @Test
+    public void testDetectFile() throws Exception {
+        final StorageObject object = new StorageObject("a");
+        object.setContentLength(1L);
+        assertFalse(S3PlaceholderResolver.detect(object));
+    }
+
+    @Test
+    public void testDetectS3sync() throws Exception {
+        final StorageObject object = new StorageObject("a");
+        object.setContentLength(38L);
+        object.setETag("\"d66759af42f282e1ba19144df2d405d0\"");
+        assertTrue(S3PlaceholderResolver.detect(object));
+    }
+
+    @Test
+    public void testDetectAmbiguous() throws Exception {
+        final StorageObject object = new StorageObject("a");
+        object.setContentLength(0L);
+        assertNull(S3PlaceholderResolver.detect(object));
+    }
+}
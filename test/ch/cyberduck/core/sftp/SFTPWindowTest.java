@@ -0,0 +1,45 @@
+package ch.cyberduck.core.sftp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @version $Id$
+ */
+public class SFTPWindowTest {
+
+    @Test
+    public void testGrow() {
+        final SFTPWindow window = new SFTPWindow(4, 16);
+        assertEquals(4, window.getRequests());
+        assertEquals(4 * SFTPWindow.PACKET_SIZE, window.getSize());
+        // Throughput scales with window on high latency link
+        window.update(window.getSize(), 100000000L);
+        assertEquals(8, window.getRequests());
+        window.update(window.getSize(), 100000000L);
+        assertEquals(16, window.getRequests());
+        window.update(window.getSize(), 100000000L);
+        assertEquals(16, window.getRequests());
+    }
+
+    @Test
+    public void testSaturated() {
+        final SFTPWindow window = new SFTPWindow(4, 64);
+        window.update(window.getSize(), 100000000L);
+        assertEquals(8, window.getRequests());
+        // No improvement with double the data in flight
+        window.update(window.getSize(), 200000000L);
+        assertEquals(8, window.getRequests());
+    }
+
+    @Test
+    public void testShrink() {
+        final SFTPWindow window = new SFTPWindow(2, 64);
+        window.update(window.getSize(), 1000000L);
+        window.update(window.getSize(), 1000000L);
+        assertEquals(8, window.getRequests());
+        window.update(window.getSize(), 100000000L);
+        assertEquals(4, window.getRequests());
+    }
+}
@@ -0,0 +1,52 @@
+package ch.cyberduck.core.ssl;
+
+import org.junit.Test;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.X509TrustManager;
+import java.security.cert.X509Certificate;
+
+import static org.junit.Assert.*;
+
+/**
+ * @version $Id$
+ */
+public class SSLContextRegistryTest {
+
+    private static final class Trust implements X509TrustManager {
+        @Override
+        public void checkClientTrusted(final X509Certificate[] certs, final String authType) {
+            //
+        }
+
+        @Override
+        public void checkServerTrusted(final X509Certificate[] certs, final String authType) {
+            //
+        }
+
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return new X509Certificate[]{};
+        }
+    }
+
+    @Test
+    public void testShared() throws Exception {
+        final SSLContextRegistry registry = new SSLContextRegistry(10);
+        final Trust trust = new Trust();
+        final SSLContext context = registry.get("h", 443, trust, null);
+        assertSame(context, registry.get("H", 443, trust, null));
+        assertEquals(10, context.getClientSessionContext().getSessionCacheSize());
+        assertNotSame(context, registry.get("h", 990, trust, null));
+        assertEquals(0L, registry.getFullHandshakes());
+        assertEquals(0L, registry.getResumedHandshakes());
+    }
+
+    @Test
+    public void testNotSharedWithOtherTrustManager() throws Exception {
+        final SSLContextRegistry registry = new SSLContextRegistry(10);
+        final SSLContext context = registry.get("h", 443, new Trust(), null);
+        // Same kind of trust manager of another session
+        assertNotSame(context, registry.get("h", 443, new Trust(), null));
+    }
+}
@@ -0,0 +1,49 @@
+package ch.cyberduck.core.threading;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * @version $Id$
+ */
+public class ParallelExecutorTest {
+
+    @Test
+    public void testAwait() throws Exception {
+        final ParallelExecutor executor = new ParallelExecutor("test", 3);
+        final AtomicInteger count = new AtomicInteger();
+        for(int i = 0; i < 100; i++) {
+            executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    count.incrementAndGet();
+                    return null;
+                }
+            });
+        }
+        executor.await();
+        assertEquals(100, count.get());
+    }
+
+    @Test(expected = IOException.class)
+    public void testFailure() throws Exception {
+        final ParallelExecutor executor = new ParallelExecutor("test", 2);
+        try {
+            executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    throw new IOException("failure");
+                }
+            });
+            executor.await();
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+}
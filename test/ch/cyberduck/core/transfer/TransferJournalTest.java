@@ -0,0 +1,133 @@
+package ch.cyberduck.core.transfer;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * @version $Id$
+ */
+public class TransferJournalTest {
+
+    @Test
+    public void testResume() throws Exception {
+        final File file = new File(UUID.randomUUID().toString());
+        try {
+            final TransferJournal journal = new TransferJournal(file);
+            journal.complete("/a", 3L);
+            journal.multipart("/b", "u");
+            journal.close();
+            final TransferJournal resumed = new TransferJournal(file);
+            assertTrue(resumed.isComplete("/a"));
+            assertEquals(3L, resumed.getLength("/a"));
+            assertFalse(resumed.isComplete("/b"));
+            assertEquals(-1L, resumed.getLength("/b"));
+            assertEquals("u", resumed.getMultipart("/b"));
+            resumed.complete("/b", 1L);
+            resumed.close();
+            final TransferJournal completed = new TransferJournal(file);
+            assertNull(completed.getMultipart("/b"));
+            assertEquals(2, completed.getCompleted());
+            completed.delete();
+            assertFalse(file.exists());
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testTruncated() throws Exception {
+        final File file = new File(UUID.randomUUID().toString());
+        try {
+            final TransferJournal journal = new TransferJournal(file);
+            journal.complete("/a", 3L);
+            journal.complete("/b", 4L);
+            journal.close();
+            // Interrupted while writing last record
+            final RandomAccessFile f = new RandomAccessFile(file, "rw");
+            f.setLength(f.length() - 2);
+            f.close();
+            final TransferJournal resumed = new TransferJournal(file);
+            assertTrue(resumed.isComplete("/a"));
+            assertFalse(resumed.isComplete("/b"));
+            resumed.complete("/c", 5L);
+            resumed.close();
+            final TransferJournal compacted = new TransferJournal(file);
+            assertTrue(compacted.isComplete("/a"));
+            assertTrue(compacted.isComplete("/c"));
+            compacted.close();
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testClear() throws Exception {
+        final File file = new File(UUID.randomUUID().toString());
+        try {
+            final TransferJournal journal = new TransferJournal(file);
+            journal.complete("/a", 3L);
+            journal.clear();
+            journal.close();
+            assertFalse(new TransferJournal(file).isComplete("/a"));
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testCompact() throws Exception {
+        final File file = new File(UUID.randomUUID().toString());
+        try {
+            final TransferJournal journal = new TransferJournal(file);
+            for(int i = 0; i < 2000; i++) {
+                journal.multipart("/a", String.valueOf(i));
+            }
+            journal.checkpoint();
+            final long compacted = file.length();
+            // Single record for the last identifier
+            assertTrue(compacted < 100L);
+            // Recorded while not written to disk
+            journal.complete("/b", 1L);
+            journal.close();
+            assertTrue(file.length() > compacted);
+            final TransferJournal resumed = new TransferJournal(file);
+            assertEquals("1999", resumed.getMultipart("/a"));
+            assertTrue(resumed.isComplete("/b"));
+            resumed.close();
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testLoadTemporary() throws Exception {
+        final File file = new File(UUID.randomUUID().toString());
+        final File temporary = new File(file.getName() + ".tmp");
+        try {
+            final TransferJournal journal = new TransferJournal(file);
+            journal.complete("/a", 3L);
+            journal.close();
+            // Interrupted after removing the file before renaming the compacted journal
+            assertTrue(file.renameTo(temporary));
+            final TransferJournal resumed = new TransferJournal(file);
+            assertTrue(resumed.isComplete("/a"));
+            assertTrue(file.exists());
+            assertFalse(temporary.exists());
+            resumed.delete();
+            assertFalse(file.exists());
+        }
+        finally {
+            file.delete();
+            temporary.delete();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package ch.cyberduck.core.transfer.download;
+
+import ch.cyberduck.core.AbstractTestCase;
+import ch.cyberduck.core.NullLocal;
+import ch.cyberduck.core.local.Local;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * @version $Id$
+ */
+public class SegmentJournalTest extends AbstractTestCase {
+
+    @Test
+    public void testCreate() throws Exception {
+        final Local local = new NullLocal(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString());
+        final List<SegmentJournal.Segment> segments = SegmentJournal.create(local, 10L, 4, 1L).getSegments();
+        assertEquals(4, segments.size());
+        assertEquals(0L, segments.get(0).getOffset());
+        assertEquals(3L, segments.get(0).getLength());
+        assertEquals(9L, segments.get(3).getOffset());
+        assertEquals(1L, segments.get(3).getLength());
+    }
+
+    @Test
+    public void testCreateMinimumSize() throws Exception {
+        final Local local = new NullLocal(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString());
+        final List<SegmentJournal.Segment> segments = SegmentJournal.create(local, 10L, 4, 6L).getSegments();
+        assertEquals(2, segments.size());
+        assertEquals(6L, segments.get(1).getOffset());
+        assertEquals(4L, segments.get(1).getLength());
+    }
+
+    @Test
+    public void testSaveLoad() throws Exception {
+        final Local local = new NullLocal(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString());
+        assertFalse(SegmentJournal.exists(local));
+        assertNull(SegmentJournal.load(local, 10L));
+        final SegmentJournal journal = SegmentJournal.create(local, 10L, 2, 1L);
+        journal.getSegments().get(0).addWritten(5L);
+        journal.getSegments().get(1).addWritten(2L);
+        journal.save();
+        assertTrue(SegmentJournal.exists(local));
+        final SegmentJournal loaded = SegmentJournal.load(local, 10L);
+        assertNotNull(loaded);
+        assertEquals(7L, loaded.getTransferred());
+        assertTrue(loaded.getSegments().get(0).isComplete());
+        assertFalse(loaded.getSegments().get(1).isComplete());
+        assertFalse(loaded.isComplete());
+        loaded.delete();
+        assertFalse(SegmentJournal.exists(local));
+    }
+
+    @Test
+    public void testLoadLengthChanged() throws Exception {
+        final Local local = new NullLocal(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString());
+        SegmentJournal.create(local, 10L, 2, 1L).save();
+        assertTrue(SegmentJournal.exists(local));
+        assertNull(SegmentJournal.load(local, 11L));
+        // Not resumable
+        assertFalse(SegmentJournal.exists(local));
+    }
+
+    @Test
+    public void testDiscard() throws Exception {
+        final Local local = new NullLocal(System.getProperty("java.io.tmpdir"), UUID.randomUUID().toString());
+        SegmentJournal.create(local, 10L, 2, 1L).save();
+        assertTrue(SegmentJournal.exists(local));
+        SegmentJournal.discard(local);
+        assertFalse(SegmentJournal.exists(local));
+    }
+}
@@ -19,6 +19,7 @@ import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @version $Id: OverwriteFilterTest.java 10452 2012-10-18 18:40:07Z dkocher $
@@ -150,4 +151,38 @@ public class OverwriteFilterTest extends AbstractTestCase {
         assertEquals(acl, file.attributes().getAcl());
         assertEquals(permission, file.attributes().getPermission());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testPermissionsExistsPreparedBefore() throws Exception {
+        Preferences.instance().setProperty("queue.upload.changePermissions", true);
+        OverwriteFilter f = new OverwriteFilter(new NullSymlinkResolver());
+        final Permission permission = new Permission(777);
+        final NullPath file = new NullPath("/t", Path.FILE_TYPE) {
+            @Override
+            public Session getSession() {
+                return new NullSession(new Host("t")) {
+                    @Override
+                    public boolean isUnixPermissionsSupported() {
+                        return true;
+                    }
+                };
+            }
+
+            @Override
+            public void readUnixPermission() {
+                attributes().setPermission(permission);
+            }
+
+            @Override
+            public boolean exists() {
+                return true;
+            }
+        };
+        file.setLocal(new NullLocal(null, "a"));
+        // Set from local file when not found on server before
+        file.attributes().setPermission(new Permission(644));
+        assertFalse(f.prepare(file).isComplete());
+        assertEquals(permission, file.attributes().getPermission());
+        assertTrue(file.attributes().isPermissionRead());
+    }
+}